@@ -0,0 +1,86 @@
+package com.example.messageboardbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 缓存配置类
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Component
+@ConfigurationProperties(prefix = "app.cache")
+@Data
+public class CacheProperties {
+
+    /**
+     * 进程内一级缓存配置
+     */
+    private Local local = new Local();
+
+    /**
+     * Redis最新留言时间线配置
+     */
+    private Timeline timeline = new Timeline();
+
+    /**
+     * 热门留言缓存软过期与后台刷新配置
+     */
+    private Refresh refresh = new Refresh();
+
+    @Data
+    public static class Local {
+
+        /**
+         * 每个缓存区域的最大条目数
+         */
+        private long maxSize = 1000;
+
+        /**
+         * 写入后过期时间，也是跨节点失效消息丢失时的最长脏读时间
+         */
+        private Duration ttl = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Timeline {
+
+        /**
+         * 时间线保留的最新留言条数，超出部分的分页直接查库
+         */
+        private int capacity = 1000;
+
+        /**
+         * 时间线有效期，到期后下一次读取从数据库重建，用于纠正可能的累积偏差
+         */
+        private Duration ttl = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Refresh {
+
+        /**
+         * 软过期时间，超过后返回旧值并在后台刷新
+         */
+        private Duration softTtl = Duration.ofMinutes(2);
+
+        /**
+         * 硬过期时间（Redis TTL），超过后必须同步查库
+         */
+        private Duration hardTtl = Duration.ofMinutes(10);
+
+        /**
+         * XFetch提前刷新系数，0表示只在软过期后刷新
+         */
+        private double beta = 1.0;
+
+        /**
+         * 后台刷新线程数
+         */
+        private int threads = 2;
+    }
+}
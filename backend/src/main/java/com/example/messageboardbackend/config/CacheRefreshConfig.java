@@ -0,0 +1,35 @@
+package com.example.messageboardbackend.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 缓存后台刷新线程池配置
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Configuration
+public class CacheRefreshConfig {
+
+    /**
+     * 软过期后的缓存刷新在此线程池执行，不占用请求线程；
+     * 队列满时直接丢弃，调用方继续使用旧值，下一次请求会再次触发刷新
+     */
+    @Bean
+    public ThreadPoolTaskExecutor cacheRefreshExecutor(CacheProperties cacheProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        int threads = cacheProperties.getRefresh().getThreads();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("cache-refresh-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
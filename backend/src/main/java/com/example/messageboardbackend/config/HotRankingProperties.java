@@ -0,0 +1,56 @@
+package com.example.messageboardbackend.config;
+
+import com.example.messageboardbackend.model.Message;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 热门排行配置类
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Component
+@ConfigurationProperties(prefix = "app.hot")
+@Data
+public class HotRankingProperties {
+
+    /**
+     * 热门留言的最少点赞数：热门排行、热门列表的数据库查询和 is_hot 标记都使用该值，
+     * 修改后已有留言的 is_hot 在点赞数下次变化时按新值重新计算
+     */
+    private int minLikes = Message.HOT_LIKE_THRESHOLD;
+
+    /**
+     * 衰减周期：晚发布一个周期的留言，与点赞数多10倍的留言得分相同
+     */
+    private Duration decay = Duration.ofSeconds(45000);
+
+    /**
+     * 参与排行的时间窗口，更早发布的留言移出排行
+     */
+    private Duration window = Duration.ofDays(7);
+
+    /**
+     * 排行有效期，到期后下一次读取从数据库重建，用于纠正可能的累积偏差
+     */
+    private Duration ttl = Duration.ofHours(1);
+
+    /**
+     * 移出过期留言的执行间隔
+     */
+    private Duration pruneInterval = Duration.ofMinutes(10);
+
+    /**
+     * 点赞数是否达到热门门槛
+     *
+     * @param likeCount 点赞数
+     * @return 是否为热门留言
+     */
+    public boolean isHot(long likeCount) {
+        return likeCount >= minLikes;
+    }
+}
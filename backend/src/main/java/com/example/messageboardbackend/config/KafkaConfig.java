@@ -1,9 +1,20 @@
 package com.example.messageboardbackend.config;
 
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+import java.time.Duration;
+import java.util.Properties;
 
 /**
  * Kafka配置类
@@ -14,6 +25,11 @@ import org.springframework.kafka.config.TopicBuilder;
 @Configuration
 public class KafkaConfig {
 
+    /**
+     * 系统日志死信Topic，与 DeadLetterPublishingRecoverer 默认的命名一致
+     */
+    public static final String SYSTEM_LOG_DEAD_LETTER_TOPIC = "system-logs.DLT";
+
     /**
      * 创建系统日志Topic
      */
@@ -24,4 +40,90 @@ public class KafkaConfig {
                 .replicas(1)
                 .build();
     }
+
+    /**
+     * 创建系统日志死信Topic：重试超时仍无法写入的日志，分区数与系统日志Topic相同（按原分区转入）
+     */
+    @Bean
+    public NewTopic systemLogsDeadLetterTopic() {
+        return TopicBuilder.name(SYSTEM_LOG_DEAD_LETTER_TOPIC)
+                .partitions(3)
+                .replicas(1)
+                .build();
+    }
+
+    /**
+     * 创建点赞事件Topic，开启日志压缩：每个 留言ID:用户ID 只保留最终状态
+     */
+    @Bean
+    public NewTopic messageLikesTopic(LikeProperties likeProperties) {
+        return TopicBuilder.name(likeProperties.getEventSourcing().getTopic())
+                .partitions(likeProperties.getEventSourcing().getPartitions())
+                .replicas(1)
+                .compact()
+                .build();
+    }
+
+    /**
+     * 点赞事件批量消费容器：一次拉取的全部记录在同一个事务中投影，处理完整批后提交位点；
+     * 投影失败时按指数退避重试同一批，直到成功
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> likeEventListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory, LikeProperties likeProperties) {
+        LikeProperties.EventSourcing config = likeProperties.getEventSourcing();
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setCommonErrorHandler(retryForever(config.getRetryBackoff(), config.getRetryMaxBackoff()));
+        return factory;
+    }
+
+    /**
+     * 系统日志批量消费容器：每个分区一个线程，一次拉取的记录用多行INSERT在一个事务中写入，
+     * 监听器在事务提交后手动确认，随后立即提交位点。
+     * 写入失败时按指数退避重试同一批；超过 retry-max-elapsed 仍失败（如日志超长、没有对应的分区）时
+     * 整批转入死信Topic后继续消费，不丢弃日志，也不让一条坏数据永久阻塞分区
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> systemLogListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory, SystemLogProperties systemLogProperties,
+            KafkaTemplate<String, String> kafkaTemplate) {
+        SystemLogProperties.Consumer config = systemLogProperties.getConsumer();
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(config.getConcurrency());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        Properties consumerProperties = new Properties();
+        consumerProperties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(config.getMaxPollRecords()));
+        factory.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+        ExponentialBackOff backOff = exponentialBackOff(config.getRetryBackoff(), config.getRetryMaxBackoff());
+        backOff.setMaxElapsedTime(config.getRetryMaxElapsed().toMillis());
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new DeadLetterPublishingRecoverer(kafkaTemplate), backOff));
+        return factory;
+    }
+
+    /**
+     * 不跳过记录的错误处理器：监听器抛出异常时暂停拉取（仍然按时poll，不触发重平衡），
+     * 按指数退避把同一批重新交给监听器，直到处理成功。
+     * 容器默认的错误处理器立即重试9次后跳过整批，数据库短暂不可用就会永久丢失这批事件。
+     *
+     * @param initial 第一次重试前的等待时间
+     * @param max 等待时间上限
+     * @return 错误处理器
+     */
+    private static DefaultErrorHandler retryForever(Duration initial, Duration max) {
+        return new DefaultErrorHandler(exponentialBackOff(initial, max));
+    }
+
+    /**
+     * 每次翻倍的退避，默认不限重试时间
+     */
+    private static ExponentialBackOff exponentialBackOff(Duration initial, Duration max) {
+        ExponentialBackOff backOff = new ExponentialBackOff(initial.toMillis(), 2.0);
+        backOff.setMaxInterval(max.toMillis());
+        return backOff;
+    }
 }
@@ -0,0 +1,132 @@
+package com.example.messageboardbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 点赞配置类
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Component
+@ConfigurationProperties(prefix = "app.like")
+@Data
+public class LikeProperties {
+
+    /**
+     * 点赞数延迟批量写入配置
+     */
+    private WriteBehind writeBehind = new WriteBehind();
+
+    /**
+     * 点赞用户位图索引配置
+     */
+    private Bitmap bitmap = new Bitmap();
+
+    /**
+     * 点赞事件化配置
+     */
+    private EventSourcing eventSourcing = new EventSourcing();
+
+    /**
+     * 点赞数对账配置
+     */
+    private Reconcile reconcile = new Reconcile();
+
+    @Data
+    public static class WriteBehind {
+
+        /**
+         * 是否开启：开启后点赞只插入点赞记录，点赞数在内存中累加后定时批量写入留言表
+         */
+        private boolean enabled = false;
+
+        /**
+         * 批量写入间隔，也是进程异常退出时最多丢失的点赞数增量时间窗口（可由对账任务修正）
+         */
+        private Duration flushInterval = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Bitmap {
+
+        /**
+         * 是否开启：开启后"是否已点赞"判断走进程内位图，加载完成前仍查库
+         */
+        private boolean enabled = true;
+
+        /**
+         * 启动时从点赞表流式加载的每批行数
+         */
+        private int loadBatchSize = 10000;
+
+        /**
+         * Redis位图快照的有效期，到期后下一个启动的节点从数据库重建，用于纠正漏写的增量
+         */
+        private Duration snapshotTtl = Duration.ofDays(1);
+    }
+
+    @Data
+    public static class EventSourcing {
+
+        /**
+         * 是否开启：开启后点赞接口只校验并写入点赞事件，由消费者批量投影到点赞表和点赞数
+         */
+        private boolean enabled = false;
+
+        /**
+         * 点赞事件Topic（日志压缩，key为 留言ID:用户ID，只保留每个用户对每条留言的最终状态）
+         */
+        private String topic = "message-likes";
+
+        /**
+         * Topic分区数
+         */
+        private int partitions = 3;
+
+        /**
+         * 投影失败后第一次重试前的等待时间，之后每次翻倍
+         */
+        private Duration retryBackoff = Duration.ofSeconds(1);
+
+        /**
+         * 重试等待时间的上限；投影失败时一直重试同一批，不跳过事件
+         */
+        private Duration retryMaxBackoff = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Reconcile {
+
+        /**
+         * 是否开启：开启后后台按留言ID分批核对点赞数与点赞记录数，修正不一致。
+         * 开启延迟写入时只在单节点执行：有多个节点开启延迟写入时自动暂停
+         */
+        private boolean enabled = true;
+
+        /**
+         * 两批之间的间隔，每个间隔只处理一批；开启延迟写入时应大于写入间隔，
+         * 也是延迟写入节点在Redis中登记的间隔（3个间隔未登记视为下线）
+         */
+        private Duration interval = Duration.ofSeconds(2);
+
+        /**
+         * 每批核对的留言数
+         */
+        private int batchSize = 500;
+
+        /**
+         * 数据库连接池使用率达到该比例时跳过本批，不与前台请求争抢连接
+         */
+        private double maxPoolUsage = 0.5;
+
+        /**
+         * 一轮核对完所有留言后，等待多久开始下一轮
+         */
+        private Duration passInterval = Duration.ofHours(1);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.messageboardbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 发件箱配置类
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Component
+@ConfigurationProperties(prefix = "app.outbox")
+@Data
+public class OutboxProperties {
+
+    /**
+     * 是否在本节点发送发件箱事件，多个节点可以同时开启，同一时间只有持有转发锁（outbox_relay_lock）的节点发送
+     */
+    private boolean enabled = true;
+
+    /**
+     * 轮询间隔
+     */
+    private Duration pollInterval = Duration.ofMillis(200);
+
+    /**
+     * 每批取出的事件数
+     */
+    private int batchSize = 500;
+
+    /**
+     * 每次轮询最多连续处理的批数，取满一批时不等待下一个间隔
+     */
+    private int maxBatchesPerRun = 20;
+
+    /**
+     * 一批事件从取出到全部被Kafka确认的最长时间，超时整批留在发件箱中下次重发；
+     * 也是转发任务生产者的 max.block.ms，Broker不可用时一批占用行锁和数据库连接的时间以此为上限
+     */
+    private Duration sendTimeout = Duration.ofSeconds(10);
+}
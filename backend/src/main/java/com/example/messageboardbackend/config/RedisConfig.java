@@ -4,10 +4,17 @@ import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.example.messageboardbackend.service.LikeBitmapIndex;
+import com.example.messageboardbackend.service.LocalMessageCache;
+import com.example.messageboardbackend.service.MessageSearchIndex;
+import com.example.messageboardbackend.service.SearchResultCache;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -30,6 +37,8 @@ public class RedisConfig {
         ObjectMapper om = new ObjectMapper();
         om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
         om.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+        // 支持LocalDateTime等Java 8时间类型，否则缓存MessageDto时序列化失败
+        om.registerModule(new JavaTimeModule());
         // 使用新的方法设置ObjectMapper
         jackson2JsonRedisSerializer.setObjectMapper(om);
 
@@ -48,4 +57,22 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    /**
+     * Redis消息监听容器，订阅跨节点的缓存失效通知、点赞位图变化、搜索索引和搜索缓存的变化
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       LocalMessageCache localMessageCache,
+                                                                       LikeBitmapIndex likeBitmapIndex,
+                                                                       MessageSearchIndex messageSearchIndex,
+                                                                       SearchResultCache searchResultCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(localMessageCache, new ChannelTopic(LocalMessageCache.INVALIDATION_CHANNEL));
+        container.addMessageListener(likeBitmapIndex, new ChannelTopic(LikeBitmapIndex.CHANNEL));
+        container.addMessageListener(messageSearchIndex, new ChannelTopic(MessageSearchIndex.CHANNEL));
+        container.addMessageListener(searchResultCache, new ChannelTopic(SearchResultCache.CHANNEL));
+        return container;
+    }
 }
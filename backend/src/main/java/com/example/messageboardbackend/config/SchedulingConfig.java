@@ -0,0 +1,15 @@
+package com.example.messageboardbackend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务配置
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
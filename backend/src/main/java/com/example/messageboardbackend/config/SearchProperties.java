@@ -0,0 +1,116 @@
+package com.example.messageboardbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 留言搜索配置类
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Component
+@ConfigurationProperties(prefix = "app.search")
+@Data
+public class SearchProperties {
+
+    /**
+     * 搜索实现
+     */
+    private Engine engine = Engine.FULLTEXT;
+
+    /**
+     * 与MySQL的 ngram_token_size 一致：比它短的关键词切不出词元，全文索引查不到，改用LIKE
+     */
+    private int minTokenLength = 2;
+
+    /**
+     * 进程内倒排索引配置（engine=lucene 时生效）
+     */
+    private Lucene lucene = new Lucene();
+
+    /**
+     * 搜索结果缓存配置
+     */
+    private ResultCache resultCache = new ResultCache();
+
+    public enum Engine {
+
+        /**
+         * LIKE '%关键词%'，全表扫描
+         */
+        LIKE,
+
+        /**
+         * MySQL FULLTEXT 索引（ngram分词），索引不存在时退回LIKE
+         */
+        FULLTEXT,
+
+        /**
+         * 进程内 Lucene 倒排索引，搜索不访问数据库；索引未加载完成时退回LIKE
+         */
+        LUCENE
+    }
+
+    @Data
+    public static class Lucene {
+
+        /**
+         * 索引目录，每个节点各自一份
+         */
+        private String indexDir = "data/search-index";
+
+        /**
+         * 近实时刷新间隔，写入的留言最多延迟这么久可以搜到
+         */
+        private Duration refreshInterval = Duration.ofSeconds(1);
+
+        /**
+         * 提交间隔，重启后从上次提交的时间点追赶数据库中的变化
+         */
+        private Duration commitInterval = Duration.ofMinutes(1);
+
+        /**
+         * 重建和追赶时每批读取的留言数
+         */
+        private int batchSize = 1000;
+    }
+
+    @Data
+    public static class ResultCache {
+
+        /**
+         * 是否缓存搜索结果
+         */
+        private boolean enabled = true;
+
+        /**
+         * 普通关键词的结果有效期
+         */
+        private Duration ttl = Duration.ofMinutes(1);
+
+        /**
+         * 热门关键词的结果有效期，关键词在统计周期内被搜索达到 hotThreshold 次后使用
+         */
+        private Duration hotTtl = Duration.ofMinutes(10);
+
+        /**
+         * 成为热门关键词的搜索次数
+         */
+        private int hotThreshold = 20;
+
+        /**
+         * 缓存结果的估算内存上限，超出后按 W-TinyLFU 淘汰
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(32);
+
+        /**
+         * 只缓存不超过这个长度的关键词
+         */
+        private int maxQueryLength = 64;
+    }
+}
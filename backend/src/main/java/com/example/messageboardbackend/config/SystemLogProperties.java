@@ -0,0 +1,173 @@
+package com.example.messageboardbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 系统日志配置类
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Component
+@ConfigurationProperties(prefix = "app.system-log")
+@Data
+public class SystemLogProperties {
+
+    /**
+     * 系统日志消费配置
+     */
+    private Consumer consumer = new Consumer();
+
+    /**
+     * 系统日志发送配置
+     */
+    private Producer producer = new Producer();
+
+    /**
+     * Kafka不可用和队列溢出时的本地缓冲配置
+     */
+    private Spool spool = new Spool();
+
+    /**
+     * system_log 按天分区的维护配置
+     */
+    private Partition partition = new Partition();
+
+    @Data
+    public static class Consumer {
+
+        /**
+         * 消费线程数，不超过Topic分区数
+         */
+        private int concurrency = 3;
+
+        /**
+         * 每次拉取的最大记录数，即一个事务写入的最大条数
+         */
+        private int maxPollRecords = 5000;
+
+        /**
+         * 每条多行INSERT语句的最大行数，避免单条语句超过 max_allowed_packet
+         */
+        private int insertBatchSize = 1000;
+
+        /**
+         * 写入失败后第一次重试前的等待时间，之后每次翻倍
+         */
+        private Duration retryBackoff = Duration.ofSeconds(1);
+
+        /**
+         * 重试等待时间的上限
+         */
+        private Duration retryMaxBackoff = Duration.ofMinutes(1);
+
+        /**
+         * 同一批重试的最长时间，超过后整批转入死信Topic（system-logs.DLT），不再阻塞分区
+         */
+        private Duration retryMaxElapsed = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class Producer {
+
+        /**
+         * 内存队列容量，发件箱转发任务只入队，由发送线程写入Kafka
+         */
+        private int queueCapacity = 10000;
+
+        /**
+         * 队列已满时的处理方式；交给队列的事件已从发件箱删除，默认写入本地缓冲不丢弃
+         */
+        private OverflowPolicy overflowPolicy = OverflowPolicy.SPILL;
+
+        /**
+         * 发送线程每轮从队列取出的最大条数
+         */
+        private int drainBatchSize = 500;
+
+        /**
+         * 生产者攒批等待时间（linger.ms），队列为空时发送线程也按此间隔等待
+         */
+        private Duration linger = Duration.ofMillis(20);
+
+        /**
+         * 生产者压缩算法（compression.type）
+         */
+        private String compressionType = "lz4";
+
+        /**
+         * 元数据不可用或缓冲区已满时send的最长阻塞时间（max.block.ms），只阻塞发送线程
+         */
+        private Duration maxBlock = Duration.ofSeconds(5);
+
+        /**
+         * 发送失败后多久再尝试连接Kafka，期间事件直接写入本地缓冲
+         */
+        private Duration retryInterval = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Spool {
+
+        /**
+         * 本地缓冲目录，需可写
+         */
+        private String dir = "data/system-log-spool";
+
+        /**
+         * 分段文件大小，写满后切换到新分段
+         */
+        private DataSize segmentSize = DataSize.ofMegabytes(16);
+
+        /**
+         * 本地缓冲总大小上限，超过时丢弃最早的分段
+         */
+        private DataSize maxSize = DataSize.ofGigabytes(1);
+
+        /**
+         * 分段保留时间，超过时丢弃
+         */
+        private Duration retention = Duration.ofDays(7);
+    }
+
+    @Data
+    public static class Partition {
+
+        /**
+         * 是否维护分区；表未分区（如H2、未执行 sql/system-log-partition.sql）时自动跳过
+         */
+        private boolean enabled = true;
+
+        /**
+         * 日志保留时间，整天早于该时间的分区被删除
+         */
+        private Duration retention = Duration.ofDays(30);
+
+        /**
+         * 提前创建的分区天数，维护任务停止这么多天内写入仍落在按天分区中
+         */
+        private Duration premake = Duration.ofDays(7);
+
+        /**
+         * 检查间隔
+         */
+        private Duration checkInterval = Duration.ofHours(1);
+    }
+
+    /**
+     * 队列已满时的处理方式
+     */
+    public enum OverflowPolicy {
+        /** 丢弃最早入队的事件，保留最新的 */
+        DROP_OLDEST,
+        /** 丢弃新事件 */
+        DROP_NEWEST,
+        /** 写入本地缓冲，队列发完后再补发 */
+        SPILL
+    }
+}
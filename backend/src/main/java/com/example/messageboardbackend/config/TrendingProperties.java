@@ -0,0 +1,40 @@
+package com.example.messageboardbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 近期趋势配置类
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Component
+@ConfigurationProperties(prefix = "app.trending")
+@Data
+public class TrendingProperties {
+
+    /**
+     * 支持的统计窗口（按分钟取整），最长的窗口决定每条留言保留的分钟桶数
+     */
+    private List<Duration> windows = List.of(Duration.ofMinutes(15), Duration.ofHours(1));
+
+    /**
+     * 每个窗口保留的排行条数
+     */
+    private int topK = 50;
+
+    /**
+     * 排行重算间隔，也是趋势结果的最长延迟
+     */
+    private Duration refreshInterval = Duration.ofSeconds(30);
+
+    /**
+     * 最多同时统计的留言数，超出后新留言的点赞不计入趋势，直到空闲留言被移除
+     */
+    private int maxMessages = 100_000;
+}
@@ -1,12 +1,17 @@
 package com.example.messageboardbackend.controller;
 
 import com.example.messageboardbackend.dto.ApiResponse;
+import com.example.messageboardbackend.dto.CursorPage;
 import com.example.messageboardbackend.dto.MessageDto;
+import com.example.messageboardbackend.service.MessageLikeService;
+import com.example.messageboardbackend.service.MessageSearchService;
 import com.example.messageboardbackend.service.MessageService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -30,6 +35,7 @@ import java.util.List;
 public class MessageController {
 
     private final MessageService messageService;
+    private final MessageLikeService messageLikeService;
 
     /**
      * 获取留言列表
@@ -54,7 +60,7 @@ public class MessageController {
             }
             
             Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-            Page<MessageDto> messages = messageService.getMessages(pageable);
+            Page<MessageDto> messages = withLikeStatus(messageService.getMessages(pageable));
             
             log.debug("成功获取留言列表: 共{}条", messages.getTotalElements());
             return ResponseEntity.ok(ApiResponse.success(messages));
@@ -64,6 +70,27 @@ public class MessageController {
         }
     }
 
+    /**
+     * 游标分页获取留言列表（不执行COUNT查询，适合无限滚动）
+     * 
+     * @param before 上一页返回的nextCursor，为空表示第一页
+     * @param limit 每页大小
+     * @return 留言列表及下一页游标
+     */
+    @GetMapping("/feed")
+    public ResponseEntity<ApiResponse<CursorPage<MessageDto>>> getMessageFeed(
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            log.debug("游标获取留言列表请求: before={}, limit={}", before, limit);
+            CursorPage<MessageDto> messages = withLikeStatus(messageService.getMessageFeed(before, limit));
+            return ResponseEntity.ok(ApiResponse.success(messages));
+        } catch (Exception e) {
+            log.error("游标获取留言列表失败: before={}, 错误={}", before, e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error("获取留言列表失败: " + e.getMessage()));
+        }
+    }
+
     /**
      * 根据ID获取留言
      * 
@@ -175,7 +202,7 @@ public class MessageController {
             @RequestParam(defaultValue = "10") int size) {
         try {
             Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-            Page<MessageDto> messages = messageService.getMessagesByUserId(userId, pageable);
+            Page<MessageDto> messages = withLikeStatus(messageService.getMessagesByUserId(userId, pageable));
             return ResponseEntity.ok(ApiResponse.success(messages));
         } catch (Exception e) {
             log.error("获取用户留言列表失败: 用户ID={}, 错误={}", userId, e.getMessage());
@@ -183,10 +210,33 @@ public class MessageController {
         }
     }
 
+    /**
+     * 游标分页获取用户留言列表
+     * 
+     * @param userId 用户ID
+     * @param before 上一页返回的nextCursor，为空表示第一页
+     * @param limit 每页大小
+     * @return 留言列表及下一页游标
+     */
+    @GetMapping("/user/{userId}/feed")
+    public ResponseEntity<ApiResponse<CursorPage<MessageDto>>> getMessageFeedByUserId(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            CursorPage<MessageDto> messages = withLikeStatus(messageService.getMessageFeedByUserId(userId, before, limit));
+            return ResponseEntity.ok(ApiResponse.success(messages));
+        } catch (Exception e) {
+            log.error("游标获取用户留言列表失败: 用户ID={}, 错误={}", userId, e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error("获取用户留言列表失败: " + e.getMessage()));
+        }
+    }
+
     /**
      * 搜索留言
      * 
      * @param content 搜索内容
+     * @param mode 全文搜索模式：natural 按相关度模糊匹配，boolean 支持 + - "" * 运算符
      * @param page 页码
      * @param size 每页大小
      * @return 搜索结果
@@ -194,11 +244,13 @@ public class MessageController {
     @GetMapping("/search")
     public ResponseEntity<ApiResponse<Page<MessageDto>>> searchMessages(
             @RequestParam String content,
+            @RequestParam(defaultValue = "natural") String mode,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         try {
             Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-            Page<MessageDto> messages = messageService.searchMessagesByContent(content, pageable);
+            Page<MessageDto> messages = withLikeStatus(messageService.searchMessagesByContent(
+                    content, MessageSearchService.SearchMode.of(mode), pageable));
             return ResponseEntity.ok(ApiResponse.success(messages));
         } catch (Exception e) {
             log.error("搜索留言失败: 内容={}, 错误={}", content, e.getMessage());
@@ -221,7 +273,7 @@ public class MessageController {
             log.debug("获取热门留言列表请求: page={}, size={}", page, size);
             
             Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "likeCount", "createdAt"));
-            Page<MessageDto> hotMessages = messageService.getHotMessages(pageable);
+            Page<MessageDto> hotMessages = withLikeStatus(messageService.getHotMessages(pageable));
             
             log.debug("成功获取热门留言列表: 共{}条", hotMessages.getTotalElements());
             return ResponseEntity.ok(ApiResponse.success(hotMessages));
@@ -231,6 +283,27 @@ public class MessageController {
         }
     }
     
+    /**
+     * 游标分页获取热门留言列表
+     * 
+     * @param before 上一页返回的nextCursor，为空表示第一页
+     * @param limit 每页大小
+     * @return 热门留言列表及下一页游标
+     */
+    @GetMapping("/hot/feed")
+    public ResponseEntity<ApiResponse<CursorPage<MessageDto>>> getHotMessageFeed(
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            log.debug("游标获取热门留言列表请求: before={}, limit={}", before, limit);
+            CursorPage<MessageDto> hotMessages = withLikeStatus(messageService.getHotMessageFeed(before, limit));
+            return ResponseEntity.ok(ApiResponse.success(hotMessages));
+        } catch (Exception e) {
+            log.error("游标获取热门留言列表失败: before={}, 错误={}", before, e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error("获取热门留言列表失败: " + e.getMessage()));
+        }
+    }
+    
     /**
      * 获取所有热门留言
      * 
@@ -241,7 +314,7 @@ public class MessageController {
         try {
             log.debug("获取所有热门留言请求");
             
-            List<MessageDto> hotMessages = messageService.getAllHotMessages();
+            List<MessageDto> hotMessages = withLikeStatus(messageService.getAllHotMessages());
             
             log.debug("成功获取所有热门留言: 共{}条", hotMessages.size());
             return ResponseEntity.ok(ApiResponse.success(hotMessages));
@@ -250,4 +323,71 @@ public class MessageController {
             return ResponseEntity.badRequest().body(ApiResponse.error("获取所有热门留言失败: " + e.getMessage()));
         }
     }
+    
+    /**
+     * 获取近期趋势留言
+     * 
+     * @param window 统计窗口，如 15m、1h
+     * @param limit 条数
+     * @return 窗口内净点赞数最多的留言
+     */
+    @GetMapping("/trending")
+    public ResponseEntity<ApiResponse<List<MessageDto>>> getTrendingMessages(
+            @RequestParam(defaultValue = "15m") String window,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            log.debug("获取趋势留言请求: window={}, limit={}", window, limit);
+            
+            List<MessageDto> trending = withLikeStatus(
+                    messageService.getTrendingMessages(DurationStyle.detectAndParse(window), limit));
+            
+            log.debug("成功获取趋势留言: 共{}条", trending.size());
+            return ResponseEntity.ok(ApiResponse.success(trending));
+        } catch (Exception e) {
+            log.error("获取趋势留言失败: window={}, 错误={}", window, e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error("获取趋势留言失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 获取当前认证用户名
+     * 
+     * @return 用户名，匿名访问时返回null
+     */
+    private String currentUsername() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || "anonymousUser".equals(auth.getName())) {
+            return null;
+        }
+        return auth.getName();
+    }
+
+    /**
+     * 为整页留言填充当前用户的点赞状态（一次批量查询），匿名访问时原样返回
+     * 
+     * @param page 留言分页结果
+     * @return 填充了isLiked的分页结果
+     */
+    private Page<MessageDto> withLikeStatus(Page<MessageDto> page) {
+        String username = currentUsername();
+        if (username == null) {
+            return page;
+        }
+        return new PageImpl<>(messageLikeService.fillLikeStatus(page.getContent(), username),
+                page.getPageable(), page.getTotalElements());
+    }
+
+    private CursorPage<MessageDto> withLikeStatus(CursorPage<MessageDto> page) {
+        String username = currentUsername();
+        if (username == null) {
+            return page;
+        }
+        return new CursorPage<>(messageLikeService.fillLikeStatus(page.getContent(), username),
+                page.getNextCursor(), page.getHasNext(), page.getSize());
+    }
+
+    private List<MessageDto> withLikeStatus(List<MessageDto> messages) {
+        String username = currentUsername();
+        return username == null ? messages : messageLikeService.fillLikeStatus(messages, username);
+    }
 }
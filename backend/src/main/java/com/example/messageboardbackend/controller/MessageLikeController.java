@@ -1,6 +1,7 @@
 package com.example.messageboardbackend.controller;
 
 import com.example.messageboardbackend.dto.ApiResponse;
+import com.example.messageboardbackend.dto.LikeResultDto;
 import com.example.messageboardbackend.service.MessageLikeService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -9,6 +10,9 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * 留言点赞控制器
  * 
@@ -24,6 +28,11 @@ public class MessageLikeController {
 
     private final MessageLikeService messageLikeService;
 
+    /**
+     * 批量查询点赞状态单次最多的留言数
+     */
+    private static final int MAX_STATUS_BATCH = 100;
+
     /**
      * 用户点赞留言
      * 
@@ -31,7 +40,7 @@ public class MessageLikeController {
      * @return 操作结果
      */
     @PostMapping("/{messageId}/like")
-    public ResponseEntity<ApiResponse<String>> likeMessage(@PathVariable Long messageId) {
+    public ResponseEntity<ApiResponse<LikeResultDto>> likeMessage(@PathVariable Long messageId) {
         try {
             log.debug("用户点赞留言请求: messageId={}", messageId);
             
@@ -45,7 +54,7 @@ public class MessageLikeController {
             String username = auth.getName();
             log.debug("认证用户点赞留言: username={}, messageId={}", username, messageId);
             
-            ApiResponse<String> result = messageLikeService.likeMessage(messageId, username);
+            ApiResponse<LikeResultDto> result = messageLikeService.likeMessage(messageId, username);
             
             if (Boolean.TRUE.equals(result.getSuccess())) {
                 log.debug("用户 {} 点赞留言 {} 成功", username, messageId);
@@ -67,7 +76,7 @@ public class MessageLikeController {
      * @return 操作结果
      */
     @DeleteMapping("/{messageId}/like")
-    public ResponseEntity<ApiResponse<String>> unlikeMessage(@PathVariable Long messageId) {
+    public ResponseEntity<ApiResponse<LikeResultDto>> unlikeMessage(@PathVariable Long messageId) {
         try {
             log.debug("用户取消点赞请求: messageId={}", messageId);
             
@@ -81,7 +90,7 @@ public class MessageLikeController {
             String username = auth.getName();
             log.debug("认证用户取消点赞: username={}, messageId={}", username, messageId);
             
-            ApiResponse<String> result = messageLikeService.unlikeMessage(messageId, username);
+            ApiResponse<LikeResultDto> result = messageLikeService.unlikeMessage(messageId, username);
             
             if (Boolean.TRUE.equals(result.getSuccess())) {
                 log.debug("用户 {} 取消点赞留言 {} 成功", username, messageId);
@@ -127,6 +136,34 @@ public class MessageLikeController {
         }
     }
 
+    /**
+     * 批量检查用户对多条留言的点赞状态，替代逐条调用 /{messageId}/like/status
+     * 
+     * @param messageIds 留言ID列表
+     * @return 留言ID -> 是否已点赞
+     */
+    @PostMapping("/like/status")
+    public ResponseEntity<ApiResponse<Map<Long, Boolean>>> getLikeStatuses(@RequestBody List<Long> messageIds) {
+        try {
+            log.debug("批量获取点赞状态请求: 数量={}", messageIds.size());
+            
+            if (messageIds.size() > MAX_STATUS_BATCH) {
+                return ResponseEntity.badRequest().body(ApiResponse.error("单次最多查询" + MAX_STATUS_BATCH + "条留言的点赞状态"));
+            }
+            
+            // 匿名用户全部视为未点赞
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            String username = auth == null || !auth.isAuthenticated() || "anonymousUser".equals(auth.getName())
+                    ? null : auth.getName();
+            
+            Map<Long, Boolean> statuses = messageLikeService.getLikeStatuses(messageIds, username);
+            return ResponseEntity.ok(ApiResponse.success(statuses));
+        } catch (Exception e) {
+            log.error("批量获取点赞状态失败: 错误: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("获取点赞状态失败: " + e.getMessage()));
+        }
+    }
+
     /**
      * 获取留言的点赞数量
      * 
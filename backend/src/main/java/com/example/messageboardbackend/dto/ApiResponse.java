@@ -43,6 +43,18 @@ public class ApiResponse<T> {
         return new ApiResponse<>(true, message, null, LocalDateTime.now());
     }
     
+    /**
+     * 成功响应（带消息和数据）
+     * 
+     * @param message 响应消息
+     * @param data 响应数据
+     * @param <T> 数据类型
+     * @return API响应
+     */
+    public static <T> ApiResponse<T> success(String message, T data) {
+        return new ApiResponse<>(true, message, data, LocalDateTime.now());
+    }
+    
     /**
      * 失败响应
      * 
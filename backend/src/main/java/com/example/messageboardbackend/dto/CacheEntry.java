@@ -0,0 +1,60 @@
+package com.example.messageboardbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 带软过期时间的缓存条目
+ *
+ * Redis key本身按硬过期时间（TTL）淘汰；超过软过期时间后条目仍可返回，
+ * 由后台线程刷新。临近软过期时按XFetch算法以一定概率提前刷新，
+ * 重建耗时越长、越接近过期，提前刷新的概率越大，避免所有请求在同一时刻发现过期。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheEntry {
+
+    private Object value;
+
+    /**
+     * 软过期时间（毫秒时间戳）
+     */
+    private long softExpireAt;
+
+    /**
+     * 上一次重建耗时（毫秒），XFetch用来估计需要提前多久刷新
+     */
+    private long computeMillis;
+
+    /**
+     * 是否已超过软过期时间
+     *
+     * @param now 当前时间（毫秒）
+     * @return 是否需要刷新
+     */
+    public boolean isSoftExpired(long now) {
+        return now >= softExpireAt;
+    }
+
+    /**
+     * XFetch：now - computeMillis * beta * ln(rand) >= softExpireAt 时提前刷新
+     *
+     * @param now 当前时间（毫秒）
+     * @param beta 提前刷新系数，越大越积极，0表示关闭
+     * @return 是否提前刷新
+     */
+    public boolean shouldRefreshEarly(long now, double beta) {
+        if (beta <= 0 || computeMillis <= 0) {
+            return false;
+        }
+        double random = ThreadLocalRandom.current().nextDouble();
+        return now - computeMillis * beta * Math.log(random) >= softExpireAt;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.messageboardbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 缓存中的分页数据
+ *
+ * PageImpl 无法直接反序列化，这里只保存重建分页对象所需的内容和总数。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CachedPage {
+
+    private List<MessageDto> content;
+
+    private Long totalElements;
+
+    /**
+     * 从分页结果创建缓存对象
+     *
+     * 内容复制为ArrayList，避免序列化不可变集合的类型信息后无法反序列化
+     *
+     * @param page 分页结果
+     * @return 缓存对象
+     */
+    public static CachedPage from(Page<MessageDto> page) {
+        return new CachedPage(new ArrayList<>(page.getContent()), page.getTotalElements());
+    }
+
+    /**
+     * 按请求的分页参数重建分页结果
+     *
+     * @param pageable 分页参数
+     * @return 分页结果
+     */
+    public Page<MessageDto> toPage(Pageable pageable) {
+        return new PageImpl<>(content, pageable, totalElements);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.messageboardbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标分页结果
+ *
+ * 与 Page 不同，不返回总数，也就不需要额外的 COUNT 查询。
+ * 客户端把 nextCursor 原样作为下一次请求的 before 参数即可。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> content;
+
+    /**
+     * 下一页游标，没有更多数据时为null
+     */
+    private String nextCursor;
+
+    private Boolean hasNext;
+
+    private Integer size;
+}
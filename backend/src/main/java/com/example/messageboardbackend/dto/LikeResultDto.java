@@ -0,0 +1,36 @@
+package com.example.messageboardbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 点赞/取消点赞结果
+ *
+ * 重复请求也返回成功，changed 为false表示状态本来就是这样，点赞数未变化。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeResultDto {
+
+    private Long messageId;
+
+    /**
+     * 操作后是否处于点赞状态
+     */
+    private Boolean liked;
+
+    /**
+     * 操作后的点赞数
+     */
+    private Integer likeCount;
+
+    /**
+     * 本次请求是否改变了点赞状态
+     */
+    private Boolean changed;
+}
@@ -0,0 +1,142 @@
+package com.example.messageboardbackend.dto;
+
+import com.example.messageboardbackend.model.SystemLog;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 系统日志事件
+ *
+ * 写入 system-logs Topic 的结构化日志，使用短字段名的紧凑JSON，例如
+ * {"t":"MESSAGE_CREATED","u":12,"m":345,"l":"INFO","ts":1700000000000}；
+ * 空字段不输出，未知字段忽略，新增字段不影响旧版本消费者。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LogEvent {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * 事件类型
+     */
+    @JsonProperty("t")
+    private SystemLog.EventType type;
+
+    /**
+     * 操作用户ID，也是消息key，同一用户的事件落在同一分区、保持顺序
+     */
+    @JsonProperty("u")
+    private Long userId;
+
+    /**
+     * 相关留言ID
+     */
+    @JsonProperty("m")
+    private Long messageId;
+
+    /**
+     * 日志级别
+     */
+    @JsonProperty("l")
+    private SystemLog.LogLevel level;
+
+    /**
+     * 事件发生时间，毫秒时间戳
+     */
+    @JsonProperty("ts")
+    private long timestamp;
+
+    /**
+     * 创建用户发布留言事件
+     *
+     * @param userId 用户ID
+     * @param messageId 留言ID
+     * @return 事件
+     */
+    public static LogEvent messageCreated(Long userId, Long messageId) {
+        return new LogEvent(SystemLog.EventType.MESSAGE_CREATED, userId, messageId,
+                SystemLog.LogLevel.INFO, System.currentTimeMillis());
+    }
+
+    /**
+     * 创建用户点赞/取消点赞事件
+     *
+     * @param userId 用户ID
+     * @param messageId 留言ID
+     * @param liked 是否点赞
+     * @return 事件
+     */
+    public static LogEvent messageLiked(Long userId, Long messageId, boolean liked) {
+        return new LogEvent(liked ? SystemLog.EventType.MESSAGE_LIKED : SystemLog.EventType.MESSAGE_UNLIKED,
+                userId, messageId, SystemLog.LogLevel.INFO, System.currentTimeMillis());
+    }
+
+    /**
+     * 消息key：用户ID，没有用户时为空（由生产者轮询分区）
+     *
+     * @return key
+     */
+    @JsonIgnore
+    public String getKey() {
+        return userId == null ? null : String.valueOf(userId);
+    }
+
+    /**
+     * 日志内容的文字描述，只用于人工查看
+     *
+     * @return 描述
+     */
+    @JsonIgnore
+    public String getDescription() {
+        return switch (type) {
+            case MESSAGE_CREATED -> String.format("用户 [%d] 发布了留言 [%d]", userId, messageId);
+            case MESSAGE_LIKED -> String.format("用户 [%d] 点赞了留言 [%d]", userId, messageId);
+            case MESSAGE_UNLIKED -> String.format("用户 [%d] 取消点赞留言 [%d]", userId, messageId);
+        };
+    }
+
+    /**
+     * 序列化为紧凑JSON
+     *
+     * @return JSON
+     */
+    public String toJson() {
+        try {
+            return MAPPER.writeValueAsString(this);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("日志事件序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 从JSON解析，不是结构化事件时返回null
+     *
+     * @param json JSON
+     * @return 事件
+     */
+    public static LogEvent fromJson(String json) {
+        if (json == null || json.isEmpty() || json.charAt(0) != '{') {
+            return null;
+        }
+        try {
+            LogEvent event = MAPPER.readValue(json, LogEvent.class);
+            return event.getType() == null ? null : event;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+}
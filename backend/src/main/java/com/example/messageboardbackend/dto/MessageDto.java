@@ -1,5 +1,6 @@
 package com.example.messageboardbackend.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -8,6 +9,7 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 留言数据传输对象
@@ -36,4 +38,27 @@ public class MessageDto {
     private Integer likeCount = 0; // 点赞数量
     private Boolean isHot = false; // 是否为热门留言
     private Boolean isLiked = false; // 当前用户是否已点赞（前端使用）
+    
+    /**
+     * 搜索命中片段在内容中的字符偏移 [起, 止)，只有进程内索引的搜索结果带有
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<int[]> highlights;
+    
+    /**
+     * JPQL构造器表达式使用，一条SQL同时取出留言和用户名
+     */
+    public MessageDto(Long id, Long userId, String content, String username,
+                      LocalDateTime createdAt, LocalDateTime updatedAt, Boolean deleted,
+                      Integer likeCount, Boolean isHot) {
+        this.id = id;
+        this.userId = userId;
+        this.content = content;
+        this.username = username;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.deleted = deleted;
+        this.likeCount = likeCount;
+        this.isHot = isHot;
+    }
 }
@@ -32,6 +32,14 @@ import java.time.LocalDateTime;
     @Index(name = "idx_message_user_deleted_created", 
            columnList = "user_id, deleted, created_at"),
     
+    // 复合索引：游标分页的留言列表（删除状态 + 创建时间 + ID），避免 OFFSET 扫描
+    @Index(name = "idx_message_deleted_created_id", 
+           columnList = "deleted, created_at, id"),
+    
+    // 复合索引：游标分页的热门列表（删除状态 + 点赞数 + 创建时间 + ID）
+    @Index(name = "idx_message_deleted_like_created_id", 
+           columnList = "deleted, like_count, created_at, id"),
+    
     // 内容搜索索引：优化全文搜索性能（可选，如果使用MySQL全文索引）
     @Index(name = "idx_message_content", columnList = "content(100)")
 })
@@ -42,6 +50,11 @@ import java.time.LocalDateTime;
 @Where(clause = "deleted = false")
 public class Message {
 
+    /**
+     * 成为热门留言所需点赞数的默认值，实际使用 app.hot.min-likes
+     */
+    public static final int HOT_LIKE_THRESHOLD = 5;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -75,24 +88,6 @@ public class Message {
         return Boolean.TRUE.equals(this.deleted);
     }
     
-    public void incrementLikeCount() {
-        this.likeCount = (this.likeCount == null ? 0 : this.likeCount) + 1;
-        this.updatedAt = LocalDateTime.now();
-        // 检查是否成为热门留言
-        if (this.likeCount >= 5) {
-            this.isHot = true;
-        }
-    }
-    
-    public void decrementLikeCount() {
-        this.likeCount = Math.max(0, (this.likeCount == null ? 0 : this.likeCount) - 1);
-        this.updatedAt = LocalDateTime.now();
-        // 如果点赞数少于5，取消热门状态
-        if (this.likeCount < 5) {
-            this.isHot = false;
-        }
-    }
-    
     public boolean isHotMessage() {
         return Boolean.TRUE.equals(this.isHot);
     }
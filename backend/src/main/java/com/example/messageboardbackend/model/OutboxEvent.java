@@ -0,0 +1,52 @@
+package com.example.messageboardbackend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 发件箱事件实体
+ * 
+ * 与留言、点赞的修改在同一个事务中写入，提交后由 OutboxRelay 按ID顺序发送到Kafka并删除。
+ * 
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Entity
+@Table(name = "outbox_event")
+@Data
+@NoArgsConstructor
+public class OutboxEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    /**
+     * 目标Topic
+     */
+    @Column(nullable = false, length = 128)
+    private String topic;
+    
+    /**
+     * 消息key，为空时由生产者轮询分区
+     */
+    @Column(name = "event_key", length = 128)
+    private String eventKey;
+    
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    public OutboxEvent(String topic, String eventKey, String payload) {
+        this.topic = topic;
+        this.eventKey = eventKey;
+        this.payload = payload;
+    }
+}
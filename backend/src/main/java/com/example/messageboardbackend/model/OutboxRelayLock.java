@@ -0,0 +1,25 @@
+package com.example.messageboardbackend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 发件箱转发锁实体
+ * 
+ * 只有一行（id = 1）。OutboxRelay 每批事件的事务先用 FOR UPDATE SKIP LOCKED 锁住这一行，
+ * 取不到锁的节点本轮不转发：同一时间只有一个节点在发送，同一key的事件按写入顺序到达Kafka。
+ * 锁随事务提交、回滚或连接断开释放，不依赖各节点的时钟。
+ * 
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Entity
+@Table(name = "outbox_relay_lock")
+@Data
+@NoArgsConstructor
+public class OutboxRelayLock {
+    
+    @Id
+    private Integer id;
+}
@@ -15,7 +15,15 @@ import java.time.LocalDateTime;
  * @version 1.0.0
  */
 @Entity
-@Table(name = "system_log")
+@Table(name = "system_log", indexes = {
+    // Kafka分区 + 位点唯一：重平衡后重复投递的记录由 INSERT IGNORE 跳过；
+    // 表按 created_at 分区，唯一键必须包含分区列，created_at 取自事件时间，重复投递时不变
+    @Index(name = "uk_system_log_kafka_offset", columnList = "kafka_partition, kafka_offset, created_at", unique = true),
+    // 按事件类型、用户、留言统计和查询，不解析日志内容
+    @Index(name = "idx_system_log_type_time", columnList = "event_type, created_at"),
+    @Index(name = "idx_system_log_user_time", columnList = "user_id, created_at"),
+    @Index(name = "idx_system_log_message", columnList = "message_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -36,10 +44,48 @@ public class SystemLog {
     @CreationTimestamp
     private LocalDateTime createdAt;
     
+    /**
+     * 事件类型，非结构化的文本日志为空
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", length = 32)
+    private EventType eventType;
+    
+    /**
+     * 操作用户ID
+     */
+    @Column(name = "user_id")
+    private Long userId;
+    
+    /**
+     * 相关留言ID
+     */
+    @Column(name = "message_id")
+    private Long messageId;
+    
+    /**
+     * 来源Kafka分区，不经过Kafka写入的日志为空
+     */
+    @Column(name = "kafka_partition")
+    private Integer kafkaPartition;
+    
+    /**
+     * 来源Kafka位点，不经过Kafka写入的日志为空
+     */
+    @Column(name = "kafka_offset")
+    private Long kafkaOffset;
+    
     /**
      * 日志级别枚举
      */
     public enum LogLevel {
         DEBUG, INFO, WARN, ERROR
     }
+    
+    /**
+     * 事件类型枚举
+     */
+    public enum EventType {
+        MESSAGE_CREATED, MESSAGE_LIKED, MESSAGE_UNLIKED
+    }
 }
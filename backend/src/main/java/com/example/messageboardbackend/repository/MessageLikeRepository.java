@@ -2,10 +2,12 @@ package com.example.messageboardbackend.repository;
 
 import com.example.messageboardbackend.model.MessageLike;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -55,11 +57,64 @@ public interface MessageLikeRepository extends JpaRepository<MessageLike, Long>
     List<MessageLike> findByMessageId(@Param("messageId") Long messageId);
     
     /**
-     * 根据用户ID获取用户的所有点赞记录
+     * 根据用户ID获取用户点赞过的留言ID（只取ID，不加载点赞实体）
      * 
      * @param userId 用户ID
-     * @return 点赞记录列表
+     * @return 留言ID列表
+     */
+    @Query("SELECT ml.message.id FROM MessageLike ml WHERE ml.user.id = :userId AND ml.deleted = false")
+    List<Long> findLikedMessageIdsByUserId(@Param("userId") Long userId);
+    
+    /**
+     * 批量查询用户已点赞的留言ID（按用户名关联，一条IN查询完成整页判断）
+     * 
+     * @param username 用户名
+     * @param messageIds 留言ID集合
+     * @return 其中已点赞的留言ID
+     */
+    @Query("SELECT ml.message.id FROM MessageLike ml " +
+           "WHERE ml.user.username = :username AND ml.message.id IN :messageIds AND ml.deleted = false")
+    List<Long> findLikedMessageIds(@Param("username") String username,
+                                   @Param("messageIds") Collection<Long> messageIds);
+    
+    /**
+     * 恢复已取消的点赞：只有当前处于取消状态时才更新，重复点赞不影响任何行
+     * 
+     * 原生SQL：实体上的 @Where 会过滤掉软删除的行。
+     * 
+     * @param messageId 留言ID
+     * @param userId 用户ID
+     * @return 状态发生变化的行数（0或1）
+     */
+    @Modifying
+    @Query(value = "UPDATE message_like SET deleted = FALSE " +
+                   "WHERE message_id = :messageId AND user_id = :userId AND deleted = TRUE",
+           nativeQuery = true)
+    int restoreLike(@Param("messageId") Long messageId, @Param("userId") Long userId);
+    
+    /**
+     * 首次点赞插入记录，(message_id, user_id) 已存在时忽略
+     * 
+     * @param messageId 留言ID
+     * @param userId 用户ID
+     * @return 插入的行数（0或1）
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO message_like (message_id, user_id, created_at, deleted) " +
+                   "VALUES (:messageId, :userId, CURRENT_TIMESTAMP, FALSE)",
+           nativeQuery = true)
+    int insertLikeIgnore(@Param("messageId") Long messageId, @Param("userId") Long userId);
+    
+    /**
+     * 取消点赞：只有当前处于点赞状态时才软删除，重复取消不影响任何行
+     * 
+     * @param messageId 留言ID
+     * @param userId 用户ID
+     * @return 状态发生变化的行数（0或1）
      */
-    @Query("SELECT ml FROM MessageLike ml WHERE ml.user.id = :userId AND ml.deleted = false")
-    List<MessageLike> findByUserId(@Param("userId") Long userId);
+    @Modifying
+    @Query(value = "UPDATE message_like SET deleted = TRUE " +
+                   "WHERE message_id = :messageId AND user_id = :userId AND deleted = FALSE",
+           nativeQuery = true)
+    int cancelLike(@Param("messageId") Long messageId, @Param("userId") Long userId);
 }
@@ -1,15 +1,20 @@
 package com.example.messageboardbackend.repository;
 
+import com.example.messageboardbackend.dto.MessageDto;
 import com.example.messageboardbackend.model.Message;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * 留言数据访问接口
@@ -20,6 +25,14 @@ import java.util.List;
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
     
+    /**
+     * 留言DTO投影查询的公共部分：构造器表达式 + 关联用户，一条SQL取出列表所需的全部字段，
+     * 避免逐条触发懒加载的用户查询（N+1）
+     */
+    String DTO_SELECT = "SELECT new com.example.messageboardbackend.dto.MessageDto(" +
+            "m.id, u.id, m.content, u.username, m.createdAt, m.updatedAt, m.deleted, m.likeCount, m.isHot) " +
+            "FROM Message m JOIN m.user u ";
+    
     /**
      * 查找所有未删除的留言（分页）
      * 
@@ -76,6 +89,13 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
      */
     long countByUserIdAndDeletedFalse(Long userId);
     
+    /**
+     * 统计未删除的留言数量
+     * 
+     * @return 留言数量
+     */
+    long countByDeletedFalse();
+    
     /**
      * 查找最新的留言
      * 
@@ -96,17 +116,283 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     /**
      * 查找热门留言（按点赞数排序）
      * 
+     * @param minLikes 热门留言的最少点赞数
      * @param pageable 分页参数
      * @return 热门留言分页结果
      */
-    @Query("SELECT m FROM Message m WHERE m.deleted = false AND m.likeCount >= 5 ORDER BY m.likeCount DESC, m.createdAt DESC")
-    Page<Message> findHotMessagesOrderByLikeCount(Pageable pageable);
+    @Query("SELECT m FROM Message m WHERE m.deleted = false AND m.likeCount >= :minLikes ORDER BY m.likeCount DESC, m.createdAt DESC")
+    Page<Message> findHotMessagesOrderByLikeCount(@Param("minLikes") int minLikes, Pageable pageable);
     
     /**
      * 查找所有热门留言
      * 
+     * @param minLikes 热门留言的最少点赞数
      * @return 热门留言列表
      */
-    @Query("SELECT m FROM Message m WHERE m.deleted = false AND m.likeCount >= 5 ORDER BY m.likeCount DESC, m.createdAt DESC")
-    List<Message> findAllHotMessages();
+    @Query("SELECT m FROM Message m WHERE m.deleted = false AND m.likeCount >= :minLikes ORDER BY m.likeCount DESC, m.createdAt DESC")
+    List<Message> findAllHotMessages(@Param("minLikes") int minLikes);
+    
+    /**
+     * 游标分页：留言列表第一页
+     * 
+     * 返回Slice，只多取一条判断是否有下一页，不执行COUNT查询
+     * 
+     * @param pageable 只使用其中的页大小
+     * @return 留言DTO切片
+     */
+    @Query(DTO_SELECT + "WHERE m.deleted = false ORDER BY m.createdAt DESC, m.id DESC")
+    Slice<MessageDto> findFeed(Pageable pageable);
+    
+    /**
+     * 游标分页：查找游标位置之后的留言（走 deleted, created_at, id 索引）
+     * 
+     * @param createdAt 游标中的创建时间
+     * @param id 游标中的留言ID
+     * @param pageable 只使用其中的页大小
+     * @return 留言DTO切片
+     */
+    @Query(DTO_SELECT + "WHERE m.deleted = false " +
+           "AND (m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    Slice<MessageDto> findFeedBefore(@Param("createdAt") LocalDateTime createdAt,
+                                  @Param("id") Long id,
+                                  Pageable pageable);
+    
+    /**
+     * 游标分页：用户留言列表第一页
+     * 
+     * @param userId 用户ID
+     * @param pageable 只使用其中的页大小
+     * @return 留言DTO切片
+     */
+    @Query(DTO_SELECT + "WHERE u.id = :userId AND m.deleted = false ORDER BY m.createdAt DESC, m.id DESC")
+    Slice<MessageDto> findUserFeed(@Param("userId") Long userId, Pageable pageable);
+    
+    /**
+     * 游标分页：查找用户在游标位置之后的留言（走 user_id, deleted, created_at 索引）
+     * 
+     * @param userId 用户ID
+     * @param createdAt 游标中的创建时间
+     * @param id 游标中的留言ID
+     * @param pageable 只使用其中的页大小
+     * @return 留言DTO切片
+     */
+    @Query(DTO_SELECT + "WHERE u.id = :userId AND m.deleted = false " +
+           "AND (m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    Slice<MessageDto> findUserFeedBefore(@Param("userId") Long userId,
+                                      @Param("createdAt") LocalDateTime createdAt,
+                                      @Param("id") Long id,
+                                      Pageable pageable);
+    
+    /**
+     * 游标分页：热门留言第一页
+     * 
+     * @param minLikes 热门留言的最少点赞数
+     * @param pageable 只使用其中的页大小
+     * @return 热门留言DTO切片
+     */
+    @Query(DTO_SELECT + "WHERE m.deleted = false AND m.likeCount >= :minLikes " +
+           "ORDER BY m.likeCount DESC, m.createdAt DESC, m.id DESC")
+    Slice<MessageDto> findHotFeed(@Param("minLikes") int minLikes, Pageable pageable);
+    
+    /**
+     * 游标分页：查找游标位置之后的热门留言（走 deleted, like_count, created_at, id 索引）
+     * 
+     * @param minLikes 热门留言的最少点赞数
+     * @param likeCount 游标中的点赞数
+     * @param createdAt 游标中的创建时间
+     * @param id 游标中的留言ID
+     * @param pageable 只使用其中的页大小
+     * @return 热门留言DTO切片
+     */
+    @Query(DTO_SELECT + "WHERE m.deleted = false AND m.likeCount >= :minLikes " +
+           "AND (m.likeCount < :likeCount OR (m.likeCount = :likeCount AND " +
+           "(m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)))) " +
+           "ORDER BY m.likeCount DESC, m.createdAt DESC, m.id DESC")
+    Slice<MessageDto> findHotFeedBefore(@Param("minLikes") int minLikes,
+                                     @Param("likeCount") Integer likeCount,
+                                     @Param("createdAt") LocalDateTime createdAt,
+                                     @Param("id") Long id,
+                                     Pageable pageable);
+    
+    /**
+     * 根据ID查找留言DTO
+     * 
+     * @param id 留言ID
+     * @return 留言DTO
+     */
+    @Query(DTO_SELECT + "WHERE m.id = :id")
+    Optional<MessageDto> findDtoById(@Param("id") Long id);
+    
+    /**
+     * 按ID批量查找未删除的留言DTO（不保证顺序）
+     * 
+     * @param ids 留言ID集合
+     * @return 留言DTO列表
+     */
+    @Query(DTO_SELECT + "WHERE m.id IN :ids AND m.deleted = false")
+    List<MessageDto> findDtosByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * 查找所有未删除的留言DTO（分页）
+     * 
+     * @param pageable 分页参数
+     * @return 留言DTO分页结果
+     */
+    @Query(value = DTO_SELECT + "WHERE m.deleted = false",
+           countQuery = "SELECT COUNT(m) FROM Message m WHERE m.deleted = false")
+    Page<MessageDto> findDtos(Pageable pageable);
+    
+    /**
+     * 根据用户ID查找留言DTO（分页）
+     * 
+     * @param userId 用户ID
+     * @param pageable 分页参数
+     * @return 留言DTO分页结果
+     */
+    @Query(value = DTO_SELECT + "WHERE u.id = :userId AND m.deleted = false",
+           countQuery = "SELECT COUNT(m) FROM Message m WHERE m.user.id = :userId AND m.deleted = false")
+    Page<MessageDto> findDtosByUserId(@Param("userId") Long userId, Pageable pageable);
+    
+    /**
+     * 根据内容模糊查询留言DTO（分页）
+     * 
+     * @param content 内容（模糊匹配）
+     * @param pageable 分页参数
+     * @return 留言DTO分页结果
+     */
+    @Query(value = DTO_SELECT + "WHERE m.content LIKE %:content% AND m.deleted = false",
+           countQuery = "SELECT COUNT(m) FROM Message m WHERE m.content LIKE %:content% AND m.deleted = false")
+    Page<MessageDto> findDtosByContentContaining(@Param("content") String content, Pageable pageable);
+    
+    /**
+     * 全文搜索留言ID（自然语言模式，按相关度倒序）
+     * 
+     * 依赖 message.content 上的 FULLTEXT 索引（WITH PARSER ngram）；相关度相同时按ID倒序，分页结果稳定。
+     * 
+     * @param query 关键词
+     * @param pageable 分页参数（不带排序）
+     * @return 留言ID分页结果
+     */
+    @Query(value = "SELECT m.id FROM message m " +
+                   "WHERE MATCH(m.content) AGAINST(:query IN NATURAL LANGUAGE MODE) AND m.deleted = FALSE " +
+                   "ORDER BY MATCH(m.content) AGAINST(:query IN NATURAL LANGUAGE MODE) DESC, m.id DESC",
+           countQuery = "SELECT COUNT(*) FROM message m " +
+                        "WHERE MATCH(m.content) AGAINST(:query IN NATURAL LANGUAGE MODE) AND m.deleted = FALSE",
+           nativeQuery = true)
+    Page<Long> searchIdsInNaturalMode(@Param("query") String query, Pageable pageable);
+    
+    /**
+     * 全文搜索留言ID（布尔模式，按相关度倒序）
+     * 
+     * @param query 布尔模式查询串，支持 + - "" * 等运算符
+     * @param pageable 分页参数（不带排序）
+     * @return 留言ID分页结果
+     */
+    @Query(value = "SELECT m.id FROM message m " +
+                   "WHERE MATCH(m.content) AGAINST(:query IN BOOLEAN MODE) AND m.deleted = FALSE " +
+                   "ORDER BY MATCH(m.content) AGAINST(:query IN BOOLEAN MODE) DESC, m.id DESC",
+           countQuery = "SELECT COUNT(*) FROM message m " +
+                        "WHERE MATCH(m.content) AGAINST(:query IN BOOLEAN MODE) AND m.deleted = FALSE",
+           nativeQuery = true)
+    Page<Long> searchIdsInBooleanMode(@Param("query") String query, Pageable pageable);
+    
+    /**
+     * 查找热门留言DTO（按点赞数排序，分页）
+     * 
+     * @param minLikes 热门留言的最少点赞数
+     * @param pageable 分页参数
+     * @return 热门留言DTO分页结果
+     */
+    @Query(value = DTO_SELECT + "WHERE m.deleted = false AND m.likeCount >= :minLikes ORDER BY m.likeCount DESC, m.createdAt DESC",
+           countQuery = "SELECT COUNT(m) FROM Message m WHERE m.deleted = false AND m.likeCount >= :minLikes")
+    Page<MessageDto> findHotDtos(@Param("minLikes") int minLikes, Pageable pageable);
+    
+    /**
+     * 查找所有热门留言DTO
+     * 
+     * @param minLikes 热门留言的最少点赞数
+     * @return 热门留言DTO列表
+     */
+    @Query(DTO_SELECT + "WHERE m.deleted = false AND m.likeCount >= :minLikes ORDER BY m.likeCount DESC, m.createdAt DESC")
+    List<MessageDto> findAllHotDtos(@Param("minLikes") int minLikes);
+    
+    /**
+     * 检查留言是否存在且未删除
+     * 
+     * @param id 留言ID
+     * @return 是否存在
+     */
+    boolean existsByIdAndDeletedFalse(Long id);
+    
+    /**
+     * 读取未删除留言的点赞数
+     * 
+     * @param id 留言ID
+     * @return 点赞数，留言不存在或已删除时为空
+     */
+    @Query("SELECT m.likeCount FROM Message m WHERE m.id = :id AND m.deleted = false")
+    Optional<Integer> findLikeCountById(@Param("id") Long id);
+    
+    /**
+     * 锁定留言行并读取点赞数（SELECT ... FOR UPDATE）
+     * 
+     * 点赞/取消点赞先用这条语句拿到留言行的排他锁，再修改点赞记录和点赞数，加锁顺序与之前先更新计数一致。
+     * 
+     * @param id 留言ID
+     * @return 点赞数，留言不存在或已删除时为空
+     */
+    @Query(value = "SELECT like_count FROM message WHERE id = :id AND deleted = FALSE FOR UPDATE", nativeQuery = true)
+    Optional<Integer> lockLikeCountById(@Param("id") Long id);
+    
+    /**
+     * 原子增加一个点赞，同一条语句内根据新点赞数设置热门标记，不修改更新时间
+     * 
+     * is_hot 写在 like_count 之前：MySQL按从左到右的顺序赋值，后面的表达式会读到前面已更新的列，
+     * 这样两者都基于更新前的点赞数计算，在其他数据库上语义也一致。
+     * updated_at 赋值为自身：MySQL的 ON UPDATE CURRENT_TIMESTAMP 只在该列没有被显式赋值时生效，
+     * 点赞不算编辑留言，不能改变按更新时间的排序和搜索索引的增量同步。
+     * 增量写成字面量而不是参数：参数会按 like_count 的 columnDefinition 生成 cast(? as INT DEFAULT 0)。
+     * 
+     * @param id 留言ID
+     * @param minLikes 热门留言的最少点赞数
+     * @return 更新的行数
+     */
+    @Modifying
+    @Query("UPDATE Message m SET " +
+           "m.isHot = CASE WHEN m.likeCount + 1 >= :minLikes THEN true ELSE false END, " +
+           "m.likeCount = m.likeCount + 1, " +
+           "m.updatedAt = m.updatedAt " +
+           "WHERE m.id = :id")
+    int incrementLikeCount(@Param("id") Long id, @Param("minLikes") int minLikes);
+    
+    /**
+     * 原子减少一个点赞（不小于0），同一条语句内重新计算热门标记，不修改更新时间
+     * 
+     * @param id 留言ID
+     * @param minLikes 热门留言的最少点赞数
+     * @return 更新的行数
+     */
+    @Modifying
+    @Query("UPDATE Message m SET " +
+           "m.isHot = CASE WHEN m.likeCount - 1 >= :minLikes THEN true ELSE false END, " +
+           "m.likeCount = CASE WHEN m.likeCount > 0 THEN m.likeCount - 1 ELSE 0 END, " +
+           "m.updatedAt = m.updatedAt " +
+           "WHERE m.id = :id")
+    int decrementLikeCount(@Param("id") Long id, @Param("minLikes") int minLikes);
+    
+    /**
+     * 软删除未删除的留言
+     * 
+     * 只有把删除标记从false改为true的调用返回1，重复删除（如客户端重试、并发请求）返回0，
+     * 调用方据此只在第一次删除时更新缓存和计数。
+     * 
+     * @param id 留言ID
+     * @return 更新的行数
+     */
+    @Modifying
+    @Query("UPDATE Message m SET m.deleted = true, m.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE m.id = :id AND m.deleted = false")
+    int softDeleteById(@Param("id") Long id);
 }
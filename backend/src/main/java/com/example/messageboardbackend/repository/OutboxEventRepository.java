@@ -0,0 +1,17 @@
+package com.example.messageboardbackend.repository;
+
+import com.example.messageboardbackend.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 发件箱事件数据访问接口
+ * 
+ * 只用于在业务事务中写入；读取和删除由 OutboxRelay 持有转发锁后批量完成。
+ * 
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+}
@@ -4,6 +4,7 @@ import com.example.messageboardbackend.model.SystemLog;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -32,6 +33,8 @@ public interface SystemLogRepository extends JpaRepository<SystemLog, Long> {
     /**
      * 根据创建时间范围查找日志
      * 
+     * system_log 按 created_at 按天分区，只扫描范围内的分区
+     * 
      * @param startTime 开始时间
      * @param endTime 结束时间
      * @param pageable 分页参数
@@ -87,9 +90,13 @@ public interface SystemLogRepository extends JpaRepository<SystemLog, Long> {
     /**
      * 删除指定时间之前的日志
      * 
+     * 逐行删除，数据量大时长时间持有行锁并产生大量undo日志；
+     * 按天分区后过期日志由 SystemLogPartitionMaintainer 删除整个分区，此方法只用于未分区的表
+     * 
      * @param beforeTime 指定时间
      * @return 删除的记录数
      */
+    @Modifying
     @Query("DELETE FROM SystemLog l WHERE l.createdAt < :beforeTime")
     int deleteByCreatedAtBefore(@Param("beforeTime") LocalDateTime beforeTime);
 }
@@ -0,0 +1,292 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.HotRankingProperties;
+import com.example.messageboardbackend.dto.MessageDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热门留言排行
+ *
+ * 按 Reddit 热度公式计算得分：log10(max(点赞数, 1)) + 发布时间(秒) / 衰减周期(秒)。
+ * 得分只在点赞数变化时改变，发布时间越晚基础分越高，旧留言自然下沉，无需定时重算全部得分。
+ * Redis中维护：
+ * <ul>
+ *   <li>hot:rank    有序集合，点赞数达到门槛的留言，分数为热度得分</li>
+ *   <li>hot:created 有序集合，时间窗口内的全部留言，分数为发布时间（秒），用于计算得分和移出过期留言</li>
+ *   <li>hot:likes   哈希，留言ID -> 点赞数</li>
+ * </ul>
+ * 点赞、取消、发布、删除时增量更新；排行未就绪或过期时从数据库重建。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HotRankingService {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final HotRankingProperties hotRankingProperties;
+    private final LikeCountBuffer likeCountBuffer;
+
+    private static final String RANK_KEY = "hot:rank";
+    private static final String CREATED_KEY = "hot:created";
+    private static final String LIKES_KEY = "hot:likes";
+    private static final String READY_KEY = "hot:ready";
+    private static final String REBUILD_LOCK_KEY = "hot:rebuild:lock";
+    private static final String REBUILD_SUFFIX = ":rebuild";
+    private static final long REBUILD_LOCK_SECONDS = 30;
+
+    private static final String LOAD_SQL = "SELECT id, like_count, created_at FROM message " +
+            "WHERE deleted = FALSE AND created_at >= ?";
+
+    /**
+     * 原子地累加点赞数并重算得分，得分公式与 score 方法一致；不在时间窗口内的留言忽略。
+     * KEYS: rank, created, likes；ARGV: 留言ID, 增量, 最少点赞数, 衰减周期(秒)
+     */
+    private static final DefaultRedisScript<Long> LIKE_SCRIPT = new DefaultRedisScript<>(
+            "local created = redis.call('zscore', KEYS[2], ARGV[1]) " +
+            "if not created then return -1 end " +
+            "local likes = redis.call('hincrby', KEYS[3], ARGV[1], ARGV[2]) " +
+            "if likes < 0 then likes = 0 redis.call('hset', KEYS[3], ARGV[1], 0) end " +
+            "if likes >= tonumber(ARGV[3]) then " +
+            "  redis.call('zadd', KEYS[1], math.log10(math.max(likes, 1)) + tonumber(created) / tonumber(ARGV[4]), ARGV[1]) " +
+            "else " +
+            "  redis.call('zrem', KEYS[1], ARGV[1]) " +
+            "end " +
+            "return likes",
+            Long.class);
+
+    /**
+     * 排行是否已构建
+     *
+     * @return 是否就绪
+     */
+    public boolean isReady() {
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.hasKey(READY_KEY));
+        } catch (Exception e) {
+            log.warn("检查热门排行状态失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 排行未就绪时从数据库重建（同一时间只有一个节点执行）
+     *
+     * @return 排行是否可用
+     */
+    public boolean ensureReady() {
+        if (isReady()) {
+            return true;
+        }
+        if (tryLockRebuild()) {
+            rebuild();
+        }
+        return isReady();
+    }
+
+    /**
+     * 按热度从高到低读取一段留言ID
+     *
+     * @param offset 起始位置
+     * @param count 条数，小于0表示读取到末尾
+     * @return 留言ID列表，读取失败时返回null
+     */
+    public List<Long> range(long offset, int count) {
+        try {
+            long end = count < 0 ? -1 : offset + count - 1;
+            Set<String> ids = stringRedisTemplate.opsForZSet().reverseRange(RANK_KEY, offset, end);
+            if (ids == null) {
+                return null;
+            }
+            return ids.stream().map(Long::valueOf).toList();
+        } catch (Exception e) {
+            log.warn("读取热门排行失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 排行中的留言数
+     *
+     * @return 留言数，读取失败时返回-1
+     */
+    public long size() {
+        try {
+            Long size = stringRedisTemplate.opsForZSet().zCard(RANK_KEY);
+            return size == null ? -1 : size;
+        } catch (Exception e) {
+            log.warn("读取热门排行大小失败: {}", e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * 新留言加入时间窗口，点赞数达到门槛后进入排行
+     *
+     * @param dto 新留言
+     */
+    public void onCreated(MessageDto dto) {
+        try {
+            String id = String.valueOf(dto.getId());
+            stringRedisTemplate.opsForZSet().add(CREATED_KEY, id, epochSeconds(dto.getCreatedAt()));
+            stringRedisTemplate.opsForHash().putIfAbsent(LIKES_KEY, id, "0");
+        } catch (Exception e) {
+            log.warn("热门排行添加留言失败: ID={}, 错误={}", dto.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 点赞数变化，重算得分
+     *
+     * @param messageId 留言ID
+     * @param delta 变化量（点赞+1，取消-1）
+     */
+    public void onLikeChanged(Long messageId, int delta) {
+        try {
+            stringRedisTemplate.execute(LIKE_SCRIPT, List.of(RANK_KEY, CREATED_KEY, LIKES_KEY),
+                    String.valueOf(messageId), String.valueOf(delta),
+                    String.valueOf(hotRankingProperties.getMinLikes()),
+                    String.valueOf(hotRankingProperties.getDecay().toSeconds()));
+        } catch (Exception e) {
+            log.warn("热门排行更新得分失败: ID={}, 错误={}", messageId, e.getMessage());
+        }
+    }
+
+    /**
+     * 留言删除，移出排行
+     *
+     * @param messageId 留言ID
+     */
+    public void onDeleted(Long messageId) {
+        try {
+            remove(List.of(String.valueOf(messageId)));
+        } catch (Exception e) {
+            log.warn("热门排行删除留言失败: ID={}, 错误={}", messageId, e.getMessage());
+        }
+    }
+
+    /**
+     * 定时移出发布时间超出窗口的留言
+     */
+    @Scheduled(fixedDelayString = "#{@hotRankingProperties.pruneInterval.toMillis()}")
+    public void prune() {
+        try {
+            long cutoff = epochSeconds(LocalDateTime.now().minus(hotRankingProperties.getWindow()));
+            Set<String> expired = stringRedisTemplate.opsForZSet().rangeByScore(CREATED_KEY, Double.NEGATIVE_INFINITY, cutoff);
+            if (expired != null && !expired.isEmpty()) {
+                remove(expired);
+                log.debug("热门排行移出过期留言: 条数={}", expired.size());
+            }
+        } catch (Exception e) {
+            log.warn("移出过期热门留言失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 用数据库中时间窗口内的留言重建排行，先写入临时key再整体替换，重建期间读取不受影响
+     */
+    public void rebuild() {
+        try {
+            LocalDateTime since = LocalDateTime.now().minus(hotRankingProperties.getWindow());
+            long decaySeconds = hotRankingProperties.getDecay().toSeconds();
+            Set<ZSetOperations.TypedTuple<String>> rank = new HashSet<>();
+            Set<ZSetOperations.TypedTuple<String>> created = new HashSet<>();
+            Map<String, String> likes = new HashMap<>();
+            jdbcTemplate.query(LOAD_SQL, rs -> {
+                long id = rs.getLong(1);
+                // 延迟写入开启时合并本节点尚未写入的增量，之后的点赞会增量更新到排行
+                long likeCount = Math.max(0, rs.getLong(2) + likeCountBuffer.pendingDelta(id));
+                long createdAt = epochSeconds(rs.getTimestamp(3).toLocalDateTime());
+                String member = String.valueOf(id);
+                created.add(new DefaultTypedTuple<>(member, (double) createdAt));
+                likes.put(member, String.valueOf(likeCount));
+                if (likeCount >= hotRankingProperties.getMinLikes()) {
+                    rank.add(new DefaultTypedTuple<>(member, score(likeCount, createdAt, decaySeconds)));
+                }
+            }, Timestamp.valueOf(since));
+
+            replace(RANK_KEY, rank.isEmpty() ? null : () -> stringRedisTemplate.opsForZSet().add(RANK_KEY + REBUILD_SUFFIX, rank));
+            replace(CREATED_KEY, created.isEmpty() ? null : () -> stringRedisTemplate.opsForZSet().add(CREATED_KEY + REBUILD_SUFFIX, created));
+            replace(LIKES_KEY, likes.isEmpty() ? null : () -> stringRedisTemplate.opsForHash().putAll(LIKES_KEY + REBUILD_SUFFIX, likes));
+            stringRedisTemplate.opsForValue().set(READY_KEY, "1",
+                    hotRankingProperties.getTtl().toMillis(), TimeUnit.MILLISECONDS);
+            log.info("热门排行已重建: 窗口内留言={}, 热门留言={}", created.size(), rank.size());
+        } catch (Exception e) {
+            log.warn("重建热门排行失败: {}", e.getMessage());
+        } finally {
+            try {
+                stringRedisTemplate.delete(REBUILD_LOCK_KEY);
+            } catch (Exception e) {
+                log.warn("释放热门排行重建锁失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 热度得分
+     *
+     * @param likeCount 点赞数
+     * @param createdAtSeconds 发布时间（秒）
+     * @param decaySeconds 衰减周期（秒）
+     * @return 得分
+     */
+    static double score(long likeCount, long createdAtSeconds, long decaySeconds) {
+        return Math.log10(Math.max(likeCount, 1)) + (double) createdAtSeconds / decaySeconds;
+    }
+
+    private boolean tryLockRebuild() {
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                    .setIfAbsent(REBUILD_LOCK_KEY, "1", REBUILD_LOCK_SECONDS, TimeUnit.SECONDS));
+        } catch (Exception e) {
+            log.warn("获取热门排行重建锁失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 写入临时key后用RENAME原子替换；没有数据时直接删除
+     */
+    private void replace(String key, Runnable writeTemp) {
+        if (writeTemp == null) {
+            stringRedisTemplate.delete(key);
+            return;
+        }
+        stringRedisTemplate.delete(key + REBUILD_SUFFIX);
+        writeTemp.run();
+        stringRedisTemplate.rename(key + REBUILD_SUFFIX, key);
+    }
+
+    private void remove(Collection<String> ids) {
+        Object[] members = ids.toArray();
+        stringRedisTemplate.opsForZSet().remove(RANK_KEY, members);
+        stringRedisTemplate.opsForZSet().remove(CREATED_KEY, members);
+        stringRedisTemplate.opsForHash().delete(LIKES_KEY, members);
+    }
+
+    private static long epochSeconds(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+}
@@ -1,48 +1,157 @@
 package com.example.messageboardbackend.service;
 
+import com.example.messageboardbackend.config.SystemLogProperties;
+import com.example.messageboardbackend.dto.LogEvent;
 import com.example.messageboardbackend.model.SystemLog;
-import com.example.messageboardbackend.repository.SystemLogRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Kafka消费者服务
- * 
+ *
+ * 系统日志按批消费：一次拉取的记录用多行 INSERT 在一个事务中写入，提交后再确认位点。
+ * system_log 的主键自增（IDENTITY），Hibernate无法批量插入，因此直接用JDBC拼接多行VALUES。
+ * 每行带上来源分区和位点，(kafka_partition, kafka_offset, created_at) 唯一（created_at 为分区列，
+ * 取自事件时间，重复投递时不变），重平衡或写入后未及提交位点导致的重复投递由 INSERT IGNORE 跳过。
+ * 写入失败时不确认，由容器的错误处理器按指数退避重试整批，超过 app.system-log.consumer.retry-max-elapsed 仍失败时整批转入死信Topic system-logs.DLT。
+ * 结构化事件（{@link LogEvent}）的类型、用户、留言、级别和发生时间写入各自的列，
+ * 无法解析的文本日志原样写入日志内容。
+ *
  * @author Message Board Team
  * @version 1.0.0
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class KafkaConsumerService {
 
-    private final SystemLogRepository systemLogRepository;
+    private static final String INSERT_SQL = "INSERT IGNORE INTO system_log " +
+            "(log_content, level, created_at, event_type, user_id, message_id, kafka_partition, kafka_offset) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int COLUMNS = 8;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SystemLogProperties systemLogProperties;
+
+    private final Counter consumed;
+    private final Counter inserted;
+    private final Counter duplicates;
+
+    public KafkaConsumerService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                SystemLogProperties systemLogProperties,
+                                MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.systemLogProperties = systemLogProperties;
+        this.consumed = Counter.builder("system.log.consumed")
+                .description("消费的系统日志记录数")
+                .register(meterRegistry);
+        this.inserted = Counter.builder("system.log.inserted")
+                .description("写入数据库的系统日志数")
+                .register(meterRegistry);
+        this.duplicates = Counter.builder("system.log.duplicates")
+                .description("按分区和位点跳过的重复系统日志数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 批量消费系统日志Topic，写入成功后确认位点
+     *
+     * @param records 一次拉取的日志记录
+     * @param acknowledgment 位点确认
+     */
+    @KafkaListener(topics = "system-logs", groupId = "message-board-group",
+            containerFactory = "systemLogListenerContainerFactory")
+    public void consumeSystemLogs(List<ConsumerRecord<String, String>> records, Acknowledgment acknowledgment) {
+        int written = save(records);
+        acknowledgment.acknowledge();
+        log.debug("系统日志批量写入完成: 记录数={}, 写入={}", records.size(), written);
+    }
+
+    /**
+     * 在一个事务中写入一批日志记录，已写入过的分区位点跳过
+     *
+     * @param records 日志记录
+     * @return 实际写入的条数
+     */
+    public int save(List<ConsumerRecord<String, String>> records) {
+        consumed.increment(records.size());
+        List<ConsumerRecord<String, String>> valid = records.stream()
+                .filter(record -> record.value() != null)
+                .toList();
+        if (valid.isEmpty()) {
+            return 0;
+        }
+        int batchSize = Math.max(1, systemLogProperties.getConsumer().getInsertBatchSize());
+        Integer written = transactionTemplate.execute(status -> {
+            int total = 0;
+            for (int from = 0; from < valid.size(); from += batchSize) {
+                total += insert(valid.subList(from, Math.min(from + batchSize, valid.size())));
+            }
+            return total;
+        });
+        int result = written == null ? 0 : written;
+        inserted.increment(result);
+        duplicates.increment(valid.size() - result);
+        if (result < valid.size()) {
+            log.info("跳过重复的系统日志: 条数={}", valid.size() - result);
+        }
+        return result;
+    }
 
     /**
-     * 监听系统日志Topic
-     * 
-     * @param message 日志消息
+     * 一条多行INSERT写入一段记录
+     *
+     * @return 写入的行数（重复的行不计入）
      */
-    @KafkaListener(topics = "system-logs", groupId = "message-board-group")
-    public void consumeSystemLog(String message) {
-        try {
-            log.info("收到系统日志消息: {}", message);
-            
-            // 创建系统日志记录
-            SystemLog systemLog = new SystemLog();
-            systemLog.setLogContent(message);
-            systemLog.setCreatedAt(LocalDateTime.now());
-            
-            // 保存到数据库
-            systemLogRepository.save(systemLog);
-            
-            log.info("系统日志已保存到数据库: id={}, content={}", systemLog.getId(), message);
-        } catch (Exception e) {
-            log.error("处理系统日志消息时发生异常: message={}, error={}", message, e.getMessage(), e);
+    private int insert(List<ConsumerRecord<String, String>> chunk) {
+        String sql = INSERT_SQL + String.join(", ", Collections.nCopies(chunk.size(), ROW_PLACEHOLDERS));
+        Object[] args = new Object[chunk.size() * COLUMNS];
+        int i = 0;
+        for (ConsumerRecord<String, String> record : chunk) {
+            LogEvent event = LogEvent.fromJson(record.value());
+            if (event != null) {
+                args[i++] = event.getDescription();
+                args[i++] = (event.getLevel() != null ? event.getLevel() : SystemLog.LogLevel.INFO).name();
+                args[i++] = event.getTimestamp() > 0 ? new Timestamp(event.getTimestamp()) : createdAt(record);
+                args[i++] = event.getType().name();
+                args[i++] = event.getUserId();
+                args[i++] = event.getMessageId();
+            } else {
+                args[i++] = record.value();
+                args[i++] = SystemLog.LogLevel.INFO.name();
+                args[i++] = createdAt(record);
+                args[i++] = null;
+                args[i++] = null;
+                args[i++] = null;
+            }
+            args[i++] = record.partition();
+            args[i++] = record.offset();
         }
+        return jdbcTemplate.update(sql, args);
+    }
+
+    /**
+     * 使用记录写入Kafka的时间，重复投递时与第一次写入一致（created_at 是唯一键的一部分）；
+     * 没有时间戳时（0.10之前的消息格式）使用当前时间，这类记录重复投递时无法去重
+     */
+    private static Timestamp createdAt(ConsumerRecord<String, String> record) {
+        return record.timestamp() > 0
+                ? new Timestamp(record.timestamp())
+                : Timestamp.valueOf(LocalDateTime.now());
     }
 }
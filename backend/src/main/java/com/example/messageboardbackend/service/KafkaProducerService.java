@@ -1,16 +1,22 @@
 package com.example.messageboardbackend.service;
 
+import com.example.messageboardbackend.config.LikeProperties;
+import com.example.messageboardbackend.dto.LogEvent;
+import com.example.messageboardbackend.model.OutboxEvent;
+import com.example.messageboardbackend.repository.OutboxEventRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
-
-import java.util.concurrent.CompletableFuture;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Kafka生产者服务
  * 
+ * 留言和点赞的事件写入发件箱（outbox_event），与业务修改在同一个事务中提交，回滚时事件一起撤销；
+ * 由 {@link OutboxRelay} 发送到Kafka（系统日志经 {@link SystemLogPublisher}），请求线程不访问Kafka。
+ * 这些方法必须在事务中调用。
+ * 
  * @author Message Board Team
  * @version 1.0.0
  */
@@ -19,41 +25,61 @@ import java.util.concurrent.CompletableFuture;
 @Slf4j
 public class KafkaProducerService {
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
-    private static final String SYSTEM_LOGS_TOPIC = "system-logs";
+    private final OutboxEventRepository outboxEventRepository;
+    private final LikeProperties likeProperties;
 
     /**
-     * 发送系统日志消息
+     * 记录用户发布留言的日志
      * 
-     * @param message 日志消息
+     * @param userId 用户ID
+     * @param messageId 留言ID
      */
-    public void sendSystemLog(String message) {
-        try {
-            CompletableFuture<SendResult<String, String>> future = kafkaTemplate.send(SYSTEM_LOGS_TOPIC, message);
-            
-            future.whenComplete((result, ex) -> {
-                if (ex == null) {
-                    log.info("系统日志消息发送成功: topic={}, partition={}, offset={}, message={}", 
-                            result.getRecordMetadata().topic(),
-                            result.getRecordMetadata().partition(),
-                            result.getRecordMetadata().offset(),
-                            message);
-                } else {
-                    log.error("系统日志消息发送失败: message={}, error={}", message, ex.getMessage());
-                }
-            });
-        } catch (Exception e) {
-            log.error("发送系统日志消息时发生异常: message={}, error={}", message, e.getMessage(), e);
-        }
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void sendUserMessageLog(Long userId, Long messageId) {
+        addSystemLog(LogEvent.messageCreated(userId, messageId));
     }
 
     /**
-     * 发送用户发布留言的日志
-     * 
-     * @param username 用户名
+     * 记录用户点赞/取消点赞的日志
+     *
+     * @param userId 用户ID
+     * @param messageId 留言ID
+     * @param liked 是否点赞
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void sendLikeLog(Long userId, Long messageId, boolean liked) {
+        addSystemLog(LogEvent.messageLiked(userId, messageId, liked));
+    }
+
+    /**
+     * 是否开启点赞事件化（点赞接口只写事件，由 LikeEventProjection 投影到数据库）
+     *
+     * @return 是否开启
+     */
+    public boolean isLikeEventsEnabled() {
+        return likeProperties.getEventSourcing().isEnabled();
+    }
+
+    /**
+     * 记录点赞状态事件，事务提交即持久化，由发件箱转发
+     *
+     * key为 留言ID:用户ID，值为最终状态（1点赞/0取消）而不是增量，
+     * 日志压缩后每个key只保留最后一条，重放整个Topic即可还原所有点赞状态。
+     *
+     * @param messageId 留言ID
+     * @param userId 用户ID
+     * @param liked 是否点赞
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void sendLikeEvent(Long messageId, Long userId, boolean liked) {
+        outboxEventRepository.save(new OutboxEvent(likeProperties.getEventSourcing().getTopic(),
+                messageId + ":" + userId, liked ? "1" : "0"));
+    }
+
+    /**
+     * 以用户ID为key，同一用户的事件进入同一分区，消费顺序与发生顺序一致
      */
-    public void sendUserMessageLog(String username) {
-        String logMessage = String.format("用户 [%s] 发布了一条新留言", username);
-        sendSystemLog(logMessage);
+    private void addSystemLog(LogEvent event) {
+        outboxEventRepository.save(new OutboxEvent(SystemLogPublisher.TOPIC, event.getKey(), event.toJson()));
     }
 }
@@ -0,0 +1,393 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.LikeProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 点赞用户位图索引
+ *
+ * 每条留言一个 RoaringBitmap，成员为点赞用户ID（int，按容器压缩存储，无装箱），
+ * "是否已点赞"和"整页中哪些已点赞"的判断直接在内存中完成，不再查询点赞表。
+ *
+ * 启动后在后台线程加载：Redis中有未过期的位图快照时从快照恢复，否则按主键分批流式扫描点赞表并写回快照。
+ * 加载期间 isReady 返回false，调用方查库；期间发生的点赞变化先应用再记录，加载完成后按顺序重放，
+ * 保证不会被旧数据覆盖。点赞和取消在事务提交后更新本节点位图、Redis位图，并通过发布/订阅通知其他节点。
+ *
+ * 超出int范围的用户ID不进入位图，调用方需先用 supports 判断。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Service
+@Slf4j
+public class LikeBitmapIndex implements MessageListener {
+
+    /**
+     * 点赞变化通知频道，消息格式：留言ID|用户ID|1点赞/0取消|节点ID
+     */
+    public static final String CHANNEL = "message:like:bitmap";
+
+    private static final String KEY_PREFIX = "like:bitmap:";
+    private static final String MESSAGES_KEY = "like:bitmap:messages";
+    private static final String READY_KEY = "like:bitmap:ready";
+    private static final String SEPARATOR = "|";
+
+    private static final String LOAD_SQL = "SELECT id, message_id, user_id FROM message_like " +
+            "WHERE deleted = FALSE AND id > ? ORDER BY id LIMIT ?";
+
+    private final LikeProperties likeProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final Map<Long, RoaringBitmap> bitmaps = new ConcurrentHashMap<>();
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 加载期间发生的变化，加载完成后重放
+     */
+    private final Queue<Change> loadingChanges = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean loading;
+    private volatile boolean ready;
+
+    public LikeBitmapIndex(LikeProperties likeProperties,
+                           JdbcTemplate jdbcTemplate,
+                           StringRedisTemplate stringRedisTemplate,
+                           MeterRegistry meterRegistry) {
+        this.likeProperties = likeProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        meterRegistry.gauge("message.like.bitmap.messages", bitmaps, Map::size);
+    }
+
+    /**
+     * 索引是否已加载完成，未完成时调用方应查库
+     *
+     * @return 是否就绪
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 用户ID能否用位图判断
+     *
+     * @param userId 用户ID
+     * @return 是否在int范围内
+     */
+    public boolean supports(Long userId) {
+        return userId != null && userId >= 0 && userId <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * 判断用户是否点赞了留言
+     *
+     * @param messageId 留言ID
+     * @param userId 用户ID
+     * @return 是否已点赞
+     */
+    public boolean contains(Long messageId, Long userId) {
+        RoaringBitmap bitmap = bitmaps.get(messageId);
+        if (bitmap == null) {
+            return false;
+        }
+        synchronized (bitmap) {
+            return bitmap.contains(userId.intValue());
+        }
+    }
+
+    /**
+     * 取出用户在给定留言中已点赞的部分
+     *
+     * @param messageIds 留言ID集合
+     * @param userId 用户ID
+     * @return 已点赞的留言ID
+     */
+    public Set<Long> likedAmong(Collection<Long> messageIds, Long userId) {
+        Set<Long> liked = new HashSet<>();
+        for (Long messageId : messageIds) {
+            if (contains(messageId, userId)) {
+                liked.add(messageId);
+            }
+        }
+        return liked;
+    }
+
+    /**
+     * 点赞事务提交后调用
+     *
+     * @param messageId 留言ID
+     * @param userId 用户ID
+     */
+    public void onLiked(Long messageId, Long userId) {
+        changed(messageId, userId, true);
+    }
+
+    /**
+     * 取消点赞事务提交后调用
+     *
+     * @param messageId 留言ID
+     * @param userId 用户ID
+     */
+    public void onUnliked(Long messageId, Long userId) {
+        changed(messageId, userId, false);
+    }
+
+    /**
+     * 应用启动完成后在后台加载索引，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        if (!likeProperties.getBitmap().isEnabled()) {
+            return;
+        }
+        Thread loader = new Thread(this::load, "like-bitmap-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * 处理其他节点发布的点赞变化
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|");
+        if (parts.length != 4 || nodeId.equals(parts[3])) {
+            return;
+        }
+        try {
+            apply(new Change(Long.parseLong(parts[0]), Integer.parseInt(parts[1]), "1".equals(parts[2])));
+        } catch (NumberFormatException e) {
+            log.warn("点赞位图通知格式错误: {}", new String(message.getBody(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private void changed(Long messageId, Long userId, boolean liked) {
+        if (!likeProperties.getBitmap().isEnabled() || !supports(userId)) {
+            return;
+        }
+        Change change = new Change(messageId, userId.intValue(), liked);
+        apply(change);
+        try {
+            persist(change);
+            stringRedisTemplate.convertAndSend(CHANNEL,
+                    messageId + SEPARATOR + userId + SEPARATOR + (liked ? "1" : "0") + SEPARATOR + nodeId);
+        } catch (Exception e) {
+            log.warn("同步点赞位图失败: messageId={}, userId={}, 错误={}", messageId, userId, e.getMessage());
+        }
+    }
+
+    /**
+     * 写入Redis位图快照中对应的一位
+     */
+    private void persist(Change change) {
+        stringRedisTemplate.opsForValue().setBit(KEY_PREFIX + change.messageId(), change.userId(), change.liked());
+        stringRedisTemplate.opsForSet().add(MESSAGES_KEY, String.valueOf(change.messageId()));
+    }
+
+    /**
+     * 更新本节点位图；加载期间同时记录，加载完成后重放以覆盖快照中的旧状态
+     */
+    private void apply(Change change) {
+        update(change);
+        if (loading) {
+            loadingChanges.add(change);
+        }
+    }
+
+    private void update(Change change) {
+        RoaringBitmap bitmap = bitmaps.computeIfAbsent(change.messageId(), id -> new RoaringBitmap());
+        synchronized (bitmap) {
+            if (change.liked()) {
+                bitmap.add(change.userId());
+            } else {
+                bitmap.remove(change.userId());
+            }
+        }
+    }
+
+    private void load() {
+        loading = true;
+        long start = System.currentTimeMillis();
+        try {
+            boolean fromRedis = loadFromRedis();
+            if (!fromRedis) {
+                loadFromDatabase();
+                saveToRedis();
+            }
+            // 重放加载期间的变化；重放结束后的变化直接作用在已加载的位图上。
+            // 整体写入的快照可能覆盖了期间其他请求写入的单个位，重放时一并补写
+            Change change;
+            while ((change = loadingChanges.poll()) != null) {
+                update(change);
+                if (!fromRedis) {
+                    persistQuietly(change);
+                }
+            }
+            loading = false;
+            loadingChanges.clear();
+            bitmaps.values().forEach(bitmap -> {
+                synchronized (bitmap) {
+                    bitmap.runOptimize();
+                }
+            });
+            ready = true;
+            log.info("点赞位图加载完成: 来源={}, 留言数={}, 耗时={}ms",
+                    fromRedis ? "Redis" : "数据库", bitmaps.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            loading = false;
+            loadingChanges.clear();
+            log.error("点赞位图加载失败，点赞状态继续查库: {}", e.getMessage());
+        }
+    }
+
+    private void persistQuietly(Change change) {
+        try {
+            persist(change);
+        } catch (Exception e) {
+            log.warn("补写点赞位图失败: messageId={}, 错误={}", change.messageId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 从Redis位图快照恢复
+     *
+     * @return 快照存在并恢复成功时返回true
+     */
+    private boolean loadFromRedis() {
+        try {
+            if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(READY_KEY))) {
+                return false;
+            }
+            Set<String> messageIds = stringRedisTemplate.opsForSet().members(MESSAGES_KEY);
+            if (messageIds == null) {
+                return false;
+            }
+            for (String messageId : messageIds) {
+                byte[] raw = stringRedisTemplate.execute((RedisCallback<byte[]>) connection ->
+                        connection.stringCommands().get((KEY_PREFIX + messageId).getBytes(StandardCharsets.UTF_8)));
+                if (raw != null) {
+                    merge(Long.parseLong(messageId), decode(raw));
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("从Redis恢复点赞位图失败，改为扫描数据库: {}", e.getMessage());
+            bitmaps.clear();
+            return false;
+        }
+    }
+
+    /**
+     * 按主键分批扫描未删除的点赞记录，每批只持有基本类型的三列
+     */
+    private void loadFromDatabase() {
+        int batchSize = likeProperties.getBitmap().getLoadBatchSize();
+        long[] lastId = {0};
+        int rows;
+        do {
+            int[] count = {0};
+            jdbcTemplate.query(LOAD_SQL, rs -> {
+                lastId[0] = rs.getLong(1);
+                long userId = rs.getLong(3);
+                count[0]++;
+                if (supports(userId)) {
+                    RoaringBitmap bitmap = bitmaps.computeIfAbsent(rs.getLong(2), id -> new RoaringBitmap());
+                    synchronized (bitmap) {
+                        bitmap.add((int) userId);
+                    }
+                }
+            }, lastId[0], batchSize);
+            rows = count[0];
+        } while (rows == batchSize);
+    }
+
+    /**
+     * 把整个索引写成Redis位图快照，供后续启动的节点直接恢复
+     */
+    private void saveToRedis() {
+        try {
+            List<String> messageIds = bitmaps.keySet().stream().map(String::valueOf).toList();
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Map.Entry<Long, RoaringBitmap> entry : bitmaps.entrySet()) {
+                    byte[] raw;
+                    synchronized (entry.getValue()) {
+                        raw = encode(entry.getValue());
+                    }
+                    connection.stringCommands().set((KEY_PREFIX + entry.getKey()).getBytes(StandardCharsets.UTF_8), raw);
+                }
+                return null;
+            });
+            stringRedisTemplate.delete(MESSAGES_KEY);
+            if (!messageIds.isEmpty()) {
+                stringRedisTemplate.opsForSet().add(MESSAGES_KEY, messageIds.toArray(new String[0]));
+            }
+            stringRedisTemplate.opsForValue().set(READY_KEY, "1",
+                    likeProperties.getBitmap().getSnapshotTtl().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("写入点赞位图快照失败: {}", e.getMessage());
+        }
+    }
+
+    private void merge(Long messageId, RoaringBitmap loaded) {
+        RoaringBitmap bitmap = bitmaps.computeIfAbsent(messageId, id -> new RoaringBitmap());
+        synchronized (bitmap) {
+            bitmap.or(loaded);
+        }
+    }
+
+    /**
+     * Redis位图按字节从高位到低位编号：第n位在第n/8个字节的 0x80 >>> (n % 8)
+     */
+    static RoaringBitmap decode(byte[] raw) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < raw.length; i++) {
+            int b = raw[i] & 0xFF;
+            while (b != 0) {
+                int bit = Integer.numberOfLeadingZeros(b) - 24;
+                bitmap.add(i * 8 + bit);
+                b &= ~(0x80 >>> bit);
+            }
+        }
+        return bitmap;
+    }
+
+    static byte[] encode(RoaringBitmap bitmap) {
+        if (bitmap.isEmpty()) {
+            return new byte[0];
+        }
+        byte[] raw = new byte[(bitmap.last() >>> 3) + 1];
+        PeekableIntIterator values = bitmap.getIntIterator();
+        while (values.hasNext()) {
+            int value = values.next();
+            raw[value >>> 3] |= (byte) (0x80 >>> (value & 7));
+        }
+        return raw;
+    }
+
+    private record Change(long messageId, int userId, boolean liked) {
+    }
+}
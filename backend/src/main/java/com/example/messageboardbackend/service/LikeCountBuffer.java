@@ -0,0 +1,229 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.HotRankingProperties;
+import com.example.messageboardbackend.config.LikeProperties;
+import com.example.messageboardbackend.dto.MessageDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 点赞数写缓冲
+ *
+ * 开启 app.like.write-behind.enabled 后，点赞事务只插入点赞记录，点赞数增量累加在按留言分条的
+ * LongAdder 中（内部分段，多核并发累加互不竞争），由定时任务合并为一次批量UPDATE写入留言表。
+ * 热门留言的点赞不再在留言行锁上排队，吞吐随CPU核数增长而不是受行锁持有时间限制。
+ *
+ * 从数据库读出的点赞数需要调用 mergePending 合并本节点尚未写入的增量；
+ * 热门缓存不再随每次点赞清除，而是在每批写入后清除一次。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Service
+@Slf4j
+public class LikeCountBuffer {
+
+    /**
+     * is_hot 写在 like_count 之前，两者都基于更新前的点赞数计算（MySQL按从左到右的顺序赋值）。
+     * updated_at 赋值为自身，避免MySQL的 ON UPDATE CURRENT_TIMESTAMP 修改更新时间（同 MessageRepository.incrementLikeCount）。
+     * 参数由 flushArgs 生成，点赞事件投影也用它写入点赞数
+     */
+    static final String FLUSH_SQL = "UPDATE message SET " +
+            "is_hot = CASE WHEN like_count + ? >= ? THEN TRUE ELSE FALSE END, " +
+            "like_count = CASE WHEN like_count + ? < 0 THEN 0 ELSE like_count + ? END, " +
+            "updated_at = updated_at " +
+            "WHERE id = ?";
+
+    private final LikeProperties likeProperties;
+    private final HotRankingProperties hotRankingProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RedisCacheService redisCacheService;
+
+    /**
+     * 尚未写入的增量
+     */
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 已取出、正在写入数据库的增量，写入提交前读取时仍需合并
+     */
+    private volatile Map<Long, Long> flushing = Map.of();
+
+    /**
+     * 累加时加读锁（多个累加互不阻塞）；取出增量和清理空条目时加写锁，
+     * 保证取出时没有进行中的累加：一次累加要么已被取出，要么留在缓冲区，不会被计两次或丢失
+     */
+    private final StampedLock drainLock = new StampedLock();
+
+    private final Counter flushedRows;
+    private final Timer flushTimer;
+
+    public LikeCountBuffer(LikeProperties likeProperties,
+                           HotRankingProperties hotRankingProperties,
+                           JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           RedisCacheService redisCacheService,
+                           MeterRegistry meterRegistry) {
+        this.likeProperties = likeProperties;
+        this.hotRankingProperties = hotRankingProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.redisCacheService = redisCacheService;
+        this.flushedRows = Counter.builder("message.like.buffer.flushed")
+                .description("批量写入的留言行数")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("message.like.buffer.flush")
+                .description("点赞数批量写入耗时")
+                .register(meterRegistry);
+        meterRegistry.gauge("message.like.buffer.pending", pending, Map::size);
+    }
+
+    /**
+     * 是否开启点赞数延迟写入
+     *
+     * @return 是否开启
+     */
+    public boolean isEnabled() {
+        return likeProperties.getWriteBehind().isEnabled();
+    }
+
+    /**
+     * 累加点赞数增量
+     *
+     * @param messageId 留言ID
+     * @param delta 增量（点赞+1，取消-1）
+     */
+    public void add(Long messageId, long delta) {
+        long stamp = drainLock.readLock();
+        try {
+            pending.computeIfAbsent(messageId, id -> new LongAdder()).add(delta);
+        } finally {
+            drainLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 本节点尚未写入数据库的增量
+     *
+     * @param messageId 留言ID
+     * @return 增量
+     */
+    public long pendingDelta(Long messageId) {
+        LongAdder adder = pending.get(messageId);
+        long delta = adder == null ? 0 : adder.sum();
+        return delta + flushing.getOrDefault(messageId, 0L);
+    }
+
+    /**
+     * 将未写入的增量合并到从数据库读出的留言上（直接修改传入对象，只能用于新查出、尚未共享的对象）
+     *
+     * @param messages 从数据库读出的留言
+     */
+    public void mergePending(List<MessageDto> messages) {
+        if (!isEnabled() || (pending.isEmpty() && flushing.isEmpty())) {
+            return;
+        }
+        for (MessageDto message : messages) {
+            long delta = pendingDelta(message.getId());
+            if (delta != 0) {
+                int likeCount = (int) Math.max(0, (message.getLikeCount() == null ? 0 : message.getLikeCount()) + delta);
+                message.setLikeCount(likeCount);
+                message.setIsHot(hotRankingProperties.isHot(likeCount));
+            }
+        }
+    }
+
+    /**
+     * 将累积的增量批量写入留言表，写入失败时增量放回缓冲区下次重试
+     */
+    @Scheduled(fixedDelayString = "#{@likeProperties.writeBehind.flushInterval.toMillis()}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // 先发布再取出，取出后到写入提交前读取仍能合并这部分增量
+        Map<Long, Long> batch = new ConcurrentHashMap<>();
+        flushing = batch;
+        drain(batch);
+        if (batch.isEmpty()) {
+            flushing = Map.of();
+            return;
+        }
+
+        try {
+            flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                // 按留言ID排序，多个节点同时写入时加锁顺序一致，避免死锁
+                List<Object[]> args = new ArrayList<>(batch.size());
+                new TreeMap<>(batch).forEach((messageId, delta) -> args.add(flushArgs(messageId, delta, hotRankingProperties.getMinLikes())));
+                jdbcTemplate.batchUpdate(FLUSH_SQL, args);
+            }));
+            flushedRows.increment(batch.size());
+            log.debug("点赞数批量写入完成: 留言数={}", batch.size());
+            // 点赞数和热门标记已变化，每批只清除一次热门缓存（不再每次点赞都清除）
+            redisCacheService.clearHotMessageCache();
+        } catch (Exception e) {
+            log.error("点赞数批量写入失败，增量放回缓冲区: 留言数={}, 错误: {}", batch.size(), e.getMessage());
+            batch.forEach(this::add);
+        } finally {
+            flushing = Map.of();
+        }
+    }
+
+    /**
+     * FLUSH_SQL 的参数
+     *
+     * @param messageId 留言ID
+     * @param delta 点赞数增量
+     * @param minLikes 热门留言的最少点赞数
+     * @return 按占位符顺序排列的参数
+     */
+    static Object[] flushArgs(Long messageId, long delta, int minLikes) {
+        return new Object[]{delta, minLikes, delta, delta, messageId};
+    }
+
+    /**
+     * 关闭前写入剩余的增量
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 取出全部增量；上一批之后增量为0的条目同时移除，避免缓冲区随点赞过的留言数无限增长
+     *
+     * @param batch 取出的增量
+     */
+    private void drain(Map<Long, Long> batch) {
+        long stamp = drainLock.writeLock();
+        try {
+            pending.entrySet().removeIf(entry -> {
+                long delta = entry.getValue().sumThenReset();
+                if (delta == 0) {
+                    return true;
+                }
+                batch.put(entry.getKey(), delta);
+                return false;
+            });
+        } finally {
+            drainLock.unlockWrite(stamp);
+        }
+    }
+}
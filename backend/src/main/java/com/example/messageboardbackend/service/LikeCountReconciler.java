@@ -0,0 +1,384 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.HotRankingProperties;
+import com.example.messageboardbackend.config.LikeProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 点赞数对账任务
+ *
+ * message.like_count 是冗余计数，进程异常退出时丢失的延迟写入增量、手工改库等都会使它与点赞记录数不一致。
+ * 本任务按留言ID顺序（键集分页）每个间隔核对一批：先读出一批留言的点赞数，再用一条 GROUP BY
+ * 统计这个ID范围内的点赞记录数，两条查询在同一个只读事务中执行，读到的是同一个快照。
+ * 不一致时用 UPDATE ... WHERE like_count = 读到的旧值 修正，期间有新的点赞写入时跳过，留到下一轮。
+ *
+ * 开启延迟写入时，发现的差异要在下一批时再核对一次，两次差值相同才修正（排除提交后尚未累加到缓冲区的点赞）。
+ * 其他节点缓冲区中尚未写入的增量无法得知：它们对应的点赞记录已提交，会被当作差异修正，
+ * 对方写入增量后点赞数被重复累加。因此开启延迟写入的节点每个间隔在Redis中登记，
+ * 有多个节点在缓冲点赞数时跳过对账，只在单节点（或关闭延迟写入）时执行。
+ *
+ * 每个间隔只处理一批，连接池繁忙时跳过；进度保存在Redis，多个节点轮流继续，重启后从断点开始。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Service
+@Slf4j
+public class LikeCountReconciler {
+
+    private static final String CHECKPOINT_KEY = "like:reconcile:checkpoint";
+    private static final String STATS_KEY = "like:reconcile:pass";
+    private static final String PAUSE_KEY = "like:reconcile:pause";
+    private static final String LOCK_KEY = "like:reconcile:lock";
+    private static final String NODES_KEY = "like:reconcile:buffering-nodes";
+    private static final long LOCK_SECONDS = 60;
+
+    /**
+     * 超过几个对账间隔没有登记的节点视为已下线
+     */
+    private static final int NODE_TTL_INTERVALS = 3;
+
+    private static final String BATCH_SQL = "SELECT id, like_count FROM message " +
+            "WHERE id > ? AND deleted = FALSE ORDER BY id LIMIT ?";
+    private static final String COUNT_SQL = "SELECT message_id, COUNT(*) FROM message_like " +
+            "WHERE message_id BETWEEN ? AND ? AND deleted = FALSE GROUP BY message_id";
+    private static final String FIX_SQL = "UPDATE message SET is_hot = ?, like_count = ?, updated_at = updated_at " +
+            "WHERE id = ? AND like_count = ?";
+
+    private final LikeProperties likeProperties;
+    private final HotRankingProperties hotRankingProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final TransactionTemplate readTemplate;
+    private final TransactionTemplate writeTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final LikeCountBuffer likeCountBuffer;
+    private final RedisCacheService redisCacheService;
+    private final TimelineCacheService timelineCacheService;
+    private final HotRankingService hotRankingService;
+    private final MessageSearchIndex messageSearchIndex;
+
+    private final Counter checked;
+    private final Counter corrected;
+    private final Counter throttled;
+
+    /**
+     * 开启延迟写入时待复核的留言：留言ID -> 上一批发现的差值
+     */
+    private final Map<Long, Long> suspects = new HashMap<>();
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 上一次检查时是否因多个节点开启延迟写入而跳过，只在状态变化时记录日志
+     */
+    private volatile boolean clusterSkipped;
+
+    public LikeCountReconciler(LikeProperties likeProperties,
+                               HotRankingProperties hotRankingProperties,
+                               JdbcTemplate jdbcTemplate,
+                               DataSource dataSource,
+                               PlatformTransactionManager transactionManager,
+                               StringRedisTemplate stringRedisTemplate,
+                               LikeCountBuffer likeCountBuffer,
+                               RedisCacheService redisCacheService,
+                               TimelineCacheService timelineCacheService,
+                               HotRankingService hotRankingService,
+                               MessageSearchIndex messageSearchIndex,
+                               MeterRegistry meterRegistry) {
+        this.likeProperties = likeProperties;
+        this.hotRankingProperties = hotRankingProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.likeCountBuffer = likeCountBuffer;
+        this.redisCacheService = redisCacheService;
+        this.timelineCacheService = timelineCacheService;
+        this.hotRankingService = hotRankingService;
+        this.messageSearchIndex = messageSearchIndex;
+        this.checked = Counter.builder("message.like.reconcile.checked")
+                .description("核对的留言数")
+                .register(meterRegistry);
+        this.corrected = Counter.builder("message.like.reconcile.corrected")
+                .description("修正点赞数的留言数")
+                .register(meterRegistry);
+        this.throttled = Counter.builder("message.like.reconcile.throttled")
+                .description("因连接池繁忙跳过的批次数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 定时核对一批，从Redis中的断点继续
+     */
+    @Scheduled(fixedDelayString = "#{@likeProperties.reconcile.interval.toMillis()}")
+    public void run() {
+        // 关闭对账的节点同样要登记，否则其他节点看不到它的缓冲区
+        boolean clustered;
+        try {
+            clustered = otherNodesBuffering();
+        } catch (Exception e) {
+            log.warn("登记点赞数延迟写入节点失败: {}", e.getMessage());
+            return;
+        }
+        if (!likeProperties.getReconcile().isEnabled() || clustered) {
+            return;
+        }
+        if (poolBusy()) {
+            throttled.increment();
+            return;
+        }
+        try {
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(PAUSE_KEY)) || !tryLock()) {
+                return;
+            }
+        } catch (Exception e) {
+            log.warn("读取点赞数对账状态失败: {}", e.getMessage());
+            return;
+        }
+
+        try {
+            String checkpoint = stringRedisTemplate.opsForValue().get(CHECKPOINT_KEY);
+            Batch batch = reconcileBatch(checkpoint == null ? 0 : Long.parseLong(checkpoint));
+            stringRedisTemplate.opsForHash().increment(STATS_KEY, "checked", batch.checked());
+            stringRedisTemplate.opsForHash().increment(STATS_KEY, "corrected", batch.corrected());
+            if (!batch.done()) {
+                stringRedisTemplate.opsForValue().set(CHECKPOINT_KEY, String.valueOf(batch.lastId()));
+                return;
+            }
+            Map<Object, Object> stats = stringRedisTemplate.opsForHash().entries(STATS_KEY);
+            log.info("点赞数对账完成一轮: 核对留言数={}, 修正数={}", stats.get("checked"), stats.get("corrected"));
+            stringRedisTemplate.delete(List.of(CHECKPOINT_KEY, STATS_KEY));
+            stringRedisTemplate.opsForValue().set(PAUSE_KEY, "1",
+                    likeProperties.getReconcile().getPassInterval().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("点赞数对账失败，下次从断点重试: {}", e.getMessage());
+        } finally {
+            try {
+                stringRedisTemplate.delete(LOCK_KEY);
+            } catch (Exception e) {
+                log.warn("释放点赞数对账锁失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 核对ID大于 afterId 的一批留言，并复核上一批的可疑差异
+     *
+     * @param afterId 上一批的最后一个留言ID，从头开始时为0
+     * @return 本批结果
+     */
+    public synchronized Batch reconcileBatch(long afterId) {
+        int fixed = 0;
+        if (!suspects.isEmpty()) {
+            Map<Long, Long> previous = new HashMap<>(suspects);
+            suspects.clear();
+            Map<Long, Drift> drifts = findDrifts(readStoredCounts(previous.keySet()));
+            drifts.values().removeIf(drift -> !previous.get(drift.messageId()).equals(drift.delta()));
+            fixed += fix(drifts);
+        }
+
+        int batchSize = likeProperties.getReconcile().getBatchSize();
+        Map<Long, long[]> stored = readTemplate.execute(status -> {
+            Map<Long, long[]> rows = new LinkedHashMap<>();
+            jdbcTemplate.query(BATCH_SQL, (RowCallbackHandler) rs -> rows.put(rs.getLong(1), new long[]{rs.getLong(2), 0}),
+                    afterId, batchSize);
+            if (!rows.isEmpty()) {
+                List<Long> ids = new ArrayList<>(rows.keySet());
+                jdbcTemplate.query(COUNT_SQL, (RowCallbackHandler) rs -> rows.get(rs.getLong(1))[1] = rs.getLong(2),
+                        ids.get(0), ids.get(ids.size() - 1));
+            }
+            return rows;
+        });
+        if (stored == null || stored.isEmpty()) {
+            return new Batch(afterId, 0, fixed, true);
+        }
+        checked.increment(stored.size());
+
+        Map<Long, Drift> drifts = findDrifts(stored);
+        if (likeCountBuffer.isEnabled()) {
+            drifts.forEach((messageId, drift) -> suspects.put(messageId, drift.delta()));
+        } else {
+            fixed += fix(drifts);
+        }
+        long lastId = Collections.max(stored.keySet());
+        return new Batch(lastId, stored.size(), fixed, stored.size() < batchSize);
+    }
+
+    /**
+     * 差值 = 点赞记录数 - (点赞数 + 本节点未写入的增量)
+     *
+     * @param stored 留言ID -> {点赞数, 点赞记录数}
+     * @return 差值不为0的留言
+     */
+    private Map<Long, Drift> findDrifts(Map<Long, long[]> stored) {
+        Map<Long, Drift> drifts = new TreeMap<>();
+        stored.forEach((messageId, counts) -> {
+            long delta = counts[1] - counts[0] - likeCountBuffer.pendingDelta(messageId);
+            if (delta != 0) {
+                drifts.put(messageId, new Drift(messageId, counts[0], delta));
+            }
+        });
+        return drifts;
+    }
+
+    private Map<Long, long[]> readStoredCounts(Iterable<Long> messageIds) {
+        List<Long> ids = new ArrayList<>();
+        messageIds.forEach(ids::add);
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return readTemplate.execute(status -> {
+            Map<Long, long[]> rows = new TreeMap<>();
+            jdbcTemplate.query("SELECT id, like_count FROM message WHERE deleted = FALSE AND id IN (" + placeholders + ")",
+                    (RowCallbackHandler) rs -> rows.put(rs.getLong(1), new long[]{rs.getLong(2), 0}),
+                    ids.toArray());
+            jdbcTemplate.query("SELECT message_id, COUNT(*) FROM message_like WHERE deleted = FALSE AND message_id IN (" +
+                            placeholders + ") GROUP BY message_id",
+                    (RowCallbackHandler) rs -> {
+                        long[] counts = rows.get(rs.getLong(1));
+                        if (counts != null) {
+                            counts[1] = rs.getLong(2);
+                        }
+                    },
+                    ids.toArray());
+            return rows;
+        });
+    }
+
+    /**
+     * 按差值修正点赞数；点赞数在读取后又被修改过的留言不更新，留到下一轮
+     *
+     * @return 实际修正的留言数
+     */
+    private int fix(Map<Long, Drift> drifts) {
+        if (drifts.isEmpty()) {
+            return 0;
+        }
+        List<Drift> pending = new ArrayList<>(drifts.values());
+        List<Object[]> args = new ArrayList<>(pending.size());
+        for (Drift drift : pending) {
+            long likeCount = drift.corrected();
+            args.add(new Object[]{hotRankingProperties.isHot(likeCount), likeCount, drift.messageId(), drift.likeCount()});
+        }
+        int[] results = writeTemplate.execute(status -> jdbcTemplate.batchUpdate(FIX_SQL, args));
+        if (results == null) {
+            return 0;
+        }
+
+        int fixed = 0;
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == 0) {
+                continue;
+            }
+            Drift drift = pending.get(i);
+            int delta = (int) (drift.corrected() - drift.likeCount());
+            log.info("修正点赞数: ID={}, {} -> {}", drift.messageId(), drift.likeCount(), drift.corrected());
+            timelineCacheService.onLikeChanged(drift.messageId(), delta);
+            hotRankingService.onLikeChanged(drift.messageId(), delta);
+            messageSearchIndex.onLikeCountChanged(drift.messageId(),
+                    drift.corrected() + likeCountBuffer.pendingDelta(drift.messageId()));
+            fixed++;
+        }
+        if (fixed > 0) {
+            corrected.increment(fixed);
+            redisCacheService.clearHotMessageCache();
+        }
+        return fixed;
+    }
+
+    /**
+     * 连接池使用率是否超过阈值
+     */
+    private boolean poolBusy() {
+        try {
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                return false;
+            }
+            HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            return pool != null && pool.getActiveConnections()
+                    >= hikari.getMaximumPoolSize() * likeProperties.getReconcile().getMaxPoolUsage();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 开启延迟写入时登记本节点，并检查是否还有其他节点在缓冲点赞数
+     *
+     * @return 有其他节点时返回true，本批跳过
+     */
+    private boolean otherNodesBuffering() {
+        if (!likeCountBuffer.isEnabled()) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        long since = now - likeProperties.getReconcile().getInterval().toMillis() * NODE_TTL_INTERVALS;
+        stringRedisTemplate.opsForZSet().add(NODES_KEY, nodeId, now);
+        stringRedisTemplate.opsForZSet().removeRangeByScore(NODES_KEY, 0, since);
+        Long nodes = stringRedisTemplate.opsForZSet().zCard(NODES_KEY);
+        boolean skipped = nodes != null && nodes > 1;
+        if (skipped != clusterSkipped) {
+            clusterSkipped = skipped;
+            if (skipped) {
+                log.warn("有{}个节点开启了点赞数延迟写入，其他节点未写入的增量无法核对，暂停点赞数对账", nodes);
+            } else {
+                log.info("只有本节点开启点赞数延迟写入，恢复点赞数对账");
+            }
+        }
+        return skipped;
+    }
+
+    private boolean tryLock() {
+        return Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                .setIfAbsent(LOCK_KEY, "1", LOCK_SECONDS, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 点赞数与点赞记录数的差异
+     *
+     * @param likeCount 读到的点赞数，修正时作为比较值
+     * @param delta 差值
+     */
+    private record Drift(long messageId, long likeCount, long delta) {
+
+        long corrected() {
+            return Math.max(0, likeCount + delta);
+        }
+    }
+
+    /**
+     * 一批的核对结果
+     *
+     * @param lastId 本批最后一个留言ID，作为下一批的断点
+     * @param checked 核对的留言数
+     * @param corrected 修正的留言数（含复核上一批的结果）
+     * @param done 是否已核对到最后一条留言
+     */
+    public record Batch(long lastId, int checked, int corrected, boolean done) {
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.HotRankingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * 点赞事件投影
+ *
+ * 消费点赞事件Topic，把一批事件按 留言ID:用户ID 折叠为最终状态后，在一个事务中写入点赞表和点赞数。
+ * 点赞数只按点赞记录的实际状态变化（未点赞->点赞 +1，点赞->取消 -1）累加，重复事件和已生效的事件不产生变化，
+ * 因此重复投递、重放整个Topic都不会改变结果；从空的点赞表和0点赞数重放即可精确重建。
+ *
+ * 同一个key总是落在同一分区，同一时间只被一个消费者处理，读取现有状态时无需加锁。
+ * 投影失败时抛出异常，由容器重试整批。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Service
+@Slf4j
+public class LikeEventProjection {
+
+    private static final int QUERY_CHUNK = 500;
+
+    private static final String INSERT_SQL = "INSERT INTO message_like (message_id, user_id, created_at, deleted) " +
+            "VALUES (?, ?, ?, FALSE)";
+    private static final String UPDATE_SQL = "UPDATE message_like SET deleted = ? WHERE message_id = ? AND user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RedisCacheService redisCacheService;
+    private final TimelineCacheService timelineCacheService;
+    private final HotRankingService hotRankingService;
+    private final LikeBitmapIndex likeBitmapIndex;
+    private final MessageSearchIndex messageSearchIndex;
+    private final HotRankingProperties hotRankingProperties;
+
+    private final Counter consumedEvents;
+    private final Counter appliedChanges;
+
+    public LikeEventProjection(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               RedisCacheService redisCacheService,
+                               TimelineCacheService timelineCacheService,
+                               HotRankingService hotRankingService,
+                               LikeBitmapIndex likeBitmapIndex,
+                               MessageSearchIndex messageSearchIndex,
+                               HotRankingProperties hotRankingProperties,
+                               MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.redisCacheService = redisCacheService;
+        this.timelineCacheService = timelineCacheService;
+        this.hotRankingService = hotRankingService;
+        this.likeBitmapIndex = likeBitmapIndex;
+        this.messageSearchIndex = messageSearchIndex;
+        this.hotRankingProperties = hotRankingProperties;
+        this.consumedEvents = Counter.builder("message.like.events.consumed")
+                .description("消费的点赞事件数")
+                .register(meterRegistry);
+        this.appliedChanges = Counter.builder("message.like.events.applied")
+                .description("实际改变点赞状态的事件数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 批量消费点赞事件
+     *
+     * @param records 一次拉取的点赞事件
+     */
+    @KafkaListener(topics = "#{@likeProperties.eventSourcing.topic}",
+            groupId = "message-board-like-projection",
+            containerFactory = "likeEventListenerContainerFactory",
+            autoStartup = "#{@likeProperties.eventSourcing.enabled}")
+    public void consumeLikeEvents(List<ConsumerRecord<String, String>> records) {
+        consumedEvents.increment(records.size());
+        List<Change> changes = project(fold(records));
+        log.debug("点赞事件投影完成: 事件数={}, 状态变化数={}", records.size(), changes.size());
+    }
+
+    /**
+     * 把一批事件投影到数据库，提交后同步缓存
+     *
+     * @param events 折叠后的事件，每个 留言ID:用户ID 最多一条
+     * @return 实际发生的状态变化
+     */
+    public List<Change> project(Map<LikeKey, LikeEvent> events) {
+        if (events.isEmpty()) {
+            return List.of();
+        }
+        List<Change> changes = transactionTemplate.execute(status -> apply(events));
+        if (changes == null || changes.isEmpty()) {
+            return List.of();
+        }
+        appliedChanges.increment(changes.size());
+
+        Map<Long, Integer> deltas = new TreeMap<>();
+        for (Change change : changes) {
+            deltas.merge(change.messageId(), change.liked() ? 1 : -1, Integer::sum);
+            if (change.liked()) {
+                likeBitmapIndex.onLiked(change.messageId(), change.userId());
+            } else {
+                likeBitmapIndex.onUnliked(change.messageId(), change.userId());
+            }
+        }
+        deltas.forEach((messageId, delta) -> {
+            if (delta != 0) {
+                timelineCacheService.onLikeChanged(messageId, delta);
+                hotRankingService.onLikeChanged(messageId, delta);
+            }
+        });
+        messageSearchIndex.onLikeCountsChanged(deltas.keySet());
+        redisCacheService.clearHotMessageCache();
+        return changes;
+    }
+
+    /**
+     * 按key折叠，同一key只保留最后一条（同一分区内按位点有序）；格式错误的事件跳过
+     */
+    static Map<LikeKey, LikeEvent> fold(List<ConsumerRecord<String, String>> records) {
+        Map<LikeKey, LikeEvent> events = new TreeMap<>();
+        for (ConsumerRecord<String, String> record : records) {
+            try {
+                String[] key = record.key().split(":");
+                LikeKey likeKey = new LikeKey(Long.parseLong(key[0]), Long.parseLong(key[1]));
+                events.put(likeKey, new LikeEvent(likeKey, "1".equals(record.value()), toLocalDateTime(record.timestamp())));
+            } catch (RuntimeException e) {
+                log.warn("点赞事件格式错误，已跳过: key={}, value={}, offset={}", record.key(), record.value(), record.offset());
+            }
+        }
+        return events;
+    }
+
+    private List<Change> apply(Map<LikeKey, LikeEvent> events) {
+        Map<LikeKey, Boolean> existing = loadExisting(events.keySet());
+        Set<Long> messageIds = loadIds("message", events.keySet().stream().map(LikeKey::messageId).toList());
+        Set<Long> userIds = loadIds("user", events.keySet().stream().map(LikeKey::userId).toList());
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Change> changes = new ArrayList<>();
+        for (LikeEvent event : events.values()) {
+            LikeKey key = event.key();
+            Boolean deleted = existing.get(key);
+            if (event.liked() && deleted == null) {
+                if (!messageIds.contains(key.messageId()) || !userIds.contains(key.userId())) {
+                    log.warn("点赞事件引用的留言或用户不存在，已跳过: {}", key);
+                    continue;
+                }
+                inserts.add(new Object[]{key.messageId(), key.userId(), Timestamp.valueOf(event.occurredAt())});
+            } else if (deleted != null && deleted == event.liked()) {
+                updates.add(new Object[]{!event.liked(), key.messageId(), key.userId()});
+            } else {
+                continue;
+            }
+            changes.add(new Change(key.messageId(), key.userId(), event.liked()));
+        }
+        if (changes.isEmpty()) {
+            return changes;
+        }
+
+        // 与点赞接口相同，先更新留言行再写点赞记录；按留言ID排序保证加锁顺序一致
+        Map<Long, Integer> deltas = new TreeMap<>();
+        changes.forEach(change -> deltas.merge(change.messageId(), change.liked() ? 1 : -1, Integer::sum));
+        List<Object[]> counts = new ArrayList<>(deltas.size());
+        deltas.forEach((messageId, delta) -> {
+            if (delta != 0) {
+                counts.add(LikeCountBuffer.flushArgs(messageId, delta, hotRankingProperties.getMinLikes()));
+            }
+        });
+        jdbcTemplate.batchUpdate(LikeCountBuffer.FLUSH_SQL, counts);
+        jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+        jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+        return changes;
+    }
+
+    /**
+     * 读取这批key的现有点赞记录
+     *
+     * @return key -> 是否已软删除，不存在的key不在结果中
+     */
+    private Map<LikeKey, Boolean> loadExisting(Set<LikeKey> keys) {
+        Map<LikeKey, Boolean> existing = new HashMap<>();
+        List<LikeKey> all = new ArrayList<>(keys);
+        for (int from = 0; from < all.size(); from += QUERY_CHUNK) {
+            List<LikeKey> chunk = all.subList(from, Math.min(from + QUERY_CHUNK, all.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "(?, ?)"));
+            Object[] args = chunk.stream()
+                    .flatMap(key -> Stream.of(key.messageId(), key.userId()))
+                    .toArray();
+            jdbcTemplate.query("SELECT message_id, user_id, deleted FROM message_like WHERE (message_id, user_id) IN (" +
+                            placeholders + ")",
+                    (RowCallbackHandler) rs -> existing.put(new LikeKey(rs.getLong(1), rs.getLong(2)), rs.getBoolean(3)),
+                    args);
+        }
+        return existing;
+    }
+
+    private Set<Long> loadIds(String table, List<Long> ids) {
+        List<Long> distinct = new ArrayList<>(new HashSet<>(ids));
+        Set<Long> found = new HashSet<>();
+        for (int from = 0; from < distinct.size(); from += QUERY_CHUNK) {
+            List<Long> chunk = distinct.subList(from, Math.min(from + QUERY_CHUNK, distinct.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            found.addAll(jdbcTemplate.queryForList("SELECT id FROM " + table + " WHERE id IN (" + placeholders + ")",
+                    Long.class, chunk.toArray()));
+        }
+        return found;
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    /**
+     * 事件key：留言ID:用户ID
+     */
+    public record LikeKey(long messageId, long userId) implements Comparable<LikeKey> {
+
+        @Override
+        public int compareTo(LikeKey other) {
+            int byMessage = Long.compare(messageId, other.messageId);
+            return byMessage != 0 ? byMessage : Long.compare(userId, other.userId);
+        }
+
+        @Override
+        public String toString() {
+            return messageId + ":" + userId;
+        }
+    }
+
+    /**
+     * 折叠后的点赞事件
+     */
+    public record LikeEvent(LikeKey key, boolean liked, LocalDateTime occurredAt) {
+    }
+
+    /**
+     * 实际发生的点赞状态变化
+     */
+    public record Change(long messageId, long userId, boolean liked) {
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.CacheProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内一级缓存
+ *
+ * 位于 RedisCacheService 之前，命中时既没有网络往返也没有反序列化开销。
+ * 每个区域（留言列表、热门留言）独立限制条目数并按写入时间过期；
+ * 区域被清除时通过Redis发布/订阅通知所有节点同步失效。
+ * 缓存对象在节点内共享，调用方不应修改取出的对象。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Service
+@Slf4j
+public class LocalMessageCache implements MessageListener {
+
+    /**
+     * 缓存失效通知频道，消息格式：区域|节点ID|发布时间戳(毫秒)
+     */
+    public static final String INVALIDATION_CHANNEL = "message:cache:invalidate";
+
+    public static final String REGION_LIST = "list";
+    public static final String REGION_HOT = "hot";
+
+    private static final String SEPARATOR = "|";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final Map<String, Cache<String, Object>> regions = new ConcurrentHashMap<>();
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Timer invalidationLag;
+
+    public LocalMessageCache(StringRedisTemplate stringRedisTemplate,
+                             CacheProperties cacheProperties,
+                             MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        CacheProperties.Local config = cacheProperties.getLocal();
+        for (String region : new String[]{REGION_LIST, REGION_HOT}) {
+            Cache<String, Object> cache = Caffeine.newBuilder()
+                    .maximumSize(config.getMaxSize())
+                    .expireAfterWrite(config.getTtl())
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "message.local." + region);
+            regions.put(region, cache);
+        }
+        // 跨节点失效延迟：从其他节点发布失效消息到本节点收到的时间
+        this.invalidationLag = Timer.builder("message.cache.invalidation.lag")
+                .description("跨节点一级缓存失效延迟")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 从一级缓存获取数据
+     *
+     * @param region 缓存区域
+     * @param key 缓存key
+     * @return 缓存数据，不存在时返回null
+     */
+    public Object get(String region, String key) {
+        return regions.get(region).getIfPresent(key);
+    }
+
+    /**
+     * 写入一级缓存
+     *
+     * @param region 缓存区域
+     * @param key 缓存key
+     * @param value 缓存数据
+     */
+    public void put(String region, String key, Object value) {
+        regions.get(region).put(key, value);
+    }
+
+    /**
+     * 清除本节点的区域缓存，并通知其他节点
+     *
+     * @param region 缓存区域
+     */
+    public void invalidate(String region) {
+        regions.get(region).invalidateAll();
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL,
+                    region + SEPARATOR + nodeId + SEPARATOR + System.currentTimeMillis());
+        } catch (Exception e) {
+            log.warn("发布缓存失效通知失败: region={}, 错误={}", region, e.getMessage());
+        }
+    }
+
+    /**
+     * 处理其他节点发布的失效通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|");
+        if (parts.length != 3 || nodeId.equals(parts[1])) {
+            return;
+        }
+        Cache<String, Object> cache = regions.get(parts[0]);
+        if (cache == null) {
+            return;
+        }
+        cache.invalidateAll();
+        try {
+            long lagMillis = System.currentTimeMillis() - Long.parseLong(parts[2]);
+            invalidationLag.record(Duration.ofMillis(Math.max(0, lagMillis)));
+        } catch (NumberFormatException e) {
+            log.warn("缓存失效通知格式错误: {}", parts[2]);
+        }
+        log.debug("收到缓存失效通知，已清除本地缓存: region={}, 来源节点={}", parts[0], parts[1]);
+    }
+}
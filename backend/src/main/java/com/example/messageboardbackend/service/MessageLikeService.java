@@ -1,6 +1,12 @@
 package com.example.messageboardbackend.service;
 
 import com.example.messageboardbackend.dto.ApiResponse;
+import com.example.messageboardbackend.dto.LikeResultDto;
+import com.example.messageboardbackend.dto.MessageDto;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 留言点赞服务接口
@@ -11,22 +17,22 @@ import com.example.messageboardbackend.dto.ApiResponse;
 public interface MessageLikeService {
     
     /**
-     * 用户点赞留言
+     * 用户点赞留言（幂等，已点赞时直接返回当前状态）
      * 
      * @param messageId 留言ID
      * @param username 用户名
-     * @return 操作结果
+     * @return 操作后的点赞状态和点赞数
      */
-    ApiResponse<String> likeMessage(Long messageId, String username);
+    ApiResponse<LikeResultDto> likeMessage(Long messageId, String username);
     
     /**
-     * 用户取消点赞
+     * 用户取消点赞（幂等，未点赞时直接返回当前状态）
      * 
      * @param messageId 留言ID
      * @param username 用户名
-     * @return 操作结果
+     * @return 操作后的点赞状态和点赞数
      */
-    ApiResponse<String> unlikeMessage(Long messageId, String username);
+    ApiResponse<LikeResultDto> unlikeMessage(Long messageId, String username);
     
     /**
      * 检查用户是否已点赞某条留言
@@ -44,4 +50,24 @@ public interface MessageLikeService {
      * @return 点赞数量
      */
     long getMessageLikeCount(Long messageId);
+    
+    /**
+     * 批量检查用户对多条留言的点赞状态
+     * 
+     * @param messageIds 留言ID集合
+     * @param username 用户名
+     * @return 留言ID -> 是否已点赞
+     */
+    Map<Long, Boolean> getLikeStatuses(Collection<Long> messageIds, String username);
+    
+    /**
+     * 为一页留言填充当前用户的点赞状态
+     * 
+     * 返回的是副本，不修改传入的对象（列表可能来自进程内缓存，被所有用户共享）
+     * 
+     * @param messages 留言列表
+     * @param username 用户名，为空时视为未点赞
+     * @return 填充了isLiked的留言列表
+     */
+    List<MessageDto> fillLikeStatus(List<MessageDto> messages, String username);
 }
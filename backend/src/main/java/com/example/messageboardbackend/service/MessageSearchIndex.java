@@ -0,0 +1,710 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.HotRankingProperties;
+import com.example.messageboardbackend.config.SearchProperties;
+import com.example.messageboardbackend.dto.MessageDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Matches;
+import org.apache.lucene.search.MatchesIterator;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 留言搜索的进程内倒排索引
+ *
+ * 用 Lucene 在本节点目录中维护留言内容的倒排索引，CJKAnalyzer 把中日韩文字切成二元词元（与MySQL ngram一致），
+ * 英文按单词切分并转小写。索引中存有展示所需的全部字段，点赞数以 DocValues 保存并原地更新，搜索完全不访问数据库：
+ * <ul>
+ *   <li>NATURAL：关键词切成的词元任一命中即返回，按 BM25 相关度排序</li>
+ *   <li>BOOLEAN：支持 +必须 -排除 "短语" 前缀* 等运算符，每个关键词按短语匹配</li>
+ * </ul>
+ * 结果附带命中片段在内容中的字符偏移，供前端高亮。
+ *
+ * 留言发布、修改、删除和点赞数变化在事务提交后写入索引，按刷新间隔近实时可见，并通过发布/订阅通知其他节点。
+ * 按提交间隔提交到磁盘，提交时记录时间点；重启后从该时间点追赶数据库中修改过的留言，没有提交过则按主键分批重建。
+ * 加载期间 isReady 返回false，调用方改用数据库搜索；期间变化的留言在加载完成后按ID重新读取。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Service
+@Slf4j
+public class MessageSearchIndex implements MessageListener {
+
+    /**
+     * 索引变化通知频道，消息格式：U|留言ID|节点ID（重新读取）、D|留言ID|节点ID（删除）、L|留言ID|点赞数|节点ID
+     */
+    public static final String CHANNEL = "message:search:index";
+
+    static final String FIELD_ID = "id";
+    static final String FIELD_SORT_ID = "sort_id";
+    static final String FIELD_CONTENT = "content";
+    static final String FIELD_USER_ID = "user_id";
+    static final String FIELD_USERNAME = "username";
+    static final String FIELD_CREATED_AT = "created_at";
+    static final String FIELD_UPDATED_AT = "updated_at";
+    static final String FIELD_LIKE_COUNT = "like_count";
+
+    private static final String WATERMARK_KEY = "updated_at";
+    private static final String SEPARATOR = "|";
+
+    /**
+     * 追赶时从提交时间点再往前多读的时长，覆盖提交时已写库但还未写入索引的留言
+     */
+    private static final Duration CATCH_UP_OVERLAP = Duration.ofMinutes(5);
+
+    private static final String SELECT_SQL = "SELECT m.id, m.user_id, m.content, u.username, m.created_at, " +
+            "m.updated_at, m.deleted, m.like_count FROM message m JOIN user u ON u.id = m.user_id ";
+    private static final String REBUILD_SQL = SELECT_SQL + "WHERE m.deleted = FALSE AND m.id > ? ORDER BY m.id LIMIT ?";
+    private static final String CATCH_UP_SQL = SELECT_SQL + "WHERE m.updated_at >= ? AND m.id > ? ORDER BY m.id LIMIT ?";
+    private static final String BY_ID_SQL = SELECT_SQL + "WHERE m.id = ?";
+    private static final String LIKE_COUNT_SQL = "SELECT id, like_count FROM message " +
+            "WHERE deleted = FALSE AND id > ? ORDER BY id LIMIT ?";
+
+    /**
+     * 内容字段额外记录字符偏移，用于返回高亮位置
+     */
+    private static final FieldType CONTENT_TYPE = new FieldType(TextField.TYPE_STORED);
+
+    static {
+        CONTENT_TYPE.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        CONTENT_TYPE.freeze();
+    }
+
+    /**
+     * 相关度相同时新留言在前
+     */
+    private static final Sort BY_RELEVANCE = new Sort(SortField.FIELD_SCORE,
+            new SortField(FIELD_SORT_ID, SortField.Type.LONG, true));
+
+    private final SearchProperties searchProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final LikeCountBuffer likeCountBuffer;
+    private final HotRankingProperties hotRankingProperties;
+
+    private final Analyzer analyzer = new CJKAnalyzer();
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 加载期间变化的留言ID，加载完成后重新读取
+     */
+    private final Set<Long> loadingChanges = ConcurrentHashMap.newKeySet();
+
+    private Directory directory;
+    private volatile IndexWriter writer;
+    private volatile SearcherManager searcherManager;
+    private volatile boolean loading;
+    private volatile boolean ready;
+
+    public MessageSearchIndex(SearchProperties searchProperties,
+                              JdbcTemplate jdbcTemplate,
+                              StringRedisTemplate stringRedisTemplate,
+                              LikeCountBuffer likeCountBuffer,
+                              HotRankingProperties hotRankingProperties,
+                              MeterRegistry meterRegistry) {
+        this.searchProperties = searchProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.likeCountBuffer = likeCountBuffer;
+        this.hotRankingProperties = hotRankingProperties;
+        Gauge.builder("message.search.index.docs", this, MessageSearchIndex::numDocs)
+                .description("搜索索引中的留言数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 是否配置为使用进程内索引
+     *
+     * @return engine=lucene 时返回true
+     */
+    public boolean isEnabled() {
+        return searchProperties.getEngine() == SearchProperties.Engine.LUCENE;
+    }
+
+    /**
+     * 索引是否已加载完成，未完成时调用方应查库
+     *
+     * @return 是否就绪
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 按相关度搜索留言
+     *
+     * @param query 关键词
+     * @param mode 搜索模式
+     * @param pageable 分页参数（排序被忽略，按相关度倒序）
+     * @return 留言分页结果（点赞数已是最新值，附带高亮位置），索引不可用或关键词短于词元长度时返回null
+     */
+    public Page<MessageDto> search(String query, MessageSearchService.SearchMode mode, Pageable pageable) {
+        String keyword = query == null ? "" : query.trim();
+        SearcherManager manager = searcherManager;
+        if (!ready || manager == null || keyword.length() < searchProperties.getMinTokenLength()) {
+            return null;
+        }
+        Query parsed = parse(keyword, mode);
+        Pageable byRelevance = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        try {
+            IndexSearcher searcher = manager.acquire();
+            try {
+                int total = searcher.count(parsed);
+                if (byRelevance.getOffset() >= total) {
+                    return new PageImpl<>(List.of(), byRelevance, total);
+                }
+                int end = (int) Math.min(byRelevance.getOffset() + byRelevance.getPageSize(), total);
+                TopDocs top = searcher.search(parsed, end, BY_RELEVANCE);
+                Weight weight = searcher.createWeight(searcher.rewrite(parsed), ScoreMode.COMPLETE_NO_SCORES, 1);
+                List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+                StoredFields storedFields = searcher.storedFields();
+                List<MessageDto> content = new ArrayList<>(top.scoreDocs.length);
+                for (int i = (int) byRelevance.getOffset(); i < top.scoreDocs.length; i++) {
+                    ScoreDoc hit = top.scoreDocs[i];
+                    LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(hit.doc, leaves));
+                    int leafDoc = hit.doc - leaf.docBase;
+                    MessageDto dto = toDto(storedFields.document(hit.doc), likeCount(leaf, leafDoc));
+                    dto.setHighlights(highlights(weight, leaf, leafDoc));
+                    content.add(dto);
+                }
+                return new PageImpl<>(content, byRelevance, total);
+            } finally {
+                manager.release(searcher);
+            }
+        } catch (IOException e) {
+            log.warn("搜索索引读取失败，改用数据库搜索: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 留言发布或修改的事务提交后调用
+     *
+     * @param dto 留言
+     */
+    public void onSaved(MessageDto dto) {
+        if (!isEnabled() || !apply(dto.getId(), () -> write(dto))) {
+            return;
+        }
+        publish("U" + SEPARATOR + dto.getId());
+    }
+
+    /**
+     * 留言删除的事务提交后调用
+     *
+     * @param messageId 留言ID
+     */
+    public void onDeleted(Long messageId) {
+        if (!isEnabled() || !apply(messageId, () -> delete(messageId))) {
+            return;
+        }
+        publish("D" + SEPARATOR + messageId);
+    }
+
+    /**
+     * 点赞数变化的事务提交后调用
+     *
+     * @param messageId 留言ID
+     * @param likeCount 变化后的点赞数
+     */
+    public void onLikeCountChanged(Long messageId, long likeCount) {
+        if (!isEnabled() || !apply(messageId, () -> writeLikeCount(messageId, likeCount))) {
+            return;
+        }
+        publish("L" + SEPARATOR + messageId + SEPARATOR + likeCount);
+    }
+
+    /**
+     * 批量投影点赞事件的事务提交后调用，一次查询读出这些留言的点赞数
+     *
+     * @param messageIds 点赞数变化的留言ID
+     */
+    public void onLikeCountsChanged(Collection<Long> messageIds) {
+        if (!isEnabled() || messageIds.isEmpty()) {
+            return;
+        }
+        try {
+            String placeholders = String.join(",", Collections.nCopies(messageIds.size(), "?"));
+            jdbcTemplate.query("SELECT id, like_count FROM message WHERE id IN (" + placeholders + ")",
+                    (RowCallbackHandler) rs -> onLikeCountChanged(rs.getLong(1),
+                            rs.getLong(2) + likeCountBuffer.pendingDelta(rs.getLong(1))),
+                    messageIds.toArray());
+        } catch (Exception e) {
+            log.warn("读取点赞数更新搜索索引失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 应用启动完成后在后台加载索引，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        if (!isEnabled()) {
+            return;
+        }
+        loading = true;
+        Thread loader = new Thread(this::load, "search-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * 处理其他节点发布的索引变化
+     */
+    @Override
+    public void onMessage(org.springframework.data.redis.connection.Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|");
+        if (parts.length < 3 || nodeId.equals(parts[parts.length - 1]) || !isEnabled()) {
+            return;
+        }
+        try {
+            long messageId = Long.parseLong(parts[1]);
+            switch (parts[0]) {
+                case "U" -> apply(messageId, () -> reload(messageId));
+                case "D" -> apply(messageId, () -> delete(messageId));
+                case "L" -> {
+                    long likeCount = Long.parseLong(parts[2]);
+                    apply(messageId, () -> writeLikeCount(messageId, likeCount));
+                }
+                default -> log.warn("搜索索引通知格式错误: {}", body);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("搜索索引通知格式错误: {}", body);
+        }
+    }
+
+    /**
+     * 近实时刷新，使已写入的变化可以搜到
+     */
+    @Scheduled(fixedDelayString = "#{@searchProperties.lucene.refreshInterval.toMillis()}")
+    public void refresh() {
+        SearcherManager manager = searcherManager;
+        if (manager == null) {
+            return;
+        }
+        try {
+            manager.maybeRefresh();
+        } catch (Exception e) {
+            log.warn("刷新搜索索引失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时提交到磁盘，记录本次提交的时间点
+     */
+    @Scheduled(fixedDelayString = "#{@searchProperties.lucene.commitInterval.toMillis()}")
+    public void commit() {
+        if (!ready) {
+            return;
+        }
+        try {
+            commit(LocalDateTime.now());
+        } catch (Exception e) {
+            log.warn("提交搜索索引失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 关闭前提交；未加载完成的索引不提交，下次启动重新加载
+     */
+    @PreDestroy
+    public void close() {
+        ready = false;
+        try {
+            if (writer != null && !loading) {
+                commit(LocalDateTime.now());
+            }
+            if (searcherManager != null) {
+                searcherManager.close();
+            }
+            if (writer != null) {
+                writer.close();
+            }
+            if (directory != null) {
+                directory.close();
+            }
+        } catch (Exception e) {
+            log.warn("关闭搜索索引失败: {}", e.getMessage());
+        } finally {
+            searcherManager = null;
+            writer = null;
+        }
+    }
+
+    /**
+     * 打开索引目录：没有提交过时从数据库重建，否则追赶上次提交之后修改过的留言
+     */
+    void load() {
+        loading = true;
+        long start = System.currentTimeMillis();
+        try {
+            LocalDateTime loadStart = LocalDateTime.now();
+            String watermark = open();
+            long rows;
+            if (watermark == null) {
+                writer.deleteAll();
+                rows = stream(REBUILD_SQL, null);
+            } else {
+                rows = stream(CATCH_UP_SQL, Timestamp.valueOf(LocalDateTime.parse(watermark).minus(CATCH_UP_OVERLAP)));
+                // 点赞数更新时显式保留 updated_at，按更新时间追赶读不到，单独同步一遍
+                syncLikeCounts();
+            }
+            // 加载期间变化的留言可能被批量读取的旧数据覆盖，重新读取一次
+            Iterator<Long> changed = loadingChanges.iterator();
+            while (changed.hasNext()) {
+                reload(changed.next());
+                changed.remove();
+            }
+            loading = false;
+            loadingChanges.clear();
+            commit(loadStart);
+            searcherManager.maybeRefreshBlocking();
+            ready = true;
+            log.info("搜索索引加载完成: 方式={}, 读取留言={}, 索引留言={}, 耗时={}ms",
+                    watermark == null ? "重建" : "追赶", rows, numDocs(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            loading = false;
+            loadingChanges.clear();
+            log.error("搜索索引加载失败，搜索继续查库: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 打开索引目录和写入器
+     *
+     * @return 上次提交记录的时间点，没有提交过时返回null
+     */
+    private String open() throws IOException {
+        directory = FSDirectory.open(Paths.get(searchProperties.getLucene().getIndexDir()));
+        String watermark = null;
+        if (DirectoryReader.indexExists(directory)) {
+            watermark = SegmentInfos.readLatestCommit(directory).getUserData().get(WATERMARK_KEY);
+        }
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                // 只在加载完成后由 commit 提交，避免半途关闭留下带时间点的不完整索引
+                .setCommitOnClose(false);
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, null);
+        return watermark;
+    }
+
+    private void commit(LocalDateTime watermark) throws IOException {
+        IndexWriter current = writer;
+        if (current == null) {
+            return;
+        }
+        current.setLiveCommitData(Map.of(WATERMARK_KEY, watermark.toString()).entrySet());
+        current.commit();
+    }
+
+    /**
+     * 按主键分批读取留言写入索引，每批只持有当前一批的数据
+     *
+     * @param sql 分批查询，最后两个参数为上一批最后的ID和条数
+     * @param since 更新时间下限，重建时为null
+     * @return 读取的留言数
+     */
+    private long stream(String sql, Timestamp since) {
+        int batchSize = searchProperties.getLucene().getBatchSize();
+        long[] lastId = {0};
+        long total = 0;
+        int rows;
+        do {
+            int[] count = {0};
+            RowCallbackHandler handler = rs -> {
+                lastId[0] = rs.getLong(1);
+                count[0]++;
+                MessageDto dto = readRow(rs);
+                if (dto.getDeleted()) {
+                    delete(dto.getId());
+                } else {
+                    write(dto);
+                }
+            };
+            if (since == null) {
+                jdbcTemplate.query(sql, handler, lastId[0], batchSize);
+            } else {
+                jdbcTemplate.query(sql, handler, since, lastId[0], batchSize);
+            }
+            rows = count[0];
+            total += rows;
+        } while (rows == batchSize);
+        return total;
+    }
+
+    private void syncLikeCounts() {
+        int batchSize = searchProperties.getLucene().getBatchSize();
+        long[] lastId = {0};
+        int rows;
+        do {
+            int[] count = {0};
+            jdbcTemplate.query(LIKE_COUNT_SQL, (RowCallbackHandler) rs -> {
+                lastId[0] = rs.getLong(1);
+                count[0]++;
+                writeLikeCount(lastId[0], rs.getLong(2) + likeCountBuffer.pendingDelta(lastId[0]));
+            }, lastId[0], batchSize);
+            rows = count[0];
+        } while (rows == batchSize);
+    }
+
+    /**
+     * 从数据库重新读取一条留言，已删除或不存在时移出索引
+     */
+    private void reload(Long messageId) {
+        List<MessageDto> rows = jdbcTemplate.query(BY_ID_SQL, (rs, rowNum) -> readRow(rs), messageId);
+        if (rows.isEmpty() || rows.get(0).getDeleted()) {
+            delete(messageId);
+        } else {
+            write(rows.get(0));
+        }
+    }
+
+    /**
+     * 写入本节点索引；索引尚未打开时忽略，加载期间同时记录留言ID
+     *
+     * @return 是否已写入（或已记录待加载完成后处理）
+     */
+    private boolean apply(Long messageId, Runnable change) {
+        if (loading) {
+            loadingChanges.add(messageId);
+        }
+        if (writer == null) {
+            return loading;
+        }
+        try {
+            change.run();
+            return true;
+        } catch (Exception e) {
+            log.warn("更新搜索索引失败: ID={}, 错误={}", messageId, e.getMessage());
+            return false;
+        }
+    }
+
+    private void publish(String change) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, change + SEPARATOR + nodeId);
+        } catch (Exception e) {
+            log.warn("发布搜索索引变化失败: {}, 错误={}", change, e.getMessage());
+        }
+    }
+
+    private void write(MessageDto dto) {
+        try {
+            writer.updateDocument(idTerm(dto.getId()), toDocument(dto));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void delete(Long messageId) {
+        try {
+            writer.deleteDocuments(idTerm(messageId));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLikeCount(Long messageId, long likeCount) {
+        try {
+            writer.updateNumericDocValue(idTerm(messageId), FIELD_LIKE_COUNT, Math.max(0, likeCount));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Term idTerm(Long messageId) {
+        return new Term(FIELD_ID, String.valueOf(messageId));
+    }
+
+    private MessageDto readRow(ResultSet rs) throws SQLException {
+        long id = rs.getLong(1);
+        int likeCount = (int) Math.max(0, rs.getLong(8) + likeCountBuffer.pendingDelta(id));
+        return new MessageDto(id, rs.getLong(2), rs.getString(3), rs.getString(4),
+                toLocalDateTime(rs.getTimestamp(5)), toLocalDateTime(rs.getTimestamp(6)), rs.getBoolean(7),
+                likeCount, hotRankingProperties.isHot(likeCount));
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+
+    private static Document toDocument(MessageDto dto) {
+        Document document = new Document();
+        document.add(new StringField(FIELD_ID, String.valueOf(dto.getId()), Field.Store.YES));
+        document.add(new NumericDocValuesField(FIELD_SORT_ID, dto.getId()));
+        document.add(new Field(FIELD_CONTENT, dto.getContent() == null ? "" : dto.getContent(), CONTENT_TYPE));
+        document.add(new NumericDocValuesField(FIELD_LIKE_COUNT,
+                dto.getLikeCount() == null ? 0 : Math.max(0, dto.getLikeCount())));
+        if (dto.getUserId() != null) {
+            document.add(new StoredField(FIELD_USER_ID, dto.getUserId()));
+        }
+        if (dto.getUsername() != null) {
+            document.add(new StoredField(FIELD_USERNAME, dto.getUsername()));
+        }
+        if (dto.getCreatedAt() != null) {
+            document.add(new StoredField(FIELD_CREATED_AT, epochMillis(dto.getCreatedAt())));
+        }
+        if (dto.getUpdatedAt() != null) {
+            document.add(new StoredField(FIELD_UPDATED_AT, epochMillis(dto.getUpdatedAt())));
+        }
+        return document;
+    }
+
+    private MessageDto toDto(Document document, int likeCount) {
+        Number userId = document.getField(FIELD_USER_ID) == null ? null : document.getField(FIELD_USER_ID).numericValue();
+        return new MessageDto(Long.valueOf(document.get(FIELD_ID)),
+                userId == null ? null : userId.longValue(),
+                document.get(FIELD_CONTENT),
+                document.get(FIELD_USERNAME),
+                toLocalDateTime(document, FIELD_CREATED_AT),
+                toLocalDateTime(document, FIELD_UPDATED_AT),
+                false,
+                likeCount,
+                hotRankingProperties.isHot(likeCount));
+    }
+
+    private static int likeCount(LeafReaderContext leaf, int leafDoc) throws IOException {
+        NumericDocValues values = DocValues.getNumeric(leaf.reader(), FIELD_LIKE_COUNT);
+        return values.advanceExact(leafDoc) ? (int) values.longValue() : 0;
+    }
+
+    /**
+     * 命中片段在内容中的字符偏移 [起, 止)，相邻或重叠的二元词元合并为一段
+     */
+    private static List<int[]> highlights(Weight weight, LeafReaderContext leaf, int leafDoc) throws IOException {
+        List<int[]> offsets = new ArrayList<>();
+        Matches matches = weight.matches(leaf, leafDoc);
+        MatchesIterator iterator = matches == null ? null : matches.getMatches(FIELD_CONTENT);
+        if (iterator == null) {
+            return offsets;
+        }
+        while (iterator.next()) {
+            if (iterator.startOffset() >= 0) {
+                offsets.add(new int[]{iterator.startOffset(), iterator.endOffset()});
+            }
+        }
+        offsets.sort(Comparator.comparingInt(range -> range[0]));
+        List<int[]> merged = new ArrayList<>(offsets.size());
+        for (int[] range : offsets) {
+            int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1]) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 解析关键词；自然语言模式转义全部运算符，按普通文本处理
+     */
+    private Query parse(String keyword, MessageSearchService.SearchMode mode) {
+        QueryParser parser = new QueryParser(FIELD_CONTENT, analyzer);
+        parser.setDefaultOperator(QueryParser.Operator.OR);
+        try {
+            if (mode == MessageSearchService.SearchMode.BOOLEAN) {
+                // 一个关键词切出的多个二元词元按短语匹配，结果与 LIKE '%关键词%' 一致
+                parser.setSplitOnWhitespace(true);
+                parser.setAutoGeneratePhraseQueries(true);
+                return parser.parse(keyword);
+            }
+            return parser.parse(QueryParser.escape(keyword.toLowerCase(Locale.ROOT)));
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("搜索语法错误: " + keyword);
+        }
+    }
+
+    private int numDocs() {
+        IndexWriter current = writer;
+        try {
+            return current == null ? 0 : current.getDocStats().numDocs;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(Document document, String field) {
+        if (document.getField(field) == null) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(document.getField(field).numericValue().longValue()),
+                ZoneId.systemDefault());
+    }
+}
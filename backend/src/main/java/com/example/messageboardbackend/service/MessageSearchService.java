@@ -0,0 +1,117 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.SearchProperties;
+import com.example.messageboardbackend.repository.MessageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * 留言全文搜索
+ *
+ * 使用 message.content 上的 FULLTEXT 索引（WITH PARSER ngram，见 sql/fulltext.sql）按相关度搜索，
+ * 只返回留言ID，留言内容由调用方按ID批量查询。
+ * <ul>
+ *   <li>NATURAL：自然语言模式，关键词切成的词元任一命中即返回，按相关度排序，适合模糊搜索</li>
+ *   <li>BOOLEAN：布尔模式，支持 +必须 -排除 "短语" 前缀* 等运算符；ngram下每个关键词按短语匹配，结果与LIKE一致</li>
+ * </ul>
+ * 全文索引不存在（未执行建索引脚本、测试用的H2）或关键词短于词元长度时返回null，由调用方退回LIKE查询。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageSearchService {
+
+    private static final String INDEX_SQL = "SELECT COUNT(*) FROM information_schema.statistics " +
+            "WHERE table_schema = DATABASE() AND table_name = 'message' AND column_name = 'content' " +
+            "AND index_type = 'FULLTEXT'";
+
+    private final MessageRepository messageRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final SearchProperties searchProperties;
+
+    /**
+     * 全文索引是否存在，首次搜索时检查
+     */
+    private volatile Boolean fulltextAvailable;
+
+    /**
+     * 按相关度搜索留言ID
+     *
+     * @param query 关键词
+     * @param mode 搜索模式
+     * @param pageable 分页参数（排序被忽略，按相关度倒序）
+     * @return 留言ID分页结果，不能使用全文索引时返回null
+     */
+    public Page<Long> searchIds(String query, SearchMode mode, Pageable pageable) {
+        String keyword = query == null ? "" : query.trim();
+        if (!isFulltextAvailable() || keyword.length() < searchProperties.getMinTokenLength()) {
+            return null;
+        }
+        Pageable byRelevance = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        return mode == SearchMode.BOOLEAN
+                ? messageRepository.searchIdsInBooleanMode(keyword, byRelevance)
+                : messageRepository.searchIdsInNaturalMode(keyword, byRelevance);
+    }
+
+    /**
+     * 是否使用全文索引搜索
+     *
+     * @return 配置为全文搜索且索引存在时返回true
+     */
+    public boolean isFulltextAvailable() {
+        if (searchProperties.getEngine() != SearchProperties.Engine.FULLTEXT) {
+            return false;
+        }
+        Boolean available = fulltextAvailable;
+        if (available == null) {
+            available = detectFulltextIndex();
+            fulltextAvailable = available;
+        }
+        return available;
+    }
+
+    private boolean detectFulltextIndex() {
+        try {
+            Integer count = jdbcTemplate.queryForObject(INDEX_SQL, Integer.class);
+            boolean found = count != null && count > 0;
+            if (!found) {
+                log.warn("message.content 上没有FULLTEXT索引，搜索使用LIKE，请执行 sql/fulltext.sql");
+            }
+            return found;
+        } catch (Exception e) {
+            log.warn("检查全文索引失败，搜索使用LIKE: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 全文搜索模式
+     */
+    public enum SearchMode {
+        NATURAL,
+        BOOLEAN;
+
+        /**
+         * 解析请求参数，不区分大小写
+         *
+         * @param value 参数值
+         * @return 搜索模式
+         */
+        public static SearchMode of(String value) {
+            for (SearchMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(value)) {
+                    return mode;
+                }
+            }
+            throw new IllegalArgumentException("不支持的搜索模式: " + value + "，可选: natural、boolean");
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.messageboardbackend.service;
 
+import com.example.messageboardbackend.dto.CursorPage;
 import com.example.messageboardbackend.dto.MessageDto;
 import com.example.messageboardbackend.model.Message;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -72,7 +74,7 @@ public interface MessageService {
     Page<MessageDto> getMessagesByUserId(Long userId, Pageable pageable);
     
     /**
-     * 根据内容搜索留言
+     * 根据内容搜索留言（自然语言模式）
      * 
      * @param content 搜索内容
      * @param pageable 分页参数
@@ -80,6 +82,16 @@ public interface MessageService {
      */
     Page<MessageDto> searchMessagesByContent(String content, Pageable pageable);
     
+    /**
+     * 根据内容搜索留言：有全文索引时按相关度排序，否则按LIKE匹配、使用分页参数中的排序
+     * 
+     * @param content 搜索内容
+     * @param mode 全文搜索模式
+     * @param pageable 分页参数
+     * @return 留言分页结果
+     */
+    Page<MessageDto> searchMessagesByContent(String content, MessageSearchService.SearchMode mode, Pageable pageable);
+    
     /**
      * 获取热门留言列表（分页）
      * 
@@ -94,4 +106,41 @@ public interface MessageService {
      * @return 热门留言列表
      */
     List<MessageDto> getAllHotMessages();
+    
+    /**
+     * 游标分页获取留言列表
+     * 
+     * @param before 上一页返回的游标，为空表示第一页
+     * @param limit 每页大小
+     * @return 留言游标分页结果
+     */
+    CursorPage<MessageDto> getMessageFeed(String before, int limit);
+    
+    /**
+     * 游标分页获取用户留言列表
+     * 
+     * @param userId 用户ID
+     * @param before 上一页返回的游标，为空表示第一页
+     * @param limit 每页大小
+     * @return 留言游标分页结果
+     */
+    CursorPage<MessageDto> getMessageFeedByUserId(Long userId, String before, int limit);
+    
+    /**
+     * 游标分页获取热门留言列表
+     * 
+     * @param before 上一页返回的游标，为空表示第一页
+     * @param limit 每页大小
+     * @return 热门留言游标分页结果
+     */
+    CursorPage<MessageDto> getHotMessageFeed(String before, int limit);
+    
+    /**
+     * 获取近期趋势留言（窗口内净点赞数最多）
+     * 
+     * @param window 统计窗口
+     * @param limit 条数
+     * @return 按净点赞数倒序的留言列表
+     */
+    List<MessageDto> getTrendingMessages(Duration window, int limit);
 }
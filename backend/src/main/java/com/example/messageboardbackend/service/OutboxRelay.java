@@ -0,0 +1,223 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.OutboxProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 发件箱转发任务
+ *
+ * 定时按ID顺序取一批发件箱事件，全部发送到Kafka并等到确认后，在同一个事务中用一条 DELETE ... IN 删除。
+ * 系统日志事件（system-logs）不在这里等待确认，而是按顺序交给 {@link SystemLogPublisher} 的发送队列后一起删除：
+ * 由它的发送线程攒批压缩后发送，Kafka不可用时写入本地缓冲，恢复后按顺序补发，
+ * 日志量大或Broker故障时发件箱不会积压，转发任务也不会为日志占用行锁和连接。
+ * 每批的事务先锁住 outbox_relay_lock 的唯一一行（FOR UPDATE SKIP LOCKED），取不到锁的节点本轮跳过：
+ * 多个节点不会同时发送，否则各自的批次交错后，同一key（如 留言ID:用户ID）的点赞和取消可能乱序到达，
+ * 压缩Topic和投影只保留最后一个状态，错误的状态会一直保留。
+ * 一批全部确认并提交后才开始下一批，同一key的事件按写入顺序发送。
+ * 发送失败或超时时事务回滚，整批留在发件箱中下次重发；部分已发送的事件会重复，即至少一次。
+ * 发送期间事务持有这批行的锁和一个数据库连接，因此使用独立的生产者，max.block.ms 等于 send-timeout，
+ * 并且从取出这批到全部确认共用一个 send-timeout 期限：Broker不可用时一批最多占用连接 send-timeout 左右。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Service
+@Slf4j
+public class OutboxRelay {
+
+    private static final int LOCK_ID = 1;
+    private static final String INIT_LOCK_SQL = "INSERT IGNORE INTO outbox_relay_lock (id) VALUES (" + LOCK_ID + ")";
+    private static final String LOCK_SQL = "SELECT id FROM outbox_relay_lock WHERE id = " + LOCK_ID +
+            " FOR UPDATE SKIP LOCKED";
+    private static final String SELECT_SQL = "SELECT id, topic, event_key, payload, created_at FROM outbox_event " +
+            "ORDER BY id LIMIT ?";
+    private static final String DELETE_SQL = "DELETE FROM outbox_event WHERE id IN ";
+
+    private final OutboxProperties outboxProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final SystemLogPublisher systemLogPublisher;
+
+    private final Counter published;
+    private final Counter errors;
+    private final Timer batchTimer;
+
+    /**
+     * 最近一批中最早事件的等待时间（毫秒），发件箱为空时为0
+     */
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    /**
+     * 转发锁的行是否已确认存在
+     */
+    private volatile boolean lockRowReady;
+
+    @Autowired
+    public OutboxRelay(OutboxProperties outboxProperties,
+                       JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager,
+                       ProducerFactory<String, String> producerFactory,
+                       SystemLogPublisher systemLogPublisher,
+                       MeterRegistry meterRegistry) {
+        this(outboxProperties, jdbcTemplate, transactionManager, new KafkaTemplate<>(producerFactory, Map.of(
+                ProducerConfig.MAX_BLOCK_MS_CONFIG, outboxProperties.getSendTimeout().toMillis())),
+                systemLogPublisher, meterRegistry);
+    }
+
+    OutboxRelay(OutboxProperties outboxProperties,
+                JdbcTemplate jdbcTemplate,
+                PlatformTransactionManager transactionManager,
+                KafkaTemplate<String, String> kafkaTemplate,
+                SystemLogPublisher systemLogPublisher,
+                MeterRegistry meterRegistry) {
+        this.outboxProperties = outboxProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.kafkaTemplate = kafkaTemplate;
+        this.systemLogPublisher = systemLogPublisher;
+        this.published = Counter.builder("outbox.relay.published")
+                .description("从发件箱发送到Kafka的事件数")
+                .register(meterRegistry);
+        this.errors = Counter.builder("outbox.relay.errors")
+                .description("发送失败回滚的批次数")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("outbox.relay.batch")
+                .description("一批发件箱事件从读取到删除的耗时")
+                .register(meterRegistry);
+        TimeGauge.builder("outbox.relay.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("最近一批中最早事件在发件箱中等待的时间")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 关闭独立的生产者
+     */
+    @PreDestroy
+    public void close() {
+        kafkaTemplate.destroy();
+    }
+
+    /**
+     * 定时转发，取满一批时连续处理，最多 max-batches-per-run 批
+     */
+    @Scheduled(fixedDelayString = "#{@outboxProperties.pollInterval.toMillis()}")
+    public void run() {
+        if (!outboxProperties.isEnabled()) {
+            return;
+        }
+        for (int i = 0; i < outboxProperties.getMaxBatchesPerRun(); i++) {
+            try {
+                if (relayBatch() < outboxProperties.getBatchSize()) {
+                    return;
+                }
+            } catch (Exception e) {
+                errors.increment();
+                log.warn("发件箱事件发送失败，下次重试: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 转发一批：取得转发锁后发送，等待确认后删除
+     *
+     * @return 本批事件数，其他节点正在转发时为0
+     */
+    public int relayBatch() {
+        ensureLockRow();
+        long start = System.nanoTime();
+        long deadline = start + outboxProperties.getSendTimeout().toNanos();
+        Integer relayed = transactionTemplate.execute(status -> {
+            if (jdbcTemplate.queryForList(LOCK_SQL, Integer.class).isEmpty()) {
+                log.debug("其他节点正在转发发件箱事件，本轮跳过");
+                return 0;
+            }
+            List<Row> rows = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> new Row(rs.getLong(1),
+                    rs.getString(2), rs.getString(3), rs.getString(4), rs.getTimestamp(5)),
+                    outboxProperties.getBatchSize());
+            if (rows.isEmpty()) {
+                lagMillis.set(0);
+                return 0;
+            }
+            lagMillis.set(Math.max(0, System.currentTimeMillis() - rows.get(0).createdAt().getTime()));
+
+            List<CompletableFuture<?>> sends = new ArrayList<>();
+            for (Row row : rows) {
+                if (SystemLogPublisher.TOPIC.equals(row.topic())) {
+                    continue;
+                }
+                // 元数据不可用时每次send都可能阻塞 max.block.ms，超过期限就不再发送后面的事件
+                if (System.nanoTime() - deadline > 0) {
+                    throw new RuntimeException("发件箱事件发送超时");
+                }
+                sends.add(kafkaTemplate.send(row.topic(), row.key(), row.payload()));
+            }
+            await(CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)), deadline);
+
+            String placeholders = String.join(", ", Collections.nCopies(rows.size(), "?"));
+            jdbcTemplate.update(DELETE_SQL + "(" + placeholders + ")", rows.stream().map(Row::id).toArray());
+            // 其他事件全部确认、本批已删除后才把系统日志交给发送队列，发送失败回滚时日志不会入队；
+            // 入队后提交失败时这些行下次重发，与其他事件一样至少一次
+            rows.stream()
+                    .filter(row -> SystemLogPublisher.TOPIC.equals(row.topic()))
+                    .forEach(row -> systemLogPublisher.publish(row.key(), row.payload()));
+            return rows.size();
+        });
+        int result = relayed == null ? 0 : relayed;
+        if (result > 0) {
+            published.increment(result);
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.debug("发件箱事件已发送: count={}", result);
+        }
+        return result;
+    }
+
+    private void ensureLockRow() {
+        if (!lockRowReady) {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(INIT_LOCK_SQL));
+            lockRowReady = true;
+        }
+    }
+
+    private void await(CompletableFuture<Void> all, long deadline) {
+        try {
+            all.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("发件箱事件发送被中断");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("发件箱事件发送失败: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("发件箱事件发送超时");
+        }
+    }
+
+    private record Row(long id, String topic, String key, String payload, Timestamp createdAt) {
+    }
+}
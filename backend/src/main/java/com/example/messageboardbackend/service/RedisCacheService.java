@@ -1,16 +1,46 @@
 package com.example.messageboardbackend.service;
 
+import com.example.messageboardbackend.config.CacheProperties;
+import com.example.messageboardbackend.dto.CacheEntry;
+import com.example.messageboardbackend.dto.CachedPage;
+import com.example.messageboardbackend.dto.MessageDto;
+import com.example.messageboardbackend.util.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Redis缓存服务
- * 
+ *
+ * 分页缓存的key由页码、页大小和排序组成，不同分页参数互不干扰；
+ * 所有写入的分页key登记在索引集合中，清除时按索引删除，避免使用KEYS扫描。
+ * 读取时先查进程内一级缓存（LocalMessageCache），未命中再访问Redis。
+ *
+ * 缓存未命中时防止击穿：本节点内同一个key只有一个线程查库（SingleFlight），
+ * 节点之间通过短期Redis锁只让一个节点重建，其余节点返回旧值副本（stale key），
+ * 没有旧值时短暂等待持锁节点写回。
+ *
+ * 热门留言缓存带软过期时间（CacheEntry）：超过软过期或被XFetch选中提前刷新时，
+ * 立即返回当前值并在cacheRefreshExecutor中后台重建，只有超过硬过期（Redis TTL）才同步查库。
+ *
  * @author Message Board Team
  * @version 1.0.0
  */
@@ -20,128 +50,399 @@ import java.util.concurrent.TimeUnit;
 public class RedisCacheService {
 
     private final RedisTemplate<String, Object> redisTemplate;
-    
-    private static final String MESSAGE_LIST_CACHE_KEY = "message:list";
-    private static final long MESSAGE_LIST_CACHE_EXPIRE = 5; // 5分钟过期
-    
-    private static final String HOT_MESSAGE_CACHE_KEY = "message:hot";
-    private static final long HOT_MESSAGE_CACHE_EXPIRE = 10; // 10分钟过期
+    private final StringRedisTemplate stringRedisTemplate;
+    private final LocalMessageCache localMessageCache;
+    private final MeterRegistry meterRegistry;
+    private final CacheProperties cacheProperties;
+    private final ThreadPoolTaskExecutor cacheRefreshExecutor;
+
+    private static final String MESSAGE_LIST_CACHE_PREFIX = "message:list:";
+    private static final String MESSAGE_LIST_KEY_INDEX = "message:list:keys";
+    private static final Duration MESSAGE_LIST_CACHE_EXPIRE = Duration.ofMinutes(5);
+
+    private static final String HOT_MESSAGE_CACHE_PREFIX = "message:hot:";
+    private static final String HOT_MESSAGE_KEY_INDEX = "message:hot:keys";
+    private static final String HOT_MESSAGE_ALL_CACHE_KEY = "message:hot:all";
 
     /**
-     * 从缓存中获取留言列表
-     * 
-     * @return 留言列表，如果缓存不存在则返回null
+     * 只缓存前几页，更深的分页访问量小，直接查库
      */
-    @SuppressWarnings("unchecked")
-    public List<Object> getMessageListFromCache() {
-        try {
-            Object cached = redisTemplate.opsForValue().get(MESSAGE_LIST_CACHE_KEY);
-            if (cached != null) {
-                log.debug("从Redis缓存获取留言列表成功");
-                return (List<Object>) cached;
-            }
-        } catch (Exception e) {
-            log.warn("从Redis缓存获取留言列表失败: {}", e.getMessage());
-        }
-        return null;
+    private static final int MAX_CACHED_PAGE = 10;
+    private static final int MAX_CACHED_PAGE_SIZE = 50;
+
+    /**
+     * 旧值副本：正常写入时一并保存，不登记在索引中，清除缓存时保留，
+     * 其他节点重建期间作为降级数据返回
+     */
+    private static final String STALE_PREFIX = "message:stale:";
+    private static final long STALE_CACHE_EXPIRE = 60;
+
+    /**
+     * 重建锁：只允许一个节点查库，锁超时兜底持锁节点宕机的情况
+     */
+    private static final String LOCK_SUFFIX = ":lock";
+    private static final long LOCK_EXPIRE_MILLIS = 5000;
+    private static final int LOCK_WAIT_RETRIES = 10;
+    private static final long LOCK_WAIT_INTERVAL_MILLIS = 50;
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private static final String CACHE_METRIC = "message.cache.requests";
+
+    private final SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+
+    /**
+     * 本节点正在后台刷新的key，避免同一个key重复提交刷新任务
+     */
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 判断分页参数是否走缓存
+     *
+     * @param pageable 分页参数
+     * @return 是否可缓存
+     */
+    public boolean isCacheable(Pageable pageable) {
+        return pageable.getPageNumber() < MAX_CACHED_PAGE && pageable.getPageSize() <= MAX_CACHED_PAGE_SIZE;
     }
 
     /**
-     * 将留言列表存入缓存
-     * 
-     * @param messageList 留言列表
+     * 从缓存获取一页留言列表，未命中时由loader查库并写回缓存（同一key的并发请求只查一次库）
+     *
+     * @param pageable 分页参数
+     * @param loader 查库逻辑
+     * @return 留言分页结果
      */
-    public void cacheMessageList(List<Object> messageList) {
-        try {
-            redisTemplate.opsForValue().set(MESSAGE_LIST_CACHE_KEY, messageList, MESSAGE_LIST_CACHE_EXPIRE, TimeUnit.MINUTES);
-            log.debug("留言列表已缓存到Redis，过期时间: {}分钟", MESSAGE_LIST_CACHE_EXPIRE);
-        } catch (Exception e) {
-            log.warn("缓存留言列表到Redis失败: {}", e.getMessage());
-        }
+    public Page<MessageDto> getOrLoadMessagePage(Pageable pageable, Supplier<Page<MessageDto>> loader) {
+        return getOrLoadPage(MESSAGE_LIST_CACHE_PREFIX, LocalMessageCache.REGION_LIST, MESSAGE_LIST_KEY_INDEX,
+                pageable, loader, MESSAGE_LIST_CACHE_EXPIRE);
     }
 
     /**
-     * 清除留言列表缓存
+     * 清除留言列表缓存（所有分页），同时通知所有节点清除一级缓存
      */
     public void clearMessageListCache() {
-        try {
-            redisTemplate.delete(MESSAGE_LIST_CACHE_KEY);
-            log.debug("留言列表缓存已清除");
-        } catch (Exception e) {
-            log.warn("清除留言列表缓存失败: {}", e.getMessage());
-        }
+        clearIndexedKeys(MESSAGE_LIST_KEY_INDEX);
+        localMessageCache.invalidate(LocalMessageCache.REGION_LIST);
+        log.debug("留言列表缓存已清除");
     }
 
     /**
      * 检查缓存是否存在
-     * 
-     * @return 缓存是否存在
+     *
+     * @return 是否存在任意一页留言列表缓存
      */
     public boolean hasMessageListCache() {
         try {
-            return Boolean.TRUE.equals(redisTemplate.hasKey(MESSAGE_LIST_CACHE_KEY));
+            return Boolean.TRUE.equals(redisTemplate.hasKey(MESSAGE_LIST_KEY_INDEX));
         } catch (Exception e) {
             log.warn("检查留言列表缓存状态失败: {}", e.getMessage());
             return false;
         }
     }
-    
+
     /**
-     * 从缓存中获取热门留言列表
-     * 
-     * @return 热门留言列表，如果缓存不存在则返回null
+     * 从缓存获取一页热门留言，软过期后返回旧值并后台刷新，硬过期后由loader同步查库
+     *
+     * @param pageable 分页参数
+     * @param loader 查库逻辑
+     * @return 热门留言分页结果
+     */
+    public Page<MessageDto> getOrLoadHotMessagePage(Pageable pageable, Supplier<Page<MessageDto>> loader) {
+        CachedPage page = (CachedPage) getOrLoadRefreshable(pageKey(HOT_MESSAGE_CACHE_PREFIX, pageable),
+                LocalMessageCache.REGION_HOT, () -> CachedPage.from(loader.get()));
+        return page.toPage(pageable);
+    }
+
+    /**
+     * 从缓存获取全部热门留言，软过期后返回旧值并后台刷新，硬过期后由loader同步查库
+     *
+     * @param loader 查库逻辑
+     * @return 热门留言列表
      */
     @SuppressWarnings("unchecked")
-    public List<Object> getHotMessageListFromCache() {
+    public List<MessageDto> getOrLoadHotMessageList(Supplier<List<MessageDto>> loader) {
+        return (List<MessageDto>) getOrLoadRefreshable(HOT_MESSAGE_ALL_CACHE_KEY, "hotAll",
+                () -> new ArrayList<>(loader.get()));
+    }
+
+    /**
+     * 清除热门留言缓存（所有分页及全部列表），同时通知所有节点清除一级缓存
+     */
+    public void clearHotMessageCache() {
+        clearIndexedKeys(HOT_MESSAGE_KEY_INDEX);
+        localMessageCache.invalidate(LocalMessageCache.REGION_HOT);
+        log.debug("热门留言缓存已清除");
+    }
+
+    /**
+     * 检查热门留言缓存是否存在
+     *
+     * @return 缓存是否存在
+     */
+    public boolean hasHotMessageCache() {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(HOT_MESSAGE_KEY_INDEX));
+        } catch (Exception e) {
+            log.warn("检查热门留言缓存状态失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 生成分页缓存key，例如 message:list:p0:s10:createdAt-DESC
+     *
+     * @param prefix key前缀
+     * @param pageable 分页参数
+     * @return 缓存key
+     */
+    private String pageKey(String prefix, Pageable pageable) {
+        Sort sort = pageable.getSort();
+        String sortPart = sort.isUnsorted() ? "unsorted" : sort.stream()
+                .map(order -> order.getProperty() + "-" + order.getDirection())
+                .collect(Collectors.joining(","));
+        return prefix + "p" + pageable.getPageNumber() + ":s" + pageable.getPageSize() + ":" + sortPart;
+    }
+
+    private Page<MessageDto> getPage(String prefix, String region, Pageable pageable) {
+        String key = pageKey(prefix, pageable);
+        if (localMessageCache.get(region, key) instanceof CachedPage localPage) {
+            recordLookup(region, "local");
+            return localPage.toPage(pageable);
+        }
         try {
-            Object cached = redisTemplate.opsForValue().get(HOT_MESSAGE_CACHE_KEY);
-            if (cached != null) {
-                log.debug("从Redis缓存获取热门留言列表成功");
-                return (List<Object>) cached;
+            Object cached = redisTemplate.opsForValue().get(key);
+            recordLookup(region, cached != null ? "hit" : "miss");
+            if (cached instanceof CachedPage cachedPage) {
+                log.debug("从Redis缓存获取分页数据成功: key={}", key);
+                localMessageCache.put(region, key, cachedPage);
+                return cachedPage.toPage(pageable);
             }
         } catch (Exception e) {
-            log.warn("从Redis缓存获取热门留言列表失败: {}", e.getMessage());
+            log.warn("从Redis缓存获取分页数据失败: key={}, 错误={}", key, e.getMessage());
         }
         return null;
     }
 
+    private Page<MessageDto> getOrLoadPage(String prefix, String region, String indexKey, Pageable pageable,
+                                           Supplier<Page<MessageDto>> loader, Duration expire) {
+        Page<MessageDto> cached = getPage(prefix, region, pageable);
+        if (cached != null) {
+            return cached;
+        }
+        String key = pageKey(prefix, pageable);
+        CachedPage value = (CachedPage) load(key, region, CachedPage.class, () -> {
+            CachedPage loaded = CachedPage.from(loader.get());
+            localMessageCache.put(region, key, loaded);
+            put(key, indexKey, loaded, expire);
+            return loaded;
+        });
+        return value.toPage(pageable);
+    }
+
+    /**
+     * 读取热门留言缓存条目（一级缓存只保存未软过期的值）
+     *
+     * @param key 缓存key
+     * @param cacheName 指标中的缓存名称
+     * @param loader 查库逻辑
+     * @return 缓存值
+     */
+    private Object getOrLoadRefreshable(String key, String cacheName, Supplier<Object> loader) {
+        Object local = localMessageCache.get(LocalMessageCache.REGION_HOT, key);
+        if (local != null) {
+            recordLookup(cacheName, "local");
+            return local;
+        }
+        Object cached = redisGet(key);
+        if (cached instanceof CacheEntry entry) {
+            recordLookup(cacheName, "hit");
+            long now = System.currentTimeMillis();
+            if (entry.isSoftExpired(now) || entry.shouldRefreshEarly(now, cacheProperties.getRefresh().getBeta())) {
+                refreshAsync(key, cacheName, loader);
+            } else {
+                localMessageCache.put(LocalMessageCache.REGION_HOT, key, entry.getValue());
+            }
+            return entry.getValue();
+        }
+        recordLookup(cacheName, "miss");
+        CacheEntry entry = (CacheEntry) load(key, cacheName, CacheEntry.class, () -> rebuildEntry(key, loader));
+        return entry.getValue();
+    }
+
+    /**
+     * 查库并写入带软过期时间的条目，同时记录重建耗时供XFetch使用
+     */
+    private CacheEntry rebuildEntry(String key, Supplier<Object> loader) {
+        CacheProperties.Refresh config = cacheProperties.getRefresh();
+        long start = System.currentTimeMillis();
+        Object value = loader.get();
+        long now = System.currentTimeMillis();
+        CacheEntry entry = new CacheEntry(value, now + config.getSoftTtl().toMillis(), now - start);
+        localMessageCache.put(LocalMessageCache.REGION_HOT, key, value);
+        put(key, HOT_MESSAGE_KEY_INDEX, entry, config.getHardTtl());
+        return entry;
+    }
+
     /**
-     * 将热门留言列表存入缓存
-     * 
-     * @param hotMessageList 热门留言列表
+     * 提交后台刷新：本节点同一个key只提交一次，节点之间由重建锁保证只有一个节点查库
      */
-    public void cacheHotMessageList(List<Object> hotMessageList) {
+    private void refreshAsync(String key, String cacheName, Supplier<Object> loader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
         try {
-            redisTemplate.opsForValue().set(HOT_MESSAGE_CACHE_KEY, hotMessageList, HOT_MESSAGE_CACHE_EXPIRE, TimeUnit.MINUTES);
-            log.debug("热门留言列表已缓存到Redis，过期时间: {}分钟", HOT_MESSAGE_CACHE_EXPIRE);
+            cacheRefreshExecutor.execute(() -> {
+                String token = tryLock(key);
+                try {
+                    if (token != null) {
+                        recordLookup(cacheName, "refresh");
+                        rebuildEntry(key, loader);
+                        log.debug("后台刷新缓存完成: key={}", key);
+                    }
+                } catch (Exception e) {
+                    log.warn("后台刷新缓存失败: key={}, 错误={}", key, e.getMessage());
+                } finally {
+                    if (token != null) {
+                        unlock(key, token);
+                    }
+                    refreshing.remove(key);
+                }
+            });
         } catch (Exception e) {
-            log.warn("缓存热门留言列表到Redis失败: {}", e.getMessage());
+            refreshing.remove(key);
+            log.warn("提交后台刷新任务失败: key={}, 错误={}", key, e.getMessage());
         }
     }
 
     /**
-     * 清除热门留言缓存
+     * 缓存未命中时加载数据
+     *
+     * 本节点内同一个key的并发请求合并为一次；获得Redis重建锁的节点查库，
+     * 其他节点优先返回旧值副本，没有旧值时短暂等待写回，超时后自行查库。
+     *
+     * @param key 缓存key
+     * @param cacheName 指标中的缓存名称
+     * @param type 缓存值类型
+     * @param rebuild 查库并写回缓存的逻辑
+     * @return 缓存值
      */
-    public void clearHotMessageCache() {
+    private Object load(String key, String cacheName, Class<?> type, Supplier<Object> rebuild) {
+        return singleFlight.execute(key, () -> {
+            // 排队期间可能已有其他节点写回
+            Object fresh = redisGet(key);
+            if (type.isInstance(fresh)) {
+                return fresh;
+            }
+            String token = tryLock(key);
+            if (token == null) {
+                Object stale = redisGet(STALE_PREFIX + key);
+                if (type.isInstance(stale)) {
+                    recordLookup(cacheName, "stale");
+                    return stale;
+                }
+                fresh = waitForRebuild(key);
+                if (type.isInstance(fresh)) {
+                    return fresh;
+                }
+                log.debug("等待其他节点重建缓存超时，直接查库: key={}", key);
+            }
+            try {
+                recordLookup(cacheName, "load");
+                return rebuild.get();
+            } finally {
+                if (token != null) {
+                    unlock(key, token);
+                }
+            }
+        });
+    }
+
+    private void put(String key, String indexKey, Object value, Duration expire) {
         try {
-            redisTemplate.delete(HOT_MESSAGE_CACHE_KEY);
-            log.debug("热门留言缓存已清除");
+            redisTemplate.opsForValue().set(key, value, expire);
+            redisTemplate.opsForValue().set(STALE_PREFIX + key, value, STALE_CACHE_EXPIRE, TimeUnit.MINUTES);
+            redisTemplate.opsForSet().add(indexKey, key);
+            redisTemplate.expire(indexKey, expire);
+            log.debug("数据已缓存到Redis: key={}, 过期时间: {}", key, expire);
         } catch (Exception e) {
-            log.warn("清除热门留言缓存失败: {}", e.getMessage());
+            log.warn("缓存数据到Redis失败: key={}, 错误={}", key, e.getMessage());
+        }
+    }
+
+    private Object redisGet(String key) {
+        try {
+            return redisTemplate.opsForValue().get(key);
+        } catch (Exception e) {
+            log.warn("从Redis缓存获取数据失败: key={}, 错误={}", key, e.getMessage());
+            return null;
         }
     }
 
     /**
-     * 检查热门留言缓存是否存在
-     * 
-     * @return 缓存是否存在
+     * 尝试获取重建锁
+     *
+     * @return 锁令牌，未获得锁时返回null；Redis不可用时视为获得锁，直接查库
      */
-    public boolean hasHotMessageCache() {
+    private String tryLock(String key) {
+        String token = UUID.randomUUID().toString();
         try {
-            return Boolean.TRUE.equals(redisTemplate.hasKey(HOT_MESSAGE_CACHE_KEY));
+            Boolean locked = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(key + LOCK_SUFFIX, token, LOCK_EXPIRE_MILLIS, TimeUnit.MILLISECONDS);
+            return Boolean.TRUE.equals(locked) ? token : null;
         } catch (Exception e) {
-            log.warn("检查热门留言缓存状态失败: {}", e.getMessage());
-            return false;
+            log.warn("获取缓存重建锁失败: key={}, 错误={}", key, e.getMessage());
+            return token;
+        }
+    }
+
+    private void unlock(String key, String token) {
+        try {
+            stringRedisTemplate.execute(UNLOCK_SCRIPT, List.of(key + LOCK_SUFFIX), token);
+        } catch (Exception e) {
+            log.warn("释放缓存重建锁失败: key={}, 错误={}", key, e.getMessage());
         }
     }
+
+    private Object waitForRebuild(String key) {
+        for (int i = 0; i < LOCK_WAIT_RETRIES; i++) {
+            try {
+                Thread.sleep(LOCK_WAIT_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            Object value = redisGet(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private void clearIndexedKeys(String indexKey) {
+        try {
+            Set<Object> keys = redisTemplate.opsForSet().members(indexKey);
+            List<String> toDelete = new ArrayList<>();
+            toDelete.add(indexKey);
+            if (keys != null) {
+                keys.forEach(key -> toDelete.add(String.valueOf(key)));
+            }
+            redisTemplate.delete(toDelete);
+        } catch (Exception e) {
+            log.warn("清除缓存失败: index={}, 错误={}", indexKey, e.getMessage());
+        }
+    }
+
+    /**
+     * 记录缓存查询结果，可通过 /actuator/metrics/message.cache.requests 查看
+     *
+     * @param cacheName 缓存名称
+     * @param result local（一级缓存命中）、hit（Redis命中）、miss、load（本请求查库）、stale（返回旧值副本）
+     *               或refresh（后台刷新）
+     */
+    private void recordLookup(String cacheName, String result) {
+        meterRegistry.counter(CACHE_METRIC, "cache", cacheName, "result", result).increment();
+    }
 }
@@ -0,0 +1,372 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.SearchProperties;
+import com.example.messageboardbackend.dto.MessageDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 搜索结果缓存
+ *
+ * 按 规范化关键词 + 模式 + 页码 + 条数 缓存搜索结果。关键词规范化为NFKC（全角转半角）、小写、合并空白，
+ * 写法不同但结果相同的搜索共用一份缓存。关键词在统计周期内被搜索达到门槛次数后按热门有效期缓存，其余按普通有效期。
+ *
+ * 失效只针对受影响的关键词：每个关键词拆成词元（连续的文字按两个字一组，单独一个字就是它本身，与ngram分词一致），
+ * 建立 词元 -> 关键词 的反向索引。留言发布、修改、删除后用内容中出现的全部单字和双字查反向索引，
+ * 只清除含有其中任一词元的关键词的结果，其他关键词的缓存不受影响。这是所有搜索实现的命中条件的超集，不会漏清。
+ * 内容通过发布/订阅发给其他节点，各节点按同样规则清除本地缓存。
+ *
+ * 点赞数不触发失效，缓存结果中的点赞数最多延迟一个有效期。缓存对象在节点内共享，调用方不应修改取出的对象。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Service
+@Slf4j
+public class SearchResultCache implements MessageListener {
+
+    /**
+     * 失效通知频道，消息格式：节点ID|留言内容
+     */
+    public static final String CHANNEL = "message:search:cache";
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * 单条结果的估算固定开销（对象头、时间、数字字段等），加上字符串按每字符2字节估算
+     */
+    private static final int DTO_OVERHEAD_BYTES = 256;
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    private final SearchProperties searchProperties;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Cache<String, Entry> cache;
+
+    /**
+     * 关键词 -> 搜索次数，用于区分热门关键词
+     */
+    private final Cache<String, AtomicInteger> searches;
+
+    /**
+     * 关键词 -> 缓存key，词元 -> 关键词；两者一起修改，用 index 加锁
+     */
+    private final Map<String, Set<String>> keysByTerm = new HashMap<>();
+    private final Map<String, Set<String>> termsByPiece = new HashMap<>();
+    private final Object index = new Object();
+
+    /**
+     * 每次留言变化加一；加载期间发生过变化的结果不写入缓存，避免缓存加载开始前的旧结果
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    private final Counter invalidated;
+
+    @Autowired
+    public SearchResultCache(SearchProperties searchProperties,
+                             StringRedisTemplate stringRedisTemplate,
+                             MeterRegistry meterRegistry) {
+        this(searchProperties, stringRedisTemplate, meterRegistry, Ticker.systemTicker());
+    }
+
+    SearchResultCache(SearchProperties searchProperties,
+                      StringRedisTemplate stringRedisTemplate,
+                      MeterRegistry meterRegistry,
+                      Ticker ticker) {
+        this.searchProperties = searchProperties;
+        this.stringRedisTemplate = stringRedisTemplate;
+        SearchProperties.ResultCache config = searchProperties.getResultCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(config.getMaxSize().toBytes())
+                .weigher((String key, Entry entry) -> entry.weight())
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return entry.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return entry.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                // 同步执行，保证移除后反向索引立即更新；被同一key的新结果替换时key仍在缓存中，保留索引
+                .executor(Runnable::run)
+                .removalListener((String key, Entry entry, RemovalCause cause) -> {
+                    if (key != null && entry != null && cause != RemovalCause.REPLACED) {
+                        unindex(entry.term(), key);
+                    }
+                })
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        this.searches = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(config.getHotTtl())
+                .ticker(ticker)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "message.search.cache");
+        Gauge.builder("message.search.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("搜索结果缓存命中率")
+                .register(meterRegistry);
+        Gauge.builder("message.search.cache.memory", cache,
+                        c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .description("搜索结果缓存估算占用的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("message.search.cache.terms", this, SearchResultCache::termCount)
+                .description("已缓存结果的关键词数")
+                .register(meterRegistry);
+        this.invalidated = Counter.builder("message.search.cache.invalidated")
+                .description("因留言变化清除的搜索结果数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 读取缓存的搜索结果，未命中时加载并写入
+     *
+     * @param query 关键词
+     * @param mode 搜索模式
+     * @param pageable 分页参数
+     * @param search 未命中时的搜索，参数为规范化后的关键词，保证同一份缓存对应同一个查询
+     * @return 搜索结果
+     */
+    public Page<MessageDto> get(String query, MessageSearchService.SearchMode mode, Pageable pageable,
+                                Function<String, Page<MessageDto>> search) {
+        SearchProperties.ResultCache config = searchProperties.getResultCache();
+        String term = normalize(query);
+        if (term.isEmpty()) {
+            return search.apply(query);
+        }
+        if (!config.isEnabled() || term.length() > config.getMaxQueryLength()) {
+            return search.apply(term);
+        }
+        String key = mode + SEPARATOR + pageable.getPageNumber() + SEPARATOR + pageable.getPageSize() + SEPARATOR + term;
+        int count = searches.get(term, t -> new AtomicInteger()).incrementAndGet();
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached.page();
+        }
+
+        long before = version.get();
+        Page<MessageDto> page = search.apply(term);
+        if (page != null) {
+            long ttl = (count >= config.getHotThreshold() ? config.getHotTtl() : config.getTtl()).toNanos();
+            // 先登记反向索引再写入缓存，写入之后发生的变化一定能找到这个key
+            index(term, key);
+            if (version.get() == before) {
+                cache.put(key, new Entry(term, page, ttl, weigh(key, page)));
+            } else {
+                unindex(term, key);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * 留言发布、修改、删除的事务提交后调用，清除受影响关键词的结果并通知其他节点
+     *
+     * @param contents 变化涉及的留言内容（修改时包括旧内容和新内容）
+     */
+    public void onMessageChanged(String... contents) {
+        if (!searchProperties.getResultCache().isEnabled()) {
+            return;
+        }
+        for (String content : contents) {
+            if (content == null) {
+                continue;
+            }
+            invalidateMatching(content);
+            try {
+                stringRedisTemplate.convertAndSend(CHANNEL, nodeId + SEPARATOR + content);
+            } catch (Exception e) {
+                log.warn("发布搜索缓存失效通知失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 处理其他节点发布的留言变化
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 2);
+        if (parts.length != 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        invalidateMatching(parts[1]);
+    }
+
+    /**
+     * 清除含有内容中任一词元的关键词的结果
+     *
+     * @param content 留言内容
+     * @return 清除的结果数
+     */
+    int invalidateMatching(String content) {
+        version.incrementAndGet();
+        Set<String> keys = new HashSet<>();
+        synchronized (index) {
+            for (String piece : pieces(normalize(content), true)) {
+                Set<String> terms = termsByPiece.get(piece);
+                if (terms == null) {
+                    continue;
+                }
+                for (String term : terms) {
+                    keys.addAll(keysByTerm.getOrDefault(term, Set.of()));
+                }
+            }
+        }
+        if (!keys.isEmpty()) {
+            cache.invalidateAll(keys);
+            invalidated.increment(keys.size());
+            log.debug("留言变化清除搜索缓存: 条数={}", keys.size());
+        }
+        return keys.size();
+    }
+
+    /**
+     * 规范化关键词：NFKC、小写、合并空白
+     *
+     * @param query 关键词
+     * @return 规范化后的关键词，空值返回空字符串
+     */
+    static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        return Normalizer.normalize(query, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .trim()
+                .replaceAll("\\s+", " ");
+    }
+
+    /**
+     * 把文本按字母、数字、文字的连续片段拆成词元：片段只有一个字时是它本身，否则每相邻两个字一组
+     *
+     * @param text 规范化后的文本
+     * @param withSingles 是否同时包含每个单字（用于内容，以便匹配只有一个字的关键词）
+     * @return 词元集合
+     */
+    static Set<String> pieces(String text, boolean withSingles) {
+        Set<String> pieces = new HashSet<>();
+        int runStart = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inRun = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inRun && runStart < 0) {
+                runStart = i;
+            } else if (!inRun && runStart >= 0) {
+                addRun(pieces, text.substring(runStart, i), withSingles);
+                runStart = -1;
+            }
+        }
+        return pieces;
+    }
+
+    private static void addRun(Set<String> pieces, String run, boolean withSingles) {
+        if (run.length() == 1 || withSingles) {
+            for (int i = 0; i < run.length(); i++) {
+                pieces.add(run.substring(i, i + 1));
+            }
+        }
+        for (int i = 0; i + 2 <= run.length(); i++) {
+            pieces.add(run.substring(i, i + 2));
+        }
+    }
+
+    private void index(String term, String key) {
+        synchronized (index) {
+            Set<String> keys = keysByTerm.get(term);
+            if (keys == null) {
+                keys = new HashSet<>();
+                keysByTerm.put(term, keys);
+                for (String piece : pieces(term, false)) {
+                    termsByPiece.computeIfAbsent(piece, p -> new HashSet<>()).add(term);
+                }
+            }
+            keys.add(key);
+        }
+    }
+
+    private void unindex(String term, String key) {
+        synchronized (index) {
+            Set<String> keys = keysByTerm.get(term);
+            if (keys == null || !keys.remove(key) || !keys.isEmpty()) {
+                return;
+            }
+            keysByTerm.remove(term);
+            for (String piece : pieces(term, false)) {
+                Set<String> terms = termsByPiece.get(piece);
+                if (terms != null) {
+                    terms.remove(term);
+                    if (terms.isEmpty()) {
+                        termsByPiece.remove(piece);
+                    }
+                }
+            }
+        }
+    }
+
+    private int termCount() {
+        synchronized (index) {
+            return keysByTerm.size();
+        }
+    }
+
+    private static int weigh(String key, Page<MessageDto> page) {
+        long bytes = ENTRY_OVERHEAD_BYTES + 2L * key.length();
+        List<MessageDto> content = page.getContent();
+        for (MessageDto dto : content) {
+            bytes += DTO_OVERHEAD_BYTES
+                    + 2L * (dto.getContent() == null ? 0 : dto.getContent().length())
+                    + 2L * (dto.getUsername() == null ? 0 : dto.getUsername().length())
+                    + 24L * (dto.getHighlights() == null ? 0 : dto.getHighlights().size());
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 一条缓存的搜索结果
+     *
+     * @param term 规范化后的关键词
+     * @param page 搜索结果
+     * @param ttlNanos 有效期（纳秒）
+     * @param weight 估算字节数
+     */
+    private record Entry(String term, Page<MessageDto> page, long ttlNanos, int weight) {
+    }
+}
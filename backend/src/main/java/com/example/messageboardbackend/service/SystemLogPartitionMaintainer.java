@@ -0,0 +1,189 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.SystemLogProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 系统日志分区维护
+ *
+ * system_log 按 created_at 每天一个 RANGE COLUMNS 分区（pYYYYMMDD 存放当天的日志），
+ * 最后一个分区 p_max 为 MAXVALUE 兜底。定时任务提前创建 premake 天的分区（从 p_max 中拆分，
+ * p_max 通常为空，只修改元数据），并用 DROP PARTITION 删除整天早于 retention 的分区：
+ * 删除一天的日志只是删掉一个表空间文件，不逐行删除，不产生行锁和undo日志。
+ * 按时间范围查询时MySQL只扫描范围内的分区（分区裁剪）。
+ *
+ * 只在MySQL中 system_log 已按 created_at 做 RANGE COLUMNS 分区时生效，首次读取到分区信息时确定，
+ * 表未分区（未执行 sql/system-log-partition.sql）时记录一次警告后不再检查。
+ * 多个节点同时维护时，后执行的节点因分区已存在或已删除而失败，下次检查时重新读取分区。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Service
+@Slf4j
+public class SystemLogPartitionMaintainer {
+
+    static final String MAX_PARTITION = "p_max";
+
+    private static final String PARTITIONS_SQL = "SELECT partition_name, partition_method, partition_description " +
+            "FROM information_schema.partitions WHERE table_schema = DATABASE() AND table_name = 'system_log' " +
+            "AND partition_name IS NOT NULL ORDER BY partition_ordinal_position";
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+
+    private final SystemLogProperties.Partition config;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final AtomicInteger partitionCount = new AtomicInteger();
+
+    /**
+     * 表是否按天分区，首次检查时确定
+     */
+    private volatile Boolean partitioned;
+
+    public SystemLogPartitionMaintainer(SystemLogProperties systemLogProperties,
+                                        JdbcTemplate jdbcTemplate,
+                                        MeterRegistry meterRegistry) {
+        this.config = systemLogProperties.getPartition();
+        this.jdbcTemplate = jdbcTemplate;
+        Gauge.builder("system.log.partitions", partitionCount, AtomicInteger::get)
+                .description("system_log 当前的分区数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 定时维护：启动后立即执行一次，之后按 check-interval 执行
+     */
+    @Scheduled(fixedDelayString = "#{@systemLogProperties.partition.checkInterval.toMillis()}")
+    public void run() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            maintain(LocalDate.now());
+        } catch (Exception e) {
+            log.warn("系统日志分区维护失败，下次检查时重试: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 读取当前分区，执行需要的创建和删除
+     *
+     * @param today 当天日期
+     */
+    void maintain(LocalDate today) {
+        if (Boolean.FALSE.equals(partitioned)) {
+            return;
+        }
+        List<DayPartition> partitions = loadPartitions();
+        if (partitions == null) {
+            return;
+        }
+        List<String> ddl = plan(partitions, today);
+        for (String statement : ddl) {
+            jdbcTemplate.execute(statement);
+            log.info("系统日志分区已调整: {}", statement);
+        }
+        if (!ddl.isEmpty()) {
+            loadPartitions();
+        }
+    }
+
+    /**
+     * 计算维护语句：先创建到 today + premake 为止的分区，再删除过期分区（避免删光全部分区）
+     *
+     * @param partitions 当前分区，按顺序
+     * @param today 当天日期
+     * @return 需要执行的DDL，已是最新时为空
+     */
+    List<String> plan(List<DayPartition> partitions, LocalDate today) {
+        LocalDate cutoff = today.minusDays(config.getRetention().toDays());
+        LocalDate target = today.plusDays(config.getPremake().toDays() + 1);
+
+        LocalDate lastBound = null;
+        boolean hasMax = false;
+        List<String> expired = new ArrayList<>();
+        for (DayPartition partition : partitions) {
+            if (partition.bound() == null) {
+                hasMax = true;
+                continue;
+            }
+            lastBound = partition.bound();
+            if (!partition.bound().isAfter(cutoff)) {
+                expired.add(partition.name());
+            }
+        }
+
+        // 第一个新分区从上一个分区的上界开始，维护中断过久时直接从保留期起点开始，下次检查时删除
+        LocalDate from = lastBound == null || lastBound.isBefore(cutoff) ? cutoff : lastBound;
+        List<String> additions = new ArrayList<>();
+        for (LocalDate day = from; day.isBefore(target); day = day.plusDays(1)) {
+            additions.add("PARTITION " + day.format(NAME_FORMAT) + " VALUES LESS THAN ('" + day.plusDays(1) + "')");
+        }
+
+        List<String> ddl = new ArrayList<>();
+        if (!additions.isEmpty()) {
+            if (hasMax) {
+                additions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+                ddl.add("ALTER TABLE system_log REORGANIZE PARTITION " + MAX_PARTITION + " INTO ("
+                        + String.join(", ", additions) + ")");
+            } else {
+                ddl.add("ALTER TABLE system_log ADD PARTITION (" + String.join(", ", additions) + ")");
+            }
+        }
+        if (!expired.isEmpty()) {
+            ddl.add("ALTER TABLE system_log DROP PARTITION " + String.join(", ", expired));
+        }
+        return ddl;
+    }
+
+    /**
+     * 读取 system_log 的分区
+     *
+     * @return 按顺序的分区，表未按 RANGE COLUMNS 分区时返回null
+     */
+    private List<DayPartition> loadPartitions() {
+        List<DayPartition> partitions = new ArrayList<>();
+        List<String> methods = new ArrayList<>();
+        jdbcTemplate.query(PARTITIONS_SQL, (RowCallbackHandler) rs -> {
+            methods.add(rs.getString(2));
+            partitions.add(DayPartition.of(rs.getString(1), rs.getString(3)));
+        });
+        if (partitions.isEmpty() || methods.stream().anyMatch(method -> !"RANGE COLUMNS".equals(method))) {
+            partitioned = false;
+            log.warn("system_log 未按 created_at 分区，过期日志不会自动删除，请执行 sql/system-log-partition.sql");
+            return null;
+        }
+        partitioned = true;
+        partitionCount.set(partitions.size());
+        return partitions;
+    }
+
+    /**
+     * 分区名和上界，MAXVALUE分区的上界为空
+     */
+    record DayPartition(String name, LocalDate bound) {
+
+        /**
+         * 解析 information_schema 中的分区上界，如 '2024-06-02 00:00:00' 或 MAXVALUE
+         */
+        static DayPartition of(String name, String description) {
+            String value = description == null ? "" : description.replace("'", "").trim();
+            if (value.isEmpty() || "MAXVALUE".equalsIgnoreCase(value)) {
+                return new DayPartition(name, null);
+            }
+            return new DayPartition(name, LocalDate.parse(value.substring(0, 10)));
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.SystemLogProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 系统日志发送队列
+ *
+ * 系统日志事件先随业务事务写入发件箱，{@link OutboxRelay} 取出后放入有界的无锁内存队列并删除发件箱中的行，
+ * 由单独的发送线程取出后写入Kafka：Broker变慢或不可用时，send最多阻塞 max.block.ms 的是发送线程，
+ * 转发任务不等待系统日志的确认，不会因此长时间持有发件箱的行锁和数据库连接。
+ * 发送线程使用独立的生产者配置（linger.ms、压缩、max.block.ms），由生产者攒批压缩。
+ *
+ * 队列已满时按 overflow-policy 处理：丢弃最早的、丢弃最新的，或写入本地缓冲（{@link SystemLogSpool}，默认）。
+ * 发送失败时事件写入本地缓冲，retry-interval 内发送线程不再访问Kafka，队列中的事件直接转入本地缓冲。
+ * 本地缓冲不为空时新事件也写入缓冲，发送线程发完队列后再按顺序读回补发，整体保持先后顺序
+ * （故障发生时已在途的事件发送失败后排到缓冲末尾）。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Service
+@Slf4j
+public class SystemLogPublisher {
+
+    public static final String TOPIC = "system-logs";
+
+    private final SystemLogProperties.Producer config;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final SystemLogSpool spool;
+
+    private final Counter droppedOldest;
+    private final Counter droppedNewest;
+    private final Counter spooledOverflow;
+    private final Counter spooledUnavailable;
+    private final Counter spooledBacklog;
+    private final Counter sendErrors;
+    private final Timer sendLatency;
+
+    private final AtomicBoolean available = new AtomicBoolean(true);
+    private volatile long retryAt = System.nanoTime();
+    private volatile boolean running;
+    private volatile boolean waiting;
+    private volatile Thread sender;
+
+    @Autowired
+    public SystemLogPublisher(SystemLogProperties systemLogProperties,
+                              ProducerFactory<String, String> producerFactory,
+                              MeterRegistry meterRegistry) {
+        this(systemLogProperties, new KafkaTemplate<>(producerFactory, Map.of(
+                ProducerConfig.LINGER_MS_CONFIG, systemLogProperties.getProducer().getLinger().toMillis(),
+                ProducerConfig.COMPRESSION_TYPE_CONFIG, systemLogProperties.getProducer().getCompressionType(),
+                ProducerConfig.MAX_BLOCK_MS_CONFIG, systemLogProperties.getProducer().getMaxBlock().toMillis())),
+                meterRegistry);
+    }
+
+    SystemLogPublisher(SystemLogProperties systemLogProperties,
+                       KafkaTemplate<String, String> kafkaTemplate,
+                       MeterRegistry meterRegistry) {
+        this.config = systemLogProperties.getProducer();
+        this.kafkaTemplate = kafkaTemplate;
+        this.spool = new SystemLogSpool(systemLogProperties.getSpool(), meterRegistry);
+
+        Gauge.builder("system.log.queue.depth", depth, AtomicInteger::get)
+                .description("系统日志发送队列中的事件数")
+                .register(meterRegistry);
+        this.droppedOldest = Counter.builder("system.log.dropped")
+                .tag("policy", "oldest")
+                .description("队列已满丢弃的系统日志数")
+                .register(meterRegistry);
+        this.droppedNewest = Counter.builder("system.log.dropped")
+                .tag("policy", "newest")
+                .description("队列已满丢弃的系统日志数")
+                .register(meterRegistry);
+        this.spooledOverflow = spooledCounter("overflow", meterRegistry);
+        this.spooledUnavailable = spooledCounter("unavailable", meterRegistry);
+        this.spooledBacklog = spooledCounter("backlog", meterRegistry);
+        this.sendErrors = Counter.builder("system.log.send.errors")
+                .description("发送失败的系统日志数")
+                .register(meterRegistry);
+        this.sendLatency = Timer.builder("system.log.send.latency")
+                .description("系统日志从调用send到Broker确认的耗时")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 放入发送队列，不阻塞
+     *
+     * @param key 事件key（用户ID），可以为空
+     * @param payload 事件JSON
+     */
+    public void publish(String key, String payload) {
+        Pending pending = new Pending(key, payload);
+        if (!spool.isEmpty()) {
+            spool(pending, spooledBacklog);
+            return;
+        }
+        if (depth.incrementAndGet() > config.getQueueCapacity()) {
+            depth.decrementAndGet();
+            switch (config.getOverflowPolicy()) {
+                case DROP_NEWEST -> {
+                    droppedNewest.increment();
+                    return;
+                }
+                case SPILL -> {
+                    spool(pending, spooledOverflow);
+                    return;
+                }
+                case DROP_OLDEST -> {
+                    if (queue.poll() != null) {
+                        droppedOldest.increment();
+                    } else {
+                        // 发送线程刚好取空了队列
+                        depth.incrementAndGet();
+                    }
+                    queue.offer(pending);
+                    wakeUp();
+                    return;
+                }
+            }
+        }
+        queue.offer(pending);
+        wakeUp();
+    }
+
+    /**
+     * 启动发送线程
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::run, "system-log-sender");
+        thread.setDaemon(true);
+        sender = thread;
+        thread.start();
+    }
+
+    /**
+     * 停止发送线程；队列中剩余的事件写入本地缓冲，下次启动后补发
+     */
+    @PreDestroy
+    public void close() {
+        running = false;
+        Thread thread = sender;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(config.getMaxBlock().toMillis() + 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        moveQueueToSpool(spooledBacklog);
+        try {
+            kafkaTemplate.flush();
+        } catch (Exception e) {
+            log.warn("系统日志发送线程关闭时刷新失败: {}", e.getMessage());
+        }
+        kafkaTemplate.destroy();
+        spool.close();
+    }
+
+    /**
+     * 队列中待发送事件的内容
+     */
+    List<String> pendingPayloads() {
+        return queue.stream().map(Pending::payload).toList();
+    }
+
+    /**
+     * 发送一轮：Kafka不可用期间把队列转入本地缓冲；否则先发队列中的事件，队列已空时再补发本地缓冲
+     *
+     * @return 本轮发送的条数
+     */
+    int drainOnce() {
+        if (System.nanoTime() - retryAt < 0) {
+            moveQueueToSpool(spooledUnavailable);
+            return 0;
+        }
+        int batchSize = Math.max(1, config.getDrainBatchSize());
+        int sent = 0;
+        Pending pending;
+        while (sent < batchSize && (pending = queue.poll()) != null) {
+            depth.decrementAndGet();
+            send(pending);
+            sent++;
+        }
+        if (sent == 0 && !spool.isEmpty()) {
+            for (String line : spool.poll(batchSize)) {
+                send(Pending.parse(line));
+                sent++;
+            }
+        }
+        return sent;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (drainOnce() == 0) {
+                    waiting = true;
+                    if (queue.isEmpty()) {
+                        LockSupport.parkNanos(config.getLinger().toNanos());
+                    }
+                    waiting = false;
+                }
+            } catch (Exception e) {
+                log.error("系统日志发送线程异常: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void send(Pending pending) {
+        long start = System.nanoTime();
+        try {
+            kafkaTemplate.send(TOPIC, pending.key(), pending.payload()).whenComplete((result, ex) -> {
+                if (ex == null) {
+                    sendLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (available.compareAndSet(false, true)) {
+                        log.info("Kafka已恢复，补发本地缓冲中的系统日志: bytes={}", spool.pendingBytes());
+                    }
+                } else {
+                    onSendFailed(pending, ex);
+                }
+            });
+        } catch (Exception e) {
+            onSendFailed(pending, e);
+        }
+    }
+
+    /**
+     * 发送失败：写入本地缓冲，retry-interval 后再尝试
+     */
+    private void onSendFailed(Pending pending, Throwable ex) {
+        sendErrors.increment();
+        retryAt = System.nanoTime() + config.getRetryInterval().toNanos();
+        if (available.compareAndSet(true, false)) {
+            log.warn("系统日志发送失败，Kafka恢复前写入本地缓冲: error={}", ex.getMessage());
+        }
+        spool(pending, spooledUnavailable);
+    }
+
+    private void moveQueueToSpool(Counter reason) {
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            depth.decrementAndGet();
+            spool(pending, reason);
+        }
+    }
+
+    private void spool(Pending pending, Counter reason) {
+        try {
+            spool.append(pending.line());
+            reason.increment();
+        } catch (Exception e) {
+            droppedNewest.increment();
+            log.warn("系统日志写入本地缓冲失败，已丢弃: {}", e.getMessage());
+        }
+    }
+
+    private static Counter spooledCounter(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("system.log.spooled")
+                .tag("reason", reason)
+                .description("写入本地缓冲的系统日志数")
+                .register(meterRegistry);
+    }
+
+    private void wakeUp() {
+        Thread thread = sender;
+        if (waiting && thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * 待发送的事件：key可能为空；本地缓冲中每条记录为 key\tJSON
+     */
+    private record Pending(String key, String payload) {
+
+        String line() {
+            return (key == null ? "" : key) + '\t' + payload;
+        }
+
+        static Pending parse(String line) {
+            int tab = line.indexOf('\t');
+            String key = line.substring(0, tab);
+            return new Pending(key.isEmpty() ? null : key, line.substring(tab + 1));
+        }
+    }
+}
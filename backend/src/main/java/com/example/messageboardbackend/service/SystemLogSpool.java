@@ -0,0 +1,420 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.SystemLogProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 系统日志本地缓冲
+ *
+ * Kafka不可用或发送队列溢出时，事件追加到本地的内存映射分段文件，恢复后按写入顺序读回补发。
+ * 每条记录的格式为 [长度int][CRC32 int][UTF-8内容]，长度最后写入，进程中途退出时未写完的记录长度为0；
+ * 启动时逐条校验CRC找到每个分段的末尾。分段写满后切换到下一个，读完的分段删除；
+ * 总大小超过 max-size 或最早的分段超过 retention 时丢弃最早的分段。
+ *
+ * 读取位置保存在映射的检查点文件中，补发后进程退出会从上次的检查点重放，即至少一次。
+ * 映射内存的写入在进程崩溃后仍由操作系统落盘，只在切换分段和关闭时强制刷盘。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Slf4j
+class SystemLogSpool implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "spool-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int HEADER_BYTES = 8;
+    private static final int CHECKPOINT_BYTES = 16;
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (Exception e) {
+            log.debug("无法立即释放内存映射，将由GC回收: {}", e.getMessage());
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final Path dir;
+    private final int segmentSize;
+    private final long maxSize;
+    private final Duration retention;
+
+    /**
+     * 分段序号 → 已写入的字节数
+     */
+    private final TreeMap<Long, Integer> segments = new TreeMap<>();
+    private final Map<Long, MappedByteBuffer> mapped = new HashMap<>();
+    private final MappedByteBuffer checkpoint;
+
+    private final Counter corrupted;
+    private final Counter expired;
+
+    private long writeSeq;
+    private int writePos;
+    private long readSeq;
+    private int readPos;
+    private boolean closed;
+
+    private volatile long pendingBytes;
+    private volatile int segmentCount;
+
+    SystemLogSpool(SystemLogProperties.Spool config, MeterRegistry meterRegistry) {
+        this.dir = Path.of(config.getDir());
+        this.segmentSize = (int) Math.min(config.getSegmentSize().toBytes(), Integer.MAX_VALUE);
+        this.maxSize = config.getMaxSize().toBytes();
+        this.retention = config.getRetention();
+        this.corrupted = Counter.builder("system.log.spool.corrupted")
+                .description("CRC校验失败被跳过的本地缓冲字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.expired = Counter.builder("system.log.spool.expired")
+                .description("超过大小或保留期被丢弃的本地缓冲字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("system.log.spool.pending", this, SystemLogSpool::pendingBytes)
+                .description("本地缓冲中待补发的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("system.log.spool.segments", this, spool -> spool.segmentCount)
+                .description("本地缓冲的分段文件数")
+                .register(meterRegistry);
+        try {
+            Files.createDirectories(dir);
+            checkpoint = map(dir.resolve(CHECKPOINT_FILE), CHECKPOINT_BYTES);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开系统日志本地缓冲失败: " + dir, e);
+        }
+    }
+
+    /**
+     * 追加一条记录，写满当前分段时切换到新分段
+     *
+     * @param line 记录内容
+     */
+    synchronized void append(String line) {
+        if (closed) {
+            throw new IllegalStateException("系统日志本地缓冲已关闭");
+        }
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        int frame = HEADER_BYTES + bytes.length;
+        if (frame > segmentSize) {
+            throw new IllegalArgumentException("日志事件超过本地缓冲分段大小: " + bytes.length);
+        }
+        if (writePos + frame > segmentSize) {
+            rotate();
+        }
+        MappedByteBuffer buffer = buffer(writeSeq);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        buffer.put(writePos + HEADER_BYTES, bytes);
+        buffer.putInt(writePos + 4, (int) crc.getValue());
+        buffer.putInt(writePos, bytes.length);
+        writePos += frame;
+        segments.put(writeSeq, writePos);
+        pendingBytes += frame;
+    }
+
+    /**
+     * 按写入顺序读出最多max条记录并推进检查点，读完的分段删除；CRC校验失败时跳过该分段剩余部分
+     *
+     * @param max 最大条数
+     * @return 记录内容
+     */
+    synchronized List<String> poll(int max) {
+        List<String> lines = new ArrayList<>();
+        if (closed) {
+            return lines;
+        }
+        while (lines.size() < max) {
+            int end = segments.get(readSeq);
+            if (readPos >= end) {
+                if (readSeq == writeSeq) {
+                    break;
+                }
+                long finished = readSeq;
+                readSeq = segments.higherKey(finished);
+                readPos = 0;
+                delete(finished);
+                continue;
+            }
+            String line = read(buffer(readSeq), readPos, end);
+            if (line == null) {
+                log.warn("系统日志本地缓冲记录校验失败，跳过分段剩余部分: segment={}, position={}", readSeq, readPos);
+                corrupted.increment(end - readPos);
+                pendingBytes -= end - readPos;
+                readPos = end;
+                continue;
+            }
+            int frame = HEADER_BYTES + buffer(readSeq).getInt(readPos);
+            readPos += frame;
+            pendingBytes -= frame;
+            lines.add(line);
+        }
+        saveCheckpoint();
+        return lines;
+    }
+
+    /**
+     * 是否没有待补发的记录
+     */
+    boolean isEmpty() {
+        return pendingBytes == 0;
+    }
+
+    /**
+     * 待补发的字节数
+     */
+    long pendingBytes() {
+        return pendingBytes;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer(writeSeq).force();
+        saveCheckpoint();
+        checkpoint.force();
+        mapped.values().forEach(SystemLogSpool::unmap);
+        mapped.clear();
+        unmap(checkpoint);
+    }
+
+    /**
+     * 启动时扫描分段：删除检查点之前的分段，逐条校验找到每个分段的末尾，清除最后一个分段中未写完的记录
+     */
+    private void recover() throws IOException {
+        long savedSeq = checkpoint.getLong(0);
+        long savedPos = checkpoint.getLong(8);
+        List<Long> found = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> found.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        for (long seq : found) {
+            if (seq < savedSeq) {
+                Files.deleteIfExists(segmentPath(seq));
+            } else {
+                segments.put(seq, scan(seq));
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.put(Math.max(savedSeq, 1), 0);
+        }
+        writeSeq = segments.lastKey();
+        writePos = segments.get(writeSeq);
+        MappedByteBuffer last = buffer(writeSeq);
+        if (writePos + 4 <= segmentSize && last.getInt(writePos) != 0) {
+            last.put(writePos, new byte[segmentSize - writePos]);
+        }
+        if (segments.containsKey(savedSeq)) {
+            readSeq = savedSeq;
+            readPos = (int) Math.min(savedPos, segments.get(savedSeq));
+        } else {
+            readSeq = segments.firstKey();
+            readPos = 0;
+        }
+        releaseUnused();
+        enforceRetention();
+        long pending = 0;
+        for (Map.Entry<Long, Integer> segment : segments.entrySet()) {
+            pending += segment.getValue() - (segment.getKey() == readSeq ? readPos : 0);
+        }
+        pendingBytes = pending;
+        segmentCount = segments.size();
+        saveCheckpoint();
+        if (pending > 0) {
+            log.info("系统日志本地缓冲中有待补发的记录: segments={}, bytes={}", segments.size(), pending);
+        }
+    }
+
+    /**
+     * 逐条校验CRC，返回分段中有效数据的末尾
+     */
+    private int scan(long seq) {
+        MappedByteBuffer buffer = buffer(seq);
+        int position = 0;
+        while (position + HEADER_BYTES <= segmentSize) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (read(buffer, position, segmentSize) == null) {
+                log.warn("系统日志本地缓冲分段末尾校验失败，已截断: segment={}, position={}", seq, position);
+                corrupted.increment(segmentSize - position);
+                break;
+            }
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    /**
+     * 读出一条记录，长度越界或CRC不符时返回null
+     */
+    private static String read(MappedByteBuffer buffer, int position, int end) {
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + HEADER_BYTES + length > end) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position + HEADER_BYTES, bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+            return null;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void rotate() {
+        buffer(writeSeq).force();
+        writeSeq++;
+        writePos = 0;
+        segments.put(writeSeq, 0);
+        releaseUnused();
+        enforceRetention();
+        segmentCount = segments.size();
+    }
+
+    /**
+     * 总大小超过上限或最早的分段超过保留期时丢弃最早的分段，当前写入的分段保留
+     */
+    private void enforceRetention() {
+        Instant cutoff = Instant.now().minus(retention);
+        while (segments.size() > 1) {
+            long oldest = segments.firstKey();
+            boolean overSize = (long) segments.size() * segmentSize > maxSize;
+            if (!overSize && !lastModified(oldest).toInstant().isBefore(cutoff)) {
+                break;
+            }
+            int unread = segments.get(oldest) - (oldest == readSeq ? readPos : 0);
+            log.warn("丢弃系统日志本地缓冲分段: segment={}, unreadBytes={}", oldest, unread);
+            expired.increment(unread);
+            pendingBytes -= unread;
+            if (oldest == readSeq) {
+                readSeq = segments.higherKey(oldest);
+                readPos = 0;
+            }
+            delete(oldest);
+        }
+        saveCheckpoint();
+    }
+
+    private FileTime lastModified(long seq) {
+        try {
+            return Files.getLastModifiedTime(segmentPath(seq));
+        } catch (IOException e) {
+            return FileTime.from(Instant.now());
+        }
+    }
+
+    private void delete(long seq) {
+        segments.remove(seq);
+        MappedByteBuffer buffer = mapped.remove(seq);
+        if (buffer != null) {
+            unmap(buffer);
+        }
+        try {
+            Files.deleteIfExists(segmentPath(seq));
+        } catch (IOException e) {
+            log.warn("删除系统日志本地缓冲分段失败: segment={}, error={}", seq, e.getMessage());
+        }
+        segmentCount = segments.size();
+    }
+
+    private void saveCheckpoint() {
+        checkpoint.putLong(0, readSeq);
+        checkpoint.putLong(8, readPos);
+    }
+
+    private MappedByteBuffer buffer(long seq) {
+        return mapped.computeIfAbsent(seq, s -> {
+            try {
+                return map(segmentPath(s), segmentSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException("映射系统日志本地缓冲分段失败: " + s, e);
+            }
+        });
+    }
+
+    /**
+     * 只保留读写位置所在分段的映射
+     */
+    private void releaseUnused() {
+        mapped.entrySet().removeIf(entry -> {
+            if (entry.getKey() == readSeq || entry.getKey() == writeSeq) {
+                return false;
+            }
+            unmap(entry.getValue());
+            return true;
+        });
+    }
+
+    private Path segmentPath(long seq) {
+        return dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX));
+    }
+
+    private static MappedByteBuffer map(Path file, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * 立即释放映射（Windows上映射未释放的文件无法删除），不可用时等待GC回收
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (Exception e) {
+            log.debug("释放内存映射失败: {}", e.getMessage());
+        }
+    }
+}
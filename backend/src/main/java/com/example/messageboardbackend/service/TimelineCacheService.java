@@ -0,0 +1,311 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.CacheProperties;
+import com.example.messageboardbackend.config.HotRankingProperties;
+import com.example.messageboardbackend.dto.MessageDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 最新留言时间线缓存
+ *
+ * 在Redis中维护最新N条留言：
+ * <ul>
+ *   <li>timeline:ids   有序集合，成员为留言ID，分数为创建时间（毫秒）</li>
+ *   <li>timeline:dto   哈希，留言ID -> MessageDto</li>
+ *   <li>timeline:likes 哈希，留言ID -> 点赞数（HINCRBY原子更新）</li>
+ *   <li>timeline:total 未删除留言总数</li>
+ * </ul>
+ * 写操作只修改变化的条目，不整体清除；超出窗口或时间线未就绪时返回null，由调用方查库。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TimelineCacheService {
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final CacheProperties cacheProperties;
+    private final HotRankingProperties hotRankingProperties;
+
+    private static final String IDS_KEY = "timeline:ids";
+    private static final String DTO_KEY = "timeline:dto";
+    private static final String LIKES_KEY = "timeline:likes";
+    private static final String TOTAL_KEY = "timeline:total";
+    private static final String READY_KEY = "timeline:ready";
+    private static final String REBUILD_LOCK_KEY = "timeline:rebuild:lock";
+    private static final long REBUILD_LOCK_SECONDS = 30;
+
+    /**
+     * 时间线保留的最新留言条数
+     *
+     * @return 容量
+     */
+    public int getCapacity() {
+        return cacheProperties.getTimeline().getCapacity();
+    }
+
+    /**
+     * 时间线是否已构建
+     *
+     * @return 是否就绪
+     */
+    public boolean isReady() {
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.hasKey(READY_KEY));
+        } catch (Exception e) {
+            log.warn("检查时间线状态失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 尝试获取重建锁，保证同一时间只有一个节点从数据库重建
+     *
+     * @return 是否获得锁
+     */
+    public boolean tryLockRebuild() {
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                    .setIfAbsent(REBUILD_LOCK_KEY, "1", REBUILD_LOCK_SECONDS, TimeUnit.SECONDS));
+        } catch (Exception e) {
+            log.warn("获取时间线重建锁失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 用数据库中的最新留言重建时间线
+     *
+     * @param latest 最新留言（按创建时间倒序，不超过容量）
+     * @param total 未删除留言总数
+     */
+    public void rebuild(List<MessageDto> latest, long total) {
+        try {
+            redisTemplate.delete(List.of(IDS_KEY, DTO_KEY, LIKES_KEY));
+            if (!latest.isEmpty()) {
+                Map<String, Object> dtos = new HashMap<>();
+                Map<String, String> likes = new HashMap<>();
+                for (MessageDto dto : latest) {
+                    String id = String.valueOf(dto.getId());
+                    stringRedisTemplate.opsForZSet().add(IDS_KEY, id, score(dto));
+                    dtos.put(id, dto);
+                    likes.put(id, String.valueOf(dto.getLikeCount() == null ? 0 : dto.getLikeCount()));
+                }
+                redisTemplate.opsForHash().putAll(DTO_KEY, dtos);
+                stringRedisTemplate.opsForHash().putAll(LIKES_KEY, likes);
+            }
+            stringRedisTemplate.opsForValue().set(TOTAL_KEY, String.valueOf(total));
+            stringRedisTemplate.opsForValue().set(READY_KEY, "1",
+                    cacheProperties.getTimeline().getTtl().toMillis(), TimeUnit.MILLISECONDS);
+            log.info("时间线已重建: 条数={}, 总数={}", latest.size(), total);
+        } catch (Exception e) {
+            log.warn("重建时间线失败: {}", e.getMessage());
+        } finally {
+            try {
+                stringRedisTemplate.delete(REBUILD_LOCK_KEY);
+            } catch (Exception e) {
+                log.warn("释放时间线重建锁失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 从时间线读取一页留言（按创建时间倒序）
+     *
+     * @param pageable 分页参数
+     * @return 留言分页结果，时间线未就绪或超出窗口时返回null
+     */
+    public Page<MessageDto> getPage(Pageable pageable) {
+        try {
+            if (!isReady()) {
+                return null;
+            }
+            long start = pageable.getOffset();
+            if (start + pageable.getPageSize() > getCapacity()) {
+                return null;
+            }
+            String total = stringRedisTemplate.opsForValue().get(TOTAL_KEY);
+            if (total == null) {
+                return null;
+            }
+            long totalElements = Long.parseLong(total);
+            List<MessageDto> content = range(start, start + pageable.getPageSize() - 1);
+            // 返回条数不足一页时，只有已到数据末尾才可信，否则说明窗口内数据不完整
+            if (content == null || (content.size() < pageable.getPageSize() && start + content.size() < totalElements)) {
+                return null;
+            }
+            return new PageImpl<>(content, pageable, totalElements);
+        } catch (Exception e) {
+            log.warn("从时间线读取留言失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 从时间线读取最新的若干条留言
+     *
+     * @param count 条数
+     * @return 留言列表，时间线未就绪或窗口内数据不完整时返回null
+     */
+    public List<MessageDto> getLatest(int count) {
+        try {
+            if (!isReady() || count > getCapacity()) {
+                return null;
+            }
+            String total = stringRedisTemplate.opsForValue().get(TOTAL_KEY);
+            if (total == null) {
+                return null;
+            }
+            List<MessageDto> content = range(0, count - 1);
+            // 与getPage相同：条数不足时只有已到数据末尾才可信，否则调用方会误判没有下一页
+            if (content == null || (content.size() < count && content.size() < Long.parseLong(total))) {
+                return null;
+            }
+            return content;
+        } catch (Exception e) {
+            log.warn("从时间线读取最新留言失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 新留言加入时间线，超出容量时淘汰最旧的留言
+     *
+     * @param dto 新留言
+     */
+    public void onCreated(MessageDto dto) {
+        try {
+            if (!isReady()) {
+                return;
+            }
+            String id = String.valueOf(dto.getId());
+            stringRedisTemplate.opsForZSet().add(IDS_KEY, id, score(dto));
+            redisTemplate.opsForHash().put(DTO_KEY, id, dto);
+            stringRedisTemplate.opsForHash().put(LIKES_KEY, id, String.valueOf(dto.getLikeCount() == null ? 0 : dto.getLikeCount()));
+            stringRedisTemplate.opsForValue().increment(TOTAL_KEY);
+            trim();
+        } catch (Exception e) {
+            log.warn("时间线添加留言失败: ID={}, 错误={}", dto.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 留言内容更新，只更新窗口内已存在的条目
+     *
+     * @param dto 更新后的留言
+     */
+    public void onUpdated(MessageDto dto) {
+        try {
+            String id = String.valueOf(dto.getId());
+            if (stringRedisTemplate.opsForZSet().score(IDS_KEY, id) != null) {
+                redisTemplate.opsForHash().put(DTO_KEY, id, dto);
+            }
+        } catch (Exception e) {
+            log.warn("时间线更新留言失败: ID={}, 错误={}", dto.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 留言删除，从时间线移除
+     *
+     * @param messageId 留言ID
+     */
+    public void onDeleted(Long messageId) {
+        try {
+            if (!isReady()) {
+                return;
+            }
+            String id = String.valueOf(messageId);
+            stringRedisTemplate.opsForZSet().remove(IDS_KEY, id);
+            redisTemplate.opsForHash().delete(DTO_KEY, id);
+            stringRedisTemplate.opsForHash().delete(LIKES_KEY, id);
+            stringRedisTemplate.opsForValue().decrement(TOTAL_KEY);
+        } catch (Exception e) {
+            log.warn("时间线删除留言失败: ID={}, 错误={}", messageId, e.getMessage());
+        }
+    }
+
+    /**
+     * 点赞数变化，只更新窗口内已存在的条目
+     *
+     * @param messageId 留言ID
+     * @param delta 变化量（点赞+1，取消-1）
+     */
+    public void onLikeChanged(Long messageId, int delta) {
+        try {
+            String id = String.valueOf(messageId);
+            if (stringRedisTemplate.opsForZSet().score(IDS_KEY, id) != null) {
+                stringRedisTemplate.opsForHash().increment(LIKES_KEY, id, delta);
+            }
+        } catch (Exception e) {
+            log.warn("时间线更新点赞数失败: ID={}, 错误={}", messageId, e.getMessage());
+        }
+    }
+
+    /**
+     * 读取时间线中 [start, end] 位置的留言，并合并最新点赞数
+     *
+     * @return 留言列表，条目不完整（例如哈希与有序集合不一致）时返回null
+     */
+    private List<MessageDto> range(long start, long end) {
+        Set<String> ids = stringRedisTemplate.opsForZSet().reverseRange(IDS_KEY, start, end);
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Object> fields = new ArrayList<>(ids);
+        List<Object> dtos = redisTemplate.opsForHash().multiGet(DTO_KEY, fields);
+        List<Object> likes = stringRedisTemplate.opsForHash().multiGet(LIKES_KEY, fields);
+        List<MessageDto> result = new ArrayList<>(ids.size());
+        for (int i = 0; i < dtos.size(); i++) {
+            if (!(dtos.get(i) instanceof MessageDto dto)) {
+                return null;
+            }
+            int likeCount = likes.get(i) == null ? 0 : Integer.parseInt(likes.get(i).toString());
+            dto.setLikeCount(likeCount);
+            dto.setIsHot(hotRankingProperties.isHot(likeCount));
+            result.add(dto);
+        }
+        return result;
+    }
+
+    /**
+     * 淘汰超出容量的最旧留言
+     */
+    private void trim() {
+        Long size = stringRedisTemplate.opsForZSet().zCard(IDS_KEY);
+        int capacity = getCapacity();
+        if (size == null || size <= capacity) {
+            return;
+        }
+        Set<String> evicted = stringRedisTemplate.opsForZSet().range(IDS_KEY, 0, size - capacity - 1);
+        if (evicted == null || evicted.isEmpty()) {
+            return;
+        }
+        Object[] fields = evicted.toArray();
+        stringRedisTemplate.opsForZSet().remove(IDS_KEY, fields);
+        redisTemplate.opsForHash().delete(DTO_KEY, fields);
+        stringRedisTemplate.opsForHash().delete(LIKES_KEY, fields);
+    }
+
+    private double score(MessageDto dto) {
+        return dto.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
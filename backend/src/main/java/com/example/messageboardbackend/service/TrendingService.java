@@ -0,0 +1,222 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.TrendingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 近期趋势统计
+ *
+ * 每条留言一个按分钟分桶的环形缓冲区（int数组，桶数等于最长窗口的分钟数），点赞+1、取消-1，
+ * 定时汇总各窗口内的净点赞数，用容量为K的小顶堆选出前K条，请求只读取最近一次的结果。
+ * 超过最长窗口没有点赞的留言在汇总时移除，统计的留言数有上限，内存占用通过指标上报。
+ *
+ * 计数只在本节点内存中，多节点部署时每个节点按各自收到的点赞排行。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Service
+@Slf4j
+public class TrendingService {
+
+    /**
+     * 单条留言统计的估算字节数：两个int数组 + 缓冲区对象 + 哈希表节点和Long键
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 2 * 16 + 32 + 48 + 16;
+
+    private static final Comparator<Ranked> BY_COUNT = Comparator.comparingInt(Ranked::count)
+            .thenComparing(Comparator.comparingLong(Ranked::messageId).reversed());
+
+    private final TrendingProperties trendingProperties;
+    private final Map<Long, MinuteRing> rings = new ConcurrentHashMap<>();
+    private final int buckets;
+    private final Counter dropped;
+
+    /**
+     * 窗口分钟数 -> 按净点赞数倒序的留言ID
+     */
+    private volatile Map<Integer, List<Long>> rankings = Map.of();
+
+    public TrendingService(TrendingProperties trendingProperties, MeterRegistry meterRegistry) {
+        this.trendingProperties = trendingProperties;
+        this.buckets = trendingProperties.getWindows().stream()
+                .mapToInt(window -> (int) window.toMinutes())
+                .max()
+                .orElse(60);
+        this.dropped = Counter.builder("message.trending.dropped")
+                .description("统计留言数达到上限而未计入趋势的点赞数")
+                .register(meterRegistry);
+        Gauge.builder("message.trending.tracked", rings, Map::size)
+                .description("正在统计的留言数")
+                .register(meterRegistry);
+        Gauge.builder("message.trending.memory", rings, map -> (double) map.size() * (ENTRY_OVERHEAD_BYTES + 8L * buckets))
+                .description("趋势统计估算占用的字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录点赞数变化
+     *
+     * @param messageId 留言ID
+     * @param delta 变化量（点赞+1，取消-1）
+     */
+    public void record(Long messageId, int delta) {
+        int minute = currentMinute();
+        while (true) {
+            MinuteRing ring = rings.get(messageId);
+            if (ring == null) {
+                if (rings.size() >= trendingProperties.getMaxMessages()) {
+                    dropped.increment();
+                    return;
+                }
+                ring = rings.computeIfAbsent(messageId, id -> new MinuteRing(buckets));
+            }
+            if (ring.add(minute, delta)) {
+                return;
+            }
+            // 缓冲区刚被当作空闲移除，换一个新的重试
+            rings.remove(messageId, ring);
+        }
+    }
+
+    /**
+     * 读取窗口内的趋势排行
+     *
+     * @param window 统计窗口，必须是配置的窗口之一
+     * @param limit 条数
+     * @return 按净点赞数倒序的留言ID
+     */
+    public List<Long> getTrending(Duration window, int limit) {
+        int minutes = (int) window.toMinutes();
+        if (trendingProperties.getWindows().stream().noneMatch(configured -> configured.toMinutes() == minutes)) {
+            throw new IllegalArgumentException("不支持的统计窗口: " + window + "，可选: " + trendingProperties.getWindows());
+        }
+        List<Long> ranking = rankings.getOrDefault(minutes, List.of());
+        return ranking.subList(0, Math.min(Math.max(limit, 0), ranking.size()));
+    }
+
+    /**
+     * 重算各窗口的前K条，同时移除空闲的留言
+     */
+    @Scheduled(fixedDelayString = "#{@trendingProperties.refreshInterval.toMillis()}")
+    public void refresh() {
+        int now = currentMinute();
+        int[] windows = trendingProperties.getWindows().stream().mapToInt(window -> (int) window.toMinutes()).toArray();
+        int topK = trendingProperties.getTopK();
+        List<PriorityQueue<Ranked>> heaps = new ArrayList<>(windows.length);
+        for (int i = 0; i < windows.length; i++) {
+            heaps.add(new PriorityQueue<>(topK + 1, BY_COUNT));
+        }
+
+        int evicted = 0;
+        int[] sums = new int[windows.length];
+        for (Map.Entry<Long, MinuteRing> entry : rings.entrySet()) {
+            MinuteRing ring = entry.getValue();
+            if (!ring.sums(now, windows, sums)) {
+                rings.remove(entry.getKey(), ring);
+                evicted++;
+                continue;
+            }
+            for (int i = 0; i < windows.length; i++) {
+                if (sums[i] <= 0) {
+                    continue;
+                }
+                PriorityQueue<Ranked> heap = heaps.get(i);
+                Ranked candidate = new Ranked(entry.getKey(), sums[i]);
+                if (heap.size() < topK) {
+                    heap.add(candidate);
+                } else if (BY_COUNT.compare(candidate, heap.peek()) > 0) {
+                    heap.poll();
+                    heap.add(candidate);
+                }
+            }
+        }
+
+        Map<Integer, List<Long>> result = new HashMap<>();
+        for (int i = 0; i < windows.length; i++) {
+            List<Ranked> ranked = new ArrayList<>(heaps.get(i));
+            ranked.sort(BY_COUNT.reversed());
+            result.put(windows[i], ranked.stream().map(Ranked::messageId).toList());
+        }
+        rankings = result;
+        log.debug("趋势排行已刷新: 统计留言数={}, 移除空闲={}", rings.size(), evicted);
+    }
+
+    private static int currentMinute() {
+        return (int) (System.currentTimeMillis() / 60_000);
+    }
+
+    /**
+     * 单条留言的分钟桶环形缓冲区：第m分钟的计数在 m % 桶数 位置，位置上记录的分钟不是m时视为过期桶
+     */
+    private static final class MinuteRing {
+
+        private final int[] counts;
+        private final int[] minutes;
+        private int lastMinute;
+        private boolean evicted;
+
+        MinuteRing(int buckets) {
+            this.counts = new int[buckets];
+            this.minutes = new int[buckets];
+        }
+
+        /**
+         * @return 已被移除时返回false
+         */
+        synchronized boolean add(int minute, int delta) {
+            if (evicted) {
+                return false;
+            }
+            int index = minute % counts.length;
+            if (minutes[index] != minute) {
+                minutes[index] = minute;
+                counts[index] = 0;
+            }
+            counts[index] += delta;
+            lastMinute = Math.max(lastMinute, minute);
+            return true;
+        }
+
+        /**
+         * 一次遍历计算各窗口内的计数；整个缓冲区都已过期时标记为移除
+         *
+         * @return 已空闲并被标记移除时返回false
+         */
+        synchronized boolean sums(int now, int[] windows, int[] sums) {
+            if (now - lastMinute >= counts.length) {
+                evicted = true;
+                return false;
+            }
+            Arrays.fill(sums, 0);
+            for (int i = 0; i < counts.length; i++) {
+                int age = now - minutes[i];
+                for (int w = 0; w < windows.length; w++) {
+                    if (age >= 0 && age < windows[w]) {
+                        sums[w] += counts[i];
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    private record Ranked(long messageId, int count) {
+    }
+}
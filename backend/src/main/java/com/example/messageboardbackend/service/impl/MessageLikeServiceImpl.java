@@ -1,19 +1,37 @@
 package com.example.messageboardbackend.service.impl;
 
+import com.example.messageboardbackend.config.HotRankingProperties;
 import com.example.messageboardbackend.dto.ApiResponse;
-import com.example.messageboardbackend.model.Message;
-import com.example.messageboardbackend.model.MessageLike;
-import com.example.messageboardbackend.model.User;
+import com.example.messageboardbackend.dto.LikeResultDto;
+import com.example.messageboardbackend.dto.MessageDto;
 import com.example.messageboardbackend.repository.MessageLikeRepository;
 import com.example.messageboardbackend.repository.MessageRepository;
 import com.example.messageboardbackend.repository.UserRepository;
+import com.example.messageboardbackend.service.HotRankingService;
+import com.example.messageboardbackend.service.KafkaProducerService;
+import com.example.messageboardbackend.service.LikeBitmapIndex;
+import com.example.messageboardbackend.service.LikeCountBuffer;
 import com.example.messageboardbackend.service.MessageLikeService;
+import com.example.messageboardbackend.service.MessageSearchIndex;
 import com.example.messageboardbackend.service.RedisCacheService;
+import com.example.messageboardbackend.service.TimelineCacheService;
+import com.example.messageboardbackend.service.TrendingService;
+import com.example.messageboardbackend.util.TransactionUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * 留言点赞服务实现类
  * 
@@ -30,44 +48,77 @@ public class MessageLikeServiceImpl implements MessageLikeService {
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
     private final RedisCacheService redisCacheService;
+    private final TimelineCacheService timelineCacheService;
+    private final HotRankingService hotRankingService;
+    private final TrendingService trendingService;
+    private final LikeCountBuffer likeCountBuffer;
+    private final LikeBitmapIndex likeBitmapIndex;
+    private final MessageSearchIndex messageSearchIndex;
+    private final KafkaProducerService kafkaProducerService;
+    private final HotRankingProperties hotRankingProperties;
+    
+    /**
+     * 用户名到用户ID的映射，点赞状态查询走位图时免去按用户名查用户
+     */
+    private final Cache<String, Long> userIds = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofMinutes(30))
+            .build();
     
     @Override
-    public ApiResponse<String> likeMessage(Long messageId, String username) {
+    public ApiResponse<LikeResultDto> likeMessage(Long messageId, String username) {
         try {
-            // 查找用户
-            User user = userRepository.findByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("用户不存在: " + username));
-            
-            // 查找留言
-            Message message = messageRepository.findById(messageId)
-                    .orElseThrow(() -> new RuntimeException("留言不存在: " + messageId));
+            Long userId = findUserId(username);
             
-            if (message.getDeleted()) {
-                return ApiResponse.error("留言已删除");
+            // 事件化：点赞事件写入发件箱即返回，点赞记录和点赞数由 LikeEventProjection 异步投影
+            if (kafkaProducerService.isLikeEventsEnabled()) {
+                int likeCount = readLikeCount(messageId, false);
+                if (hasLiked(messageId, userId)) {
+                    return ApiResponse.success("您已经点赞过这条留言", new LikeResultDto(messageId, true, likeCount, false));
+                }
+                kafkaProducerService.sendLikeEvent(messageId, userId, true);
+                // 与其他路径一样在提交后计入趋势，事件写入回滚时不留下计数
+                TransactionUtils.afterCommit(() -> trendingService.record(messageId, 1));
+                log.info("用户 {} 点赞留言 {} 事件已写入", username, messageId);
+                return ApiResponse.success("点赞成功", new LikeResultDto(messageId, true, likeCount + 1, true));
             }
             
-            // 检查是否已经点赞
-            if (messageLikeRepository.existsByMessageIdAndUserIdAndDeletedFalse(messageId, user.getId())) {
-                return ApiResponse.error("您已经点赞过这条留言");
-            }
+            // 先锁住留言行读出点赞数（同时确认留言存在），再修改点赞记录：插入时外键检查会对留言行加共享锁，
+            // 先拿到排他锁可以避免并发点赞之间共享锁升级形成死锁。开启延迟写入时不更新留言行，也就不需要加锁
+            boolean writeBehind = likeCountBuffer.isEnabled();
+            int likeCount = readLikeCount(messageId, !writeBehind);
             
-            // 创建点赞记录
-            MessageLike messageLike = new MessageLike();
-            messageLike.setMessage(message);
-            messageLike.setUser(user);
-            messageLikeRepository.save(messageLike);
+            // 取消过的点赞恢复，否则插入；两条都不影响任何行说明已经点赞，重试的请求到这里直接返回
+            boolean changed = messageLikeRepository.restoreLike(messageId, userId) > 0
+                    || messageLikeRepository.insertLikeIgnore(messageId, userId) > 0;
+            if (!changed) {
+                log.debug("用户 {} 已点赞留言 {}，忽略重复请求", username, messageId);
+                return ApiResponse.success("您已经点赞过这条留言", new LikeResultDto(messageId, true, likeCount, false));
+            }
             
-            // 更新留言点赞数
-            message.incrementLikeCount();
-            messageRepository.save(message);
+            // 原子更新留言点赞数，开启延迟写入时计数在提交后累加到缓冲区
+            if (!writeBehind) {
+                messageRepository.incrementLikeCount(messageId, hotRankingProperties.getMinLikes());
+            }
+            kafkaProducerService.sendLikeLog(userId, messageId, true);
             
-            // 清除相关缓存
-            redisCacheService.clearMessageListCache();
-            redisCacheService.clearHotMessageCache();
+            // 时间线只更新这一条的点赞数，热门排行可能变化需要清除（延迟写入时由批量写入后统一清除）
+            TransactionUtils.afterCommit(() -> {
+                timelineCacheService.onLikeChanged(messageId, 1);
+                hotRankingService.onLikeChanged(messageId, 1);
+                trendingService.record(messageId, 1);
+                likeBitmapIndex.onLiked(messageId, userId);
+                messageSearchIndex.onLikeCountChanged(messageId, likeCount + 1);
+                if (writeBehind) {
+                    likeCountBuffer.add(messageId, 1);
+                } else {
+                    redisCacheService.clearHotMessageCache();
+                }
+            });
             
-            log.info("用户 {} 点赞留言 {} 成功，当前点赞数: {}", username, messageId, message.getLikeCount());
+            log.info("用户 {} 点赞留言 {} 成功", username, messageId);
             
-            return ApiResponse.success("点赞成功");
+            return ApiResponse.success("点赞成功", new LikeResultDto(messageId, true, likeCount + 1, true));
         } catch (Exception e) {
             log.error("点赞留言失败: messageId={}, username={}, 错误: {}", messageId, username, e.getMessage());
             return ApiResponse.error("点赞失败: " + e.getMessage());
@@ -75,32 +126,55 @@ public class MessageLikeServiceImpl implements MessageLikeService {
     }
     
     @Override
-    public ApiResponse<String> unlikeMessage(Long messageId, String username) {
+    public ApiResponse<LikeResultDto> unlikeMessage(Long messageId, String username) {
         try {
-            // 查找用户
-            User user = userRepository.findByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("用户不存在: " + username));
+            Long userId = findUserId(username);
+            
+            if (kafkaProducerService.isLikeEventsEnabled()) {
+                int likeCount = readLikeCount(messageId, false);
+                if (!hasLiked(messageId, userId)) {
+                    return ApiResponse.success("您还没有点赞过这条留言", new LikeResultDto(messageId, false, likeCount, false));
+                }
+                kafkaProducerService.sendLikeEvent(messageId, userId, false);
+                TransactionUtils.afterCommit(() -> trendingService.record(messageId, -1));
+                log.info("用户 {} 取消点赞留言 {} 事件已写入", username, messageId);
+                return ApiResponse.success("取消点赞成功",
+                        new LikeResultDto(messageId, false, Math.max(likeCount - 1, 0), true));
+            }
             
-            // 查找点赞记录
-            MessageLike messageLike = messageLikeRepository.findByMessageIdAndUserIdAndDeletedFalse(messageId, user.getId())
-                    .orElseThrow(() -> new RuntimeException("您还没有点赞过这条留言"));
+            // 与点赞相同，先锁留言行
+            boolean writeBehind = likeCountBuffer.isEnabled();
+            int likeCount = readLikeCount(messageId, !writeBehind);
             
-            // 软删除点赞记录
-            messageLike.softDelete();
-            messageLikeRepository.save(messageLike);
+            // 软删除点赞记录，不影响任何行说明本来就没有点赞
+            if (messageLikeRepository.cancelLike(messageId, userId) == 0) {
+                log.debug("用户 {} 未点赞留言 {}，忽略重复请求", username, messageId);
+                return ApiResponse.success("您还没有点赞过这条留言", new LikeResultDto(messageId, false, likeCount, false));
+            }
             
-            // 更新留言点赞数
-            Message message = messageLike.getMessage();
-            message.decrementLikeCount();
-            messageRepository.save(message);
+            if (!writeBehind) {
+                messageRepository.decrementLikeCount(messageId, hotRankingProperties.getMinLikes());
+            }
+            kafkaProducerService.sendLikeLog(userId, messageId, false);
             
-            // 清除相关缓存
-            redisCacheService.clearMessageListCache();
-            redisCacheService.clearHotMessageCache();
+            // 时间线只更新这一条的点赞数，热门排行可能变化需要清除（延迟写入时由批量写入后统一清除）
+            TransactionUtils.afterCommit(() -> {
+                timelineCacheService.onLikeChanged(messageId, -1);
+                hotRankingService.onLikeChanged(messageId, -1);
+                trendingService.record(messageId, -1);
+                likeBitmapIndex.onUnliked(messageId, userId);
+                messageSearchIndex.onLikeCountChanged(messageId, Math.max(likeCount - 1, 0));
+                if (writeBehind) {
+                    likeCountBuffer.add(messageId, -1);
+                } else {
+                    redisCacheService.clearHotMessageCache();
+                }
+            });
             
-            log.info("用户 {} 取消点赞留言 {} 成功，当前点赞数: {}", username, messageId, message.getLikeCount());
+            log.info("用户 {} 取消点赞留言 {} 成功", username, messageId);
             
-            return ApiResponse.success("取消点赞成功");
+            return ApiResponse.success("取消点赞成功",
+                    new LikeResultDto(messageId, false, Math.max(likeCount - 1, 0), true));
         } catch (Exception e) {
             log.error("取消点赞失败: messageId={}, username={}, 错误: {}", messageId, username, e.getMessage());
             return ApiResponse.error("取消点赞失败: " + e.getMessage());
@@ -110,10 +184,7 @@ public class MessageLikeServiceImpl implements MessageLikeService {
     @Override
     public boolean isUserLikedMessage(Long messageId, String username) {
         try {
-            User user = userRepository.findByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("用户不存在: " + username));
-            
-            return messageLikeRepository.existsByMessageIdAndUserIdAndDeletedFalse(messageId, user.getId());
+            return hasLiked(messageId, resolveUserId(username));
         } catch (Exception e) {
             log.error("检查用户点赞状态失败: messageId={}, username={}, 错误: {}", messageId, username, e.getMessage());
             return false;
@@ -129,4 +200,93 @@ public class MessageLikeServiceImpl implements MessageLikeService {
             return 0;
         }
     }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, Boolean> getLikeStatuses(Collection<Long> messageIds, String username) {
+        Set<Long> liked = findLikedMessageIds(messageIds, username);
+        Map<Long, Boolean> result = new LinkedHashMap<>();
+        for (Long messageId : messageIds) {
+            result.put(messageId, liked.contains(messageId));
+        }
+        return result;
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<MessageDto> fillLikeStatus(List<MessageDto> messages, String username) {
+        if (messages.isEmpty()) {
+            return messages;
+        }
+        Set<Long> liked = findLikedMessageIds(messages.stream().map(MessageDto::getId).toList(), username);
+        return messages.stream().map(message -> {
+            MessageDto copy = new MessageDto(message.getId(), message.getUserId(), message.getContent(),
+                    message.getUsername(), message.getCreatedAt(), message.getUpdatedAt(), message.getDeleted(),
+                    message.getLikeCount(), message.getIsHot());
+            copy.setIsLiked(liked.contains(message.getId()));
+            copy.setHighlights(message.getHighlights());
+            return copy;
+        }).toList();
+    }
+    
+    /**
+     * 单条点赞判断，位图就绪时不查库
+     */
+    private boolean hasLiked(Long messageId, Long userId) {
+        if (likeBitmapIndex.isReady() && likeBitmapIndex.supports(userId)) {
+            return likeBitmapIndex.contains(messageId, userId);
+        }
+        return messageLikeRepository.existsByMessageIdAndUserIdAndDeletedFalse(messageId, userId);
+    }
+    
+    /**
+     * 读取点赞前的点赞数，同时确认留言存在且未删除；延迟写入时合并本节点尚未写入的增量
+     * 
+     * @param lock 是否锁定留言行
+     */
+    private int readLikeCount(Long messageId, boolean lock) {
+        Integer stored = (lock ? messageRepository.lockLikeCountById(messageId) : messageRepository.findLikeCountById(messageId))
+                .orElseThrow(() -> new RuntimeException("留言不存在: " + messageId));
+        return (int) Math.max(0, stored + likeCountBuffer.pendingDelta(messageId));
+    }
+    
+    /**
+     * 写操作按用户名查库取用户ID，不走缓存：缓存的ID过期失效时，INSERT IGNORE 会把外键错误当作重复而静默忽略
+     */
+    private Long findUserId(String username) {
+        return userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("用户不存在: " + username))
+                .getId();
+    }
+    
+    private Long resolveUserId(String username) {
+        return userIds.get(username, name -> userRepository.findByUsername(name)
+                .orElseThrow(() -> new RuntimeException("用户不存在: " + name))
+                .getId());
+    }
+    
+    /**
+     * 取出用户在给定留言中已点赞的部分：位图就绪时在内存中判断，否则一条IN查询；匿名用户或查询失败时视为全部未点赞
+     * 
+     * @param messageIds 留言ID集合
+     * @param username 用户名
+     * @return 已点赞的留言ID
+     */
+    private Set<Long> findLikedMessageIds(Collection<Long> messageIds, String username) {
+        if (username == null || messageIds.isEmpty()) {
+            return Set.of();
+        }
+        try {
+            if (likeBitmapIndex.isReady()) {
+                Long userId = resolveUserId(username);
+                if (likeBitmapIndex.supports(userId)) {
+                    return likeBitmapIndex.likedAmong(messageIds, userId);
+                }
+            }
+            return new HashSet<>(messageLikeRepository.findLikedMessageIds(username, new HashSet<>(messageIds)));
+        } catch (Exception e) {
+            log.error("批量检查点赞状态失败: username={}, 数量={}, 错误: {}", username, messageIds.size(), e.getMessage());
+            return Set.of();
+        }
+    }
 }
@@ -1,20 +1,39 @@
 package com.example.messageboardbackend.service.impl;
 
+import com.example.messageboardbackend.config.HotRankingProperties;
+import com.example.messageboardbackend.dto.CursorPage;
 import com.example.messageboardbackend.dto.MessageDto;
 import com.example.messageboardbackend.model.Message;
 import com.example.messageboardbackend.model.User;
 import com.example.messageboardbackend.repository.MessageRepository;
 import com.example.messageboardbackend.repository.UserRepository;
+import com.example.messageboardbackend.service.HotRankingService;
+import com.example.messageboardbackend.service.LikeCountBuffer;
+import com.example.messageboardbackend.service.MessageSearchIndex;
+import com.example.messageboardbackend.service.MessageSearchService;
 import com.example.messageboardbackend.service.MessageService;
 import com.example.messageboardbackend.service.RedisCacheService;
+import com.example.messageboardbackend.service.SearchResultCache;
 import com.example.messageboardbackend.service.KafkaProducerService;
+import com.example.messageboardbackend.service.TimelineCacheService;
+import com.example.messageboardbackend.service.TrendingService;
+import com.example.messageboardbackend.util.FeedCursor;
+import com.example.messageboardbackend.util.TransactionUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 留言服务实现类
@@ -32,48 +51,53 @@ public class MessageServiceImpl implements MessageService {
     private final UserRepository userRepository;
     private final RedisCacheService redisCacheService;
     private final KafkaProducerService kafkaProducerService;
+    private final TimelineCacheService timelineCacheService;
+    private final LikeCountBuffer likeCountBuffer;
+    private final HotRankingService hotRankingService;
+    private final TrendingService trendingService;
+    private final MessageSearchService messageSearchService;
+    private final MessageSearchIndex messageSearchIndex;
+    private final SearchResultCache searchResultCache;
+    private final HotRankingProperties hotRankingProperties;
+    
+    /**
+     * 游标分页单页最大条数
+     */
+    private static final int MAX_FEED_LIMIT = 50;
     
     @Override
     public Page<MessageDto> getMessages(Pageable pageable) {
-        // 首先尝试从Redis缓存获取数据
-        if (pageable.getPageNumber() == 0 && pageable.getPageSize() <= 50) {
-            List<Object> cachedMessages = redisCacheService.getMessageListFromCache();
-            if (cachedMessages != null) {
-                log.info("从Redis缓存获取留言列表，缓存命中");
-                // 这里简化处理，实际项目中需要更复杂的缓存逻辑
-                // 由于分页查询的复杂性，这里主要缓存第一页数据
-                Page<Message> messages = messageRepository.findByDeletedFalse(pageable);
-                return messages.map(this::convertToDto);
+        // 最新N条留言直接由Redis时间线组装，写操作只增量更新时间线
+        if (isTimelineOrder(pageable.getSort())) {
+            Page<MessageDto> timelinePage = timelineCacheService.getPage(pageable);
+            if (timelinePage == null && rebuildTimelineIfNeeded()) {
+                timelinePage = timelineCacheService.getPage(pageable);
+            }
+            if (timelinePage != null) {
+                return timelinePage;
             }
         }
         
-        // 缓存未命中，从数据库查询
-        Page<Message> messages = messageRepository.findByDeletedFalse(pageable);
-        Page<MessageDto> result = messages.map(this::convertToDto);
-        
-        // 如果是第一页且数据量不大，则缓存到Redis
-        if (pageable.getPageNumber() == 0 && pageable.getPageSize() <= 50) {
-            try {
-                redisCacheService.cacheMessageList((List<Object>) (List<?>) result.getContent());
-                log.debug("留言列表已缓存到Redis");
-            } catch (Exception e) {
-                log.warn("缓存留言列表失败: {}", e.getMessage());
-            }
+        // 时间线窗口之外的分页走分页缓存，未命中时并发请求只查一次库
+        if (redisCacheService.isCacheable(pageable)) {
+            return redisCacheService.getOrLoadMessagePage(pageable, () -> withPendingLikes(messageRepository.findDtos(pageable)));
         }
         
-        return result;
+        // 深分页直接从数据库查询（DTO投影，一条SQL带出用户信息）
+        return withPendingLikes(messageRepository.findDtos(pageable));
     }
     
     @Override
     public MessageDto getMessageById(Long id) {
-        Message message = messageRepository.findById(id)
+        MessageDto message = messageRepository.findDtoById(id)
                 .orElseThrow(() -> new RuntimeException("留言不存在"));
         
         if (message.getDeleted()) {
             throw new RuntimeException("留言已删除");
         }
         
-        return convertToDto(message);
+        likeCountBuffer.mergePending(List.of(message));
+        return message;
     }
     
     @Override
@@ -91,23 +115,12 @@ public class MessageServiceImpl implements MessageService {
         Message savedMessage = messageRepository.save(message);
         log.info("留言创建成功: ID={}, 用户={}", savedMessage.getId(), user.getUsername());
         
-        // 发送Kafka日志消息
-        try {
-            kafkaProducerService.sendUserMessageLog(user.getUsername());
-            log.debug("用户发布留言日志已发送到Kafka");
-        } catch (Exception e) {
-            log.warn("发送Kafka日志失败: {}", e.getMessage());
-        }
-        
-        // 清除Redis缓存，因为数据已更新
-        try {
-            redisCacheService.clearMessageListCache();
-            log.debug("留言列表缓存已清除");
-        } catch (Exception e) {
-            log.warn("清除缓存失败: {}", e.getMessage());
-        }
+        // 日志事件写入发件箱，与留言在同一个事务中提交
+        kafkaProducerService.sendUserMessageLog(user.getId(), savedMessage.getId());
         
-        return convertToDto(savedMessage);
+        MessageDto result = convertToDto(savedMessage);
+        onMessageCreated(result);
+        return result;
     }
     
     @Override
@@ -125,23 +138,12 @@ public class MessageServiceImpl implements MessageService {
         Message savedMessage = messageRepository.save(message);
         log.info("留言创建成功: ID={}, 用户={}", savedMessage.getId(), user.getUsername());
         
-        // 发送Kafka日志消息
-        try {
-            kafkaProducerService.sendUserMessageLog(user.getUsername());
-            log.debug("用户发布留言日志已发送到Kafka");
-        } catch (Exception e) {
-            log.warn("发送Kafka日志失败: {}", e.getMessage());
-        }
-        
-        // 清除Redis缓存，因为数据已更新
-        try {
-            redisCacheService.clearMessageListCache();
-            log.debug("留言列表缓存已清除");
-        } catch (Exception e) {
-            log.warn("清除缓存失败: {}", e.getMessage());
-        }
+        // 日志事件写入发件箱，与留言在同一个事务中提交
+        kafkaProducerService.sendUserMessageLog(user.getId(), savedMessage.getId());
         
-        return convertToDto(savedMessage);
+        MessageDto result = convertToDto(savedMessage);
+        onMessageCreated(result);
+        return result;
     }
     
     @Override
@@ -153,21 +155,25 @@ public class MessageServiceImpl implements MessageService {
             throw new RuntimeException("留言已删除");
         }
         
-        // 更新留言内容
+        // 更新留言内容，旧内容用于清除搜索缓存
+        String oldContent = message.getContent();
         message.setContent(messageDto.getContent());
         
-        Message updatedMessage = messageRepository.save(message);
+        // 立即刷新，使@UpdateTimestamp生成的更新时间进入返回结果和时间线
+        Message updatedMessage = messageRepository.saveAndFlush(message);
         log.info("留言更新成功: ID={}", updatedMessage.getId());
         
-        // 清除Redis缓存，因为数据已更新
-        try {
-            redisCacheService.clearMessageListCache();
-            log.debug("留言列表缓存已清除");
-        } catch (Exception e) {
-            log.warn("清除缓存失败: {}", e.getMessage());
-        }
+        MessageDto result = convertToDto(updatedMessage);
+        likeCountBuffer.mergePending(List.of(result));
+        // 时间线只替换这一条；分页缓存中的旧内容在过期后刷新
+        TransactionUtils.afterCommit(() -> {
+            timelineCacheService.onUpdated(result);
+            messageSearchIndex.onSaved(result);
+            searchResultCache.onMessageChanged(oldContent, result.getContent());
+            redisCacheService.clearHotMessageCache();
+        });
         
-        return convertToDto(updatedMessage);
+        return result;
     }
     
     @Override
@@ -175,31 +181,143 @@ public class MessageServiceImpl implements MessageService {
         Message message = messageRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("留言不存在"));
         
-        // 软删除
-        message.setDeleted(true);
-        messageRepository.save(message);
+        // 软删除：只有把标记从false改为true的请求更新缓存，并发的重复删除直接返回，否则时间线总数会被重复减一
+        if (message.getDeleted() || messageRepository.softDeleteById(id) == 0) {
+            log.info("留言已删除，忽略重复删除: ID={}", id);
+            return;
+        }
         
         log.info("留言删除成功: ID={}", id);
         
-        // 清除Redis缓存，因为数据已更新
-        try {
+        TransactionUtils.afterCommit(() -> {
+            timelineCacheService.onDeleted(id);
+            hotRankingService.onDeleted(id);
+            messageSearchIndex.onDeleted(id);
+            searchResultCache.onMessageChanged(message.getContent());
+            // 删除会使窗口之外的分页整体前移，清除这部分分页缓存
             redisCacheService.clearMessageListCache();
-            log.debug("留言列表缓存已清除");
-        } catch (Exception e) {
-            log.warn("清除缓存失败: {}", e.getMessage());
-        }
+            redisCacheService.clearHotMessageCache();
+        });
     }
     
     @Override
     public Page<MessageDto> getMessagesByUserId(Long userId, Pageable pageable) {
-        Page<Message> messages = messageRepository.findByUserIdAndDeletedFalse(userId, pageable);
-        return messages.map(this::convertToDto);
+        return withPendingLikes(messageRepository.findDtosByUserId(userId, pageable));
     }
     
     @Override
     public Page<MessageDto> searchMessagesByContent(String content, Pageable pageable) {
-        Page<Message> messages = messageRepository.findByContentContaining(content, pageable);
-        return messages.map(this::convertToDto);
+        return searchMessagesByContent(content, MessageSearchService.SearchMode.NATURAL, pageable);
+    }
+    
+    @Override
+    public Page<MessageDto> searchMessagesByContent(String content, MessageSearchService.SearchMode mode, Pageable pageable) {
+        // 进程内索引不访问数据库，且写入后要等近实时刷新才可见，不再缓存
+        if (messageSearchIndex.isEnabled() && messageSearchIndex.isReady()) {
+            return search(content, mode, pageable);
+        }
+        // 按规范化后的关键词缓存，只有包含该关键词的留言变化时才清除
+        return searchResultCache.get(content, mode, pageable, keyword -> search(keyword, mode, pageable));
+    }
+    
+    /**
+     * 依次使用进程内索引、全文索引、LIKE搜索
+     */
+    private Page<MessageDto> search(String content, MessageSearchService.SearchMode mode, Pageable pageable) {
+        // 进程内索引直接返回完整结果（点赞数已是最新值），不访问数据库
+        Page<MessageDto> indexed = messageSearchIndex.search(content, mode, pageable);
+        if (indexed != null) {
+            return indexed;
+        }
+        // 全文索引只返回按相关度排好序的ID，内容按ID一次批量查询
+        Page<Long> ids = messageSearchService.searchIds(content, mode, pageable);
+        if (ids != null) {
+            return withPendingLikes(new PageImpl<>(findRankedDtos(ids.getContent()), ids.getPageable(), ids.getTotalElements()));
+        }
+        return withPendingLikes(messageRepository.findDtosByContentContaining(content, pageable));
+    }
+    
+    /**
+     * 新留言提交后加入时间线
+     * 
+     * @param dto 新留言
+     */
+    private void onMessageCreated(MessageDto dto) {
+        TransactionUtils.afterCommit(() -> {
+            timelineCacheService.onCreated(dto);
+            hotRankingService.onCreated(dto);
+            messageSearchIndex.onSaved(dto);
+            searchResultCache.onMessageChanged(dto.getContent());
+            // 新留言会使窗口之外的分页整体后移，清除这部分分页缓存
+            redisCacheService.clearMessageListCache();
+        });
+    }
+    
+    /**
+     * 是否为时间线的排序方式（按创建时间倒序）
+     * 
+     * @param sort 排序
+     * @return 是否可由时间线提供
+     */
+    private boolean isTimelineOrder(Sort sort) {
+        return sort.isUnsorted() || sort.equals(Sort.by(Sort.Direction.DESC, "createdAt"));
+    }
+    
+    /**
+     * 时间线未就绪时从数据库重建（同一时间只有一个节点执行）
+     * 
+     * @return 是否执行了重建
+     */
+    private boolean rebuildTimelineIfNeeded() {
+        if (timelineCacheService.isReady() || !timelineCacheService.tryLockRebuild()) {
+            return false;
+        }
+        int capacity = timelineCacheService.getCapacity();
+        // 时间线之后的点赞会增量更新到时间线，重建时需要带上尚未写入数据库的增量
+        List<MessageDto> latest = withPendingLikes(messageRepository.findFeed(PageRequest.of(0, capacity)).getContent());
+        long total = messageRepository.countByDeletedFalse();
+        timelineCacheService.rebuild(latest, total);
+        return true;
+    }
+    
+    /**
+     * 按排行顺序批量查询留言DTO，已删除的留言跳过
+     * 
+     * @param ids 按热度排序的留言ID
+     * @return 同顺序的留言DTO
+     */
+    private List<MessageDto> findRankedDtos(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, MessageDto> byId = new HashMap<>();
+        for (MessageDto dto : messageRepository.findDtosByIdIn(ids)) {
+            byId.put(dto.getId(), dto);
+        }
+        List<MessageDto> ranked = new ArrayList<>(byId.size());
+        for (Long id : ids) {
+            MessageDto dto = byId.get(id);
+            if (dto != null) {
+                ranked.add(dto);
+            }
+        }
+        return withPendingLikes(ranked);
+    }
+    
+    /**
+     * 合并本节点尚未写入数据库的点赞数增量（仅用于刚从数据库查出的结果）
+     * 
+     * @param page 查询结果
+     * @return 同一个查询结果
+     */
+    private Page<MessageDto> withPendingLikes(Page<MessageDto> page) {
+        likeCountBuffer.mergePending(page.getContent());
+        return page;
+    }
+    
+    private List<MessageDto> withPendingLikes(List<MessageDto> messages) {
+        likeCountBuffer.mergePending(messages);
+        return messages;
     }
     
     /**
@@ -224,55 +342,114 @@ public class MessageServiceImpl implements MessageService {
     
     @Override
     public Page<MessageDto> getHotMessages(Pageable pageable) {
-        // 首先尝试从Redis缓存获取数据
-        if (pageable.getPageNumber() == 0 && pageable.getPageSize() <= 50) {
-            List<Object> cachedHotMessages = redisCacheService.getHotMessageListFromCache();
-            if (cachedHotMessages != null) {
-                log.info("从Redis缓存获取热门留言列表，缓存命中");
-                // 由于分页查询的复杂性，这里主要缓存第一页数据
-                Page<Message> hotMessages = messageRepository.findHotMessagesOrderByLikeCount(pageable);
-                return hotMessages.map(this::convertToDto);
+        // 热门排行按时间衰减的热度排序，ID来自Redis有序集合，DTO按ID一次批量查询
+        if (hotRankingService.ensureReady()) {
+            List<Long> ids = hotRankingService.range(pageable.getOffset(), pageable.getPageSize());
+            long total = hotRankingService.size();
+            if (ids != null && total >= 0) {
+                return new PageImpl<>(findRankedDtos(ids), pageable, total);
             }
         }
         
-        // 缓存未命中，从数据库查询
-        Page<Message> hotMessages = messageRepository.findHotMessagesOrderByLikeCount(pageable);
-        Page<MessageDto> result = hotMessages.map(this::convertToDto);
-        
-        // 如果是第一页且数据量不大，则缓存到Redis
-        if (pageable.getPageNumber() == 0 && pageable.getPageSize() <= 50) {
-            try {
-                redisCacheService.cacheHotMessageList((List<Object>) (List<?>) result.getContent());
-                log.debug("热门留言列表已缓存到Redis");
-            } catch (Exception e) {
-                log.warn("缓存热门留言列表失败: {}", e.getMessage());
-            }
+        // 排行不可用时按点赞数排序：前几页走缓存，未命中时并发请求只查一次库
+        if (redisCacheService.isCacheable(pageable)) {
+            return redisCacheService.getOrLoadHotMessagePage(pageable, () -> withPendingLikes(messageRepository.findHotDtos(hotRankingProperties.getMinLikes(), pageable)));
         }
         
-        return result;
+        return withPendingLikes(messageRepository.findHotDtos(hotRankingProperties.getMinLikes(), pageable));
     }
     
     @Override
     public List<MessageDto> getAllHotMessages() {
-        // 首先尝试从Redis缓存获取数据
-        List<Object> cachedHotMessages = redisCacheService.getHotMessageListFromCache();
-        if (cachedHotMessages != null) {
-            log.info("从Redis缓存获取所有热门留言，缓存命中");
-            return (List<MessageDto>) (List<?>) cachedHotMessages;
+        if (hotRankingService.ensureReady()) {
+            List<Long> ids = hotRankingService.range(0, -1);
+            if (ids != null) {
+                return findRankedDtos(ids);
+            }
         }
         
-        // 缓存未命中，从数据库查询
-        List<Message> hotMessages = messageRepository.findAllHotMessages();
-        List<MessageDto> result = hotMessages.stream().map(this::convertToDto).toList();
-        
-        // 缓存到Redis
-        try {
-            redisCacheService.cacheHotMessageList((List<Object>) (List<?>) result);
-            log.debug("所有热门留言已缓存到Redis");
-        } catch (Exception e) {
-            log.warn("缓存所有热门留言失败: {}", e.getMessage());
+        // 排行不可用时优先读缓存，未命中时并发请求只查一次库并写回缓存
+        return redisCacheService.getOrLoadHotMessageList(() -> withPendingLikes(messageRepository.findAllHotDtos(hotRankingProperties.getMinLikes())));
+    }
+    
+    @Override
+    public List<MessageDto> getTrendingMessages(Duration window, int limit) {
+        // 排行由内存中的分钟桶定时汇总，这里只按ID批量查询留言内容
+        return findRankedDtos(trendingService.getTrending(window, limit));
+    }
+    
+    @Override
+    public CursorPage<MessageDto> getMessageFeed(String before, int limit) {
+        FeedCursor cursor = FeedCursor.decode(before);
+        Pageable pageable = feedPageable(limit);
+        // 第一页由时间线提供，多取一条判断是否还有下一页
+        if (cursor == null) {
+            List<MessageDto> latest = timelineCacheService.getLatest(pageable.getPageSize() + 1);
+            if (latest != null) {
+                boolean hasNext = latest.size() > pageable.getPageSize();
+                List<MessageDto> content = hasNext ? latest.subList(0, pageable.getPageSize()) : latest;
+                return toCursorPage(content, hasNext, false);
+            }
         }
-        
-        return result;
+        Slice<MessageDto> messages = cursor == null
+                ? messageRepository.findFeed(pageable)
+                : messageRepository.findFeedBefore(cursor.getCreatedAt(), cursor.getId(), pageable);
+        return toCursorPage(messages, false);
+    }
+    
+    @Override
+    public CursorPage<MessageDto> getMessageFeedByUserId(Long userId, String before, int limit) {
+        FeedCursor cursor = FeedCursor.decode(before);
+        Pageable pageable = feedPageable(limit);
+        Slice<MessageDto> messages = cursor == null
+                ? messageRepository.findUserFeed(userId, pageable)
+                : messageRepository.findUserFeedBefore(userId, cursor.getCreatedAt(), cursor.getId(), pageable);
+        return toCursorPage(messages, false);
+    }
+    
+    @Override
+    public CursorPage<MessageDto> getHotMessageFeed(String before, int limit) {
+        FeedCursor cursor = FeedCursor.decode(before);
+        if (cursor != null && cursor.getLikeCount() == null) {
+            throw new IllegalArgumentException("无效的热门留言游标: " + before);
+        }
+        Pageable pageable = feedPageable(limit);
+        Slice<MessageDto> messages = cursor == null
+                ? messageRepository.findHotFeed(hotRankingProperties.getMinLikes(), pageable)
+                : messageRepository.findHotFeedBefore(hotRankingProperties.getMinLikes(), cursor.getLikeCount(), cursor.getCreatedAt(), cursor.getId(), pageable);
+        return toCursorPage(messages, true);
+    }
+    
+    /**
+     * 构造游标分页参数，排序已写在查询语句中，这里只限制页大小
+     * 
+     * @param limit 请求的页大小
+     * @return 分页参数
+     */
+    private Pageable feedPageable(int limit) {
+        return PageRequest.of(0, Math.max(1, Math.min(limit, MAX_FEED_LIMIT)));
+    }
+    
+    /**
+     * 将查询切片转换为游标分页结果，下一页游标取自本页最后一条
+     * 
+     * @param messages 查询切片
+     * @param withLikeCount 游标是否携带点赞数（热门列表）
+     * @return 游标分页结果
+     */
+    private CursorPage<MessageDto> toCursorPage(Slice<MessageDto> messages, boolean withLikeCount) {
+        // 游标按数据库中的点赞数生成，之后再合并未写入的增量
+        CursorPage<MessageDto> page = toCursorPage(messages.getContent(), messages.hasNext(), withLikeCount);
+        likeCountBuffer.mergePending(page.getContent());
+        return page;
+    }
+    
+    private CursorPage<MessageDto> toCursorPage(List<MessageDto> content, boolean hasNext, boolean withLikeCount) {
+        String nextCursor = null;
+        if (hasNext && !content.isEmpty()) {
+            MessageDto last = content.get(content.size() - 1);
+            nextCursor = new FeedCursor(withLikeCount ? last.getLikeCount() : null, last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPage<>(content, nextCursor, hasNext, content.size());
     }
 }
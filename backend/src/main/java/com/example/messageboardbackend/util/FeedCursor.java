@@ -0,0 +1,74 @@
+package com.example.messageboardbackend.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 游标分页的位置标记
+ *
+ * 对客户端是不透明的字符串，内部为 "[likeCount,]createdAt,id" 的 Base64URL 编码。
+ * 普通列表只使用 createdAt + id，热门列表额外携带 likeCount。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Getter
+@AllArgsConstructor
+public class FeedCursor {
+
+    private static final String SEPARATOR = ",";
+
+    /**
+     * 点赞数，仅热门列表使用，普通列表为null
+     */
+    private final Integer likeCount;
+
+    private final LocalDateTime createdAt;
+
+    private final Long id;
+
+    public FeedCursor(LocalDateTime createdAt, Long id) {
+        this(null, createdAt, id);
+    }
+
+    /**
+     * 编码为不透明字符串
+     *
+     * @return 游标字符串
+     */
+    public String encode() {
+        String raw = (likeCount != null ? likeCount + SEPARATOR : "") + createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标字符串
+     *
+     * @param cursor 游标字符串，为空表示从第一页开始
+     * @return 游标，cursor为空时返回null
+     * @throws IllegalArgumentException 游标格式不正确
+     */
+    public static FeedCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR);
+            if (parts.length == 2) {
+                return new FeedCursor(null, LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+            }
+            if (parts.length == 3) {
+                return new FeedCursor(Integer.parseInt(parts[0]), LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // 统一按格式错误处理
+        }
+        throw new IllegalArgumentException("无效的分页游标: " + cursor);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.messageboardbackend.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 进程内请求合并
+ *
+ * 同一个key同一时间只有一个调用方执行加载，其余调用方等待并共享它的结果（包括异常）。
+ * 加载结束后立即移除，下一次调用会重新加载，因此不承担缓存职责。
+ *
+ * @param <K> key类型
+ * @param <V> 结果类型
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 执行或加入同一个key正在进行的加载
+     *
+     * @param key 合并的key
+     * @param loader 加载逻辑，只由第一个到达的调用方执行
+     * @return 加载结果
+     */
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            V value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * 当前正在加载的key数量
+     *
+     * @return 数量
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
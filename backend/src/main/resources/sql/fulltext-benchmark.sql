@@ -0,0 +1,86 @@
+-- 留言搜索基准测试：LIKE '%关键词%' 与 FULLTEXT(ngram) 在10万、100万条留言下的耗时对比
+-- 在独立的 message_board_bench 库中生成数据，不影响业务库。需要 MySQL 8.0.18+（EXPLAIN ANALYZE）。
+--
+-- 用法：mysql -uroot -p < fulltext-benchmark.sql > fulltext-benchmark.out
+-- 每组查询执行一次预热再执行 EXPLAIN ANALYZE，记录输出中 actual time 的最后一个值（毫秒）和 rows。
+-- 结果记录到 docs/database-optimization.md 的"全文搜索"一节。
+
+CREATE DATABASE IF NOT EXISTS message_board_bench CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci;
+USE message_board_bench;
+
+DROP TABLE IF EXISTS `message`;
+CREATE TABLE `message` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT,
+    `user_id` BIGINT NOT NULL,
+    `content` TEXT NOT NULL,
+    `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    `deleted` BOOLEAN NOT NULL DEFAULT FALSE,
+    `like_count` INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (`id`),
+    KEY `idx_message_content` (`content`(100))
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 由常用词随机拼成20~40字的中文留言，关键词"服务器"约出现在5%的留言中
+DROP PROCEDURE IF EXISTS bench_fill;
+DELIMITER //
+CREATE PROCEDURE bench_fill(IN target INT)
+BEGIN
+    SET SESSION cte_max_recursion_depth = 10000000;
+    INSERT INTO `message` (`user_id`, `content`, `created_at`)
+    WITH RECURSIVE seq (n) AS (
+        SELECT (SELECT COUNT(*) FROM `message`) + 1
+        UNION ALL
+        SELECT n + 1 FROM seq WHERE n < target
+    )
+    SELECT 1 + n % 1000,
+           CONCAT(
+               ELT(1 + FLOOR(RAND() * 10), '今天', '大家', '感谢', '留言板', '周末', '项目', '晚上', '系统', '同学', '朋友'),
+               ELT(1 + FLOOR(RAND() * 10), '天气不错', '一起讨论', '功能上线', '遇到问题', '分享经验', '很有意思', '准备出发', '学习计划', '记录一下', '继续加油'),
+               IF(RAND() < 0.05, '服务器又宕机了', ELT(1 + FLOOR(RAND() * 5), '没有问题', '运行正常', '还在等待', '已经完成', '欢迎反馈')),
+               ELT(1 + FLOOR(RAND() * 10), '，明天见。', '，有空再聊。', '，请多指教。', '，收到回复。', '，先到这里。',
+                   '，持续关注。', '，下次继续。', '，辛苦了。', '，太好了。', '，加油！')),
+           NOW() - INTERVAL n SECOND
+    FROM seq;
+END //
+DELIMITER ;
+
+DROP PROCEDURE IF EXISTS bench_run;
+DELIMITER //
+CREATE PROCEDURE bench_run()
+BEGIN
+    SELECT COUNT(*) AS messages FROM `message`;
+
+    -- 现有查询：LIKE + 按时间排序分页，以及分页需要的 COUNT
+    SELECT id FROM `message` WHERE content LIKE '%服务器%' AND deleted = FALSE ORDER BY created_at DESC LIMIT 10;
+    EXPLAIN ANALYZE SELECT id FROM `message` WHERE content LIKE '%服务器%' AND deleted = FALSE ORDER BY created_at DESC LIMIT 10;
+    EXPLAIN ANALYZE SELECT COUNT(*) FROM `message` WHERE content LIKE '%服务器%' AND deleted = FALSE;
+
+    -- 自然语言模式：按相关度排序
+    SELECT id FROM `message` WHERE MATCH(content) AGAINST('服务器' IN NATURAL LANGUAGE MODE) AND deleted = FALSE
+        ORDER BY MATCH(content) AGAINST('服务器' IN NATURAL LANGUAGE MODE) DESC, id DESC LIMIT 10;
+    EXPLAIN ANALYZE SELECT id FROM `message` WHERE MATCH(content) AGAINST('服务器' IN NATURAL LANGUAGE MODE) AND deleted = FALSE
+        ORDER BY MATCH(content) AGAINST('服务器' IN NATURAL LANGUAGE MODE) DESC, id DESC LIMIT 10;
+    EXPLAIN ANALYZE SELECT COUNT(*) FROM `message` WHERE MATCH(content) AGAINST('服务器' IN NATURAL LANGUAGE MODE) AND deleted = FALSE;
+
+    -- 布尔模式：ngram下按短语匹配，结果集与LIKE相同
+    EXPLAIN ANALYZE SELECT id FROM `message` WHERE MATCH(content) AGAINST('+服务器 -正常' IN BOOLEAN MODE) AND deleted = FALSE
+        ORDER BY MATCH(content) AGAINST('+服务器 -正常' IN BOOLEAN MODE) DESC, id DESC LIMIT 10;
+    EXPLAIN ANALYZE SELECT COUNT(*) FROM `message` WHERE MATCH(content) AGAINST('+服务器 -正常' IN BOOLEAN MODE) AND deleted = FALSE;
+END //
+DELIMITER ;
+
+-- 10万条
+CALL bench_fill(100000);
+ALTER TABLE `message` ADD FULLTEXT INDEX `ft_message_content` (`content`) WITH PARSER ngram;
+ANALYZE TABLE `message`;
+CALL bench_run();
+
+-- 100万条：先删除全文索引再批量写入，写完重建（逐行维护全文索引很慢）
+ALTER TABLE `message` DROP INDEX `ft_message_content`;
+CALL bench_fill(1000000);
+ALTER TABLE `message` ADD FULLTEXT INDEX `ft_message_content` (`content`) WITH PARSER ngram;
+ANALYZE TABLE `message`;
+CALL bench_run();
+
+-- 清理
+-- DROP DATABASE message_board_bench;
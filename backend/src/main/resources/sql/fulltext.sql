@@ -0,0 +1,23 @@
+-- 留言内容全文索引（ngram分词）
+-- 替代 LIKE '%关键词%' 的全表扫描，中文按 ngram_token_size（默认2）个字切分词元建立倒排索引。
+-- 需要 MySQL 5.7.6+ / 8.0，InnoDB。
+--
+-- ngram_token_size 是只读的服务端参数，需在 my.cnf 中设置后重启，修改后要重建索引：
+--   [mysqld]
+--   ngram_token_size=2
+-- 应用配置 app.search.min-token-length 应与之一致，更短的关键词切不出词元，应用会改用LIKE。
+
+USE message_board;
+
+-- 大表上建索引会复制表，建议在低峰期执行；ALGORITHM=INPLACE 期间允许并发读写
+ALTER TABLE `message`
+    ADD FULLTEXT INDEX `ft_message_content` (`content`) WITH PARSER ngram,
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- 原来的 content(100) 前缀索引对 LIKE '%关键词%' 无效，确认不再使用后可以删除
+-- ALTER TABLE `message` DROP INDEX `idx_message_content`;
+
+-- 检查索引和分词结果
+SHOW INDEX FROM `message` WHERE Key_name = 'ft_message_content';
+SET GLOBAL innodb_ft_aux_table = 'message_board/message';
+SELECT word, doc_count FROM information_schema.INNODB_FT_INDEX_CACHE ORDER BY doc_count DESC LIMIT 20;
@@ -43,11 +43,42 @@ CREATE TABLE IF NOT EXISTS `system_log` (
     `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '日志唯一标识',
     `log_content` TEXT NOT NULL COMMENT '日志内容',
     `level` ENUM('DEBUG', 'INFO', 'WARN', 'ERROR') NOT NULL DEFAULT 'INFO' COMMENT '日志级别',
-    `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    PRIMARY KEY (`id`),
+    `created_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间（分区列）',
+    `event_type` VARCHAR(32) NULL COMMENT '事件类型',
+    `user_id` BIGINT NULL COMMENT '操作用户ID',
+    `message_id` BIGINT NULL COMMENT '相关留言ID',
+    `kafka_partition` INT NULL COMMENT '来源Kafka分区',
+    `kafka_offset` BIGINT NULL COMMENT '来源Kafka位点',
+    PRIMARY KEY (`id`, `created_at`),
+    UNIQUE KEY `uk_system_log_kafka_offset` (`kafka_partition`, `kafka_offset`, `created_at`),
+    KEY `idx_system_log_type_time` (`event_type`, `created_at`),
+    KEY `idx_system_log_user_time` (`user_id`, `created_at`),
+    KEY `idx_system_log_message` (`message_id`),
     KEY `idx_level` (`level`),
     KEY `idx_created_at` (`created_at`)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='系统日志表';
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='系统日志表'
+-- 按天分区：应用启动后由分区维护任务从 p_max 中拆出每天的分区，并删除超过保留时间的分区
+PARTITION BY RANGE COLUMNS (`created_at`) (
+    PARTITION `p_max` VALUES LESS THAN (MAXVALUE)
+);
+
+-- 创建发件箱表：事件与留言、点赞的修改在同一个事务中写入，转发到Kafka后删除
+CREATE TABLE IF NOT EXISTS `outbox_event` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '事件ID，按ID顺序转发',
+    `topic` VARCHAR(128) NOT NULL COMMENT '目标Topic',
+    `event_key` VARCHAR(128) NULL COMMENT '消息key',
+    `payload` TEXT NOT NULL COMMENT '消息内容',
+    `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '写入时间',
+    PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='发件箱表';
+
+-- 创建发件箱转发锁表：只有一行，每批转发的事务锁住这一行，同一时间只有一个节点发送，保证同一key的事件顺序
+CREATE TABLE IF NOT EXISTS `outbox_relay_lock` (
+    `id` INT NOT NULL COMMENT '固定为1',
+    PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='发件箱转发锁表';
+
+INSERT IGNORE INTO `outbox_relay_lock` (`id`) VALUES (1);
 
 -- 插入测试数据
 
@@ -76,7 +107,10 @@ INSERT INTO `system_log` (`log_content`, `level`) VALUES
 -- 创建索引
 CREATE INDEX `idx_user_enabled` ON `user` (`enabled`);
 CREATE INDEX `idx_message_user_deleted` ON `message` (`user_id`, `deleted`);
+CREATE INDEX `idx_message_deleted_created_id` ON `message` (`deleted`, `created_at`, `id`); -- 游标分页
 CREATE INDEX `idx_system_log_level_time` ON `system_log` (`level`, `created_at`);
+-- 留言内容全文索引（ngram分词），用于搜索；说明见 fulltext.sql
+CREATE FULLTEXT INDEX `ft_message_content` ON `message` (`content`) WITH PARSER ngram;
 
 -- 显示表结构
 DESCRIBE `user`;
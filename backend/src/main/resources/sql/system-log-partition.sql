@@ -0,0 +1,35 @@
+-- 系统日志表按天分区
+-- 已有的 system_log 改为按 created_at 的 RANGE COLUMNS 分区，过期日志由应用的分区维护任务
+-- （SystemLogPartitionMaintainer，配置 app.system-log.partition）用 DROP PARTITION 整天删除，
+-- 不再执行逐行 DELETE。新建的库直接使用 init.sql，无需执行本脚本。需要 MySQL 8.0。
+--
+-- 分区表的限制：
+--   RANGE COLUMNS 不支持 TIMESTAMP，created_at 改为 DATETIME（按连接时区 Asia/Shanghai 存储，值不变）；
+--   主键和所有唯一键必须包含分区列，主键改为 (id, created_at)，Kafka位点唯一键加上 created_at；
+--   不能有外键，system_log 没有外键。
+
+USE message_board;
+
+-- 以下语句都会复制整张表，大表上建议在低峰期执行，期间写入被阻塞
+ALTER TABLE `system_log`
+    MODIFY `created_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间（分区列）',
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (`id`, `created_at`),
+    DROP INDEX `uk_system_log_kafka_offset`,
+    ADD UNIQUE KEY `uk_system_log_kafka_offset` (`kafka_partition`, `kafka_offset`, `created_at`);
+
+-- 只建 p_max 一个分区：应用启动后维护任务把保留期内的数据拆分为每天一个分区，并提前创建未来的分区；
+-- 早于保留期的数据进入第一个分区，下一天被删除。
+-- 也可以先删除早于保留期的数据，减少拆分时复制的行数。
+ALTER TABLE `system_log`
+    PARTITION BY RANGE COLUMNS (`created_at`) (
+        PARTITION `p_max` VALUES LESS THAN (MAXVALUE)
+    );
+
+-- 检查分区和分区裁剪（EXPLAIN 的 partitions 列只列出范围内的分区）
+SELECT partition_name, partition_description, table_rows
+FROM information_schema.partitions
+WHERE table_schema = DATABASE() AND table_name = 'system_log'
+ORDER BY partition_ordinal_position;
+EXPLAIN SELECT COUNT(*) FROM `system_log`
+WHERE `created_at` BETWEEN CURDATE() - INTERVAL 1 DAY AND CURDATE();
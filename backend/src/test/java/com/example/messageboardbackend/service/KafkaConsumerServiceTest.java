@@ -0,0 +1,214 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.KafkaConfig;
+import com.example.messageboardbackend.config.SystemLogProperties;
+import com.example.messageboardbackend.dto.LogEvent;
+import com.example.messageboardbackend.model.SystemLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 系统日志批量消费测试
+ *
+ * 一批记录分段写入后确认位点；重复投递的分区位点不会重复写入；写入失败时不确认，
+ * 由错误处理器重试整批，超过最长重试时间后转入死信Topic；
+ * 结构化事件按字段写入各列，文本日志原样写入。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({KafkaConsumerService.class, SystemLogProperties.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class KafkaConsumerServiceTest {
+
+    private static final String TOPIC = "system-logs";
+
+    @Autowired
+    private KafkaConsumerService kafkaConsumerService;
+
+    @Autowired
+    private SystemLogProperties systemLogProperties;
+
+    @Autowired
+    private SimpleMeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                JdbcTestUtils.deleteFromTables(jdbcTemplate, "system_log"));
+    }
+
+    @Test
+    void batchIsWrittenOnceAndAcknowledged() {
+        systemLogProperties.getConsumer().setInsertBatchSize(3);
+
+        Acknowledgment first = mock(Acknowledgment.class);
+        kafkaConsumerService.consumeSystemLogs(records(0, 0, 7), first);
+        verify(first).acknowledge();
+        assertEquals(7, JdbcTestUtils.countRowsInTable(jdbcTemplate, "system_log"));
+
+        // 重平衡后从上次提交的位点重新投递，与新记录混在一批中
+        Acknowledgment second = mock(Acknowledgment.class);
+        List<ConsumerRecord<String, String>> redelivered = new ArrayList<>(records(0, 5, 5));
+        redelivered.addAll(records(1, 0, 2));
+        kafkaConsumerService.consumeSystemLogs(redelivered, second);
+        verify(second).acknowledge();
+
+        assertEquals(12, JdbcTestUtils.countRowsInTable(jdbcTemplate, "system_log"));
+        assertEquals(1, JdbcTestUtils.countRowsInTableWhere(jdbcTemplate, "system_log",
+                "kafka_partition = 0 AND kafka_offset = 6 AND log_content = 'log-0-6'"));
+        assertEquals(14, meterRegistry.get("system.log.consumed").counter().count());
+        assertEquals(12, meterRegistry.get("system.log.inserted").counter().count());
+        assertEquals(2, meterRegistry.get("system.log.duplicates").counter().count());
+    }
+
+    @Test
+    void failedBatchIsNotAcknowledged() {
+        systemLogProperties.getConsumer().setInsertBatchSize(2);
+        List<ConsumerRecord<String, String>> batch = new ArrayList<>(records(0, 0, 3));
+        // 第一段已写入后第二段失败，整批回滚
+        batch.add(new ConsumerRecord<>(TOPIC, 0, 3, null, "bad") {
+            @Override
+            public int partition() {
+                throw new IllegalStateException("读取分区失败");
+            }
+        });
+
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+        assertThrows(IllegalStateException.class, () -> kafkaConsumerService.consumeSystemLogs(batch, acknowledgment));
+        verify(acknowledgment, never()).acknowledge();
+        assertEquals(0, JdbcTestUtils.countRowsInTable(jdbcTemplate, "system_log"));
+    }
+
+    @Test
+    void failedBatchIsRetriedThenDeadLettered() {
+        systemLogProperties.getConsumer().setRetryBackoff(Duration.ofMillis(1));
+        systemLogProperties.getConsumer().setRetryMaxBackoff(Duration.ofMillis(5));
+        systemLogProperties.getConsumer().setRetryMaxElapsed(Duration.ofMillis(200));
+        KafkaTemplate<String, String> kafkaTemplate = mock(KafkaTemplate.class);
+        doReturn(CompletableFuture.completedFuture(null)).when(kafkaTemplate).send(any(ProducerRecord.class));
+        CommonErrorHandler errorHandler = new KafkaConfig()
+                .systemLogListenerContainerFactory(mock(ConsumerFactory.class), systemLogProperties, kafkaTemplate)
+                .createContainer(TOPIC)
+                .getCommonErrorHandler();
+        Consumer<?, ?> consumer = mock(Consumer.class);
+        doReturn(ConsumerRecords.empty()).when(consumer).poll(any(Duration.class));
+        MessageListenerContainer container = mock(MessageListenerContainer.class);
+        when(container.isRunning()).thenReturn(true);
+
+        // 数据库短暂不可用：重试几次后写入，不进入死信
+        List<ConsumerRecord<String, String>> batch = records(0, 0, 3);
+        AtomicInteger attempts = new AtomicInteger();
+        errorHandler.handleBatch(new RuntimeException("数据库不可用"), batch(batch), consumer, container, () -> {
+            if (attempts.incrementAndGet() <= 3) {
+                throw new RuntimeException("数据库不可用");
+            }
+            kafkaConsumerService.consumeSystemLogs(batch, mock(Acknowledgment.class));
+        });
+        assertEquals(4, attempts.get());
+        assertEquals(3, JdbcTestUtils.countRowsInTable(jdbcTemplate, "system_log"));
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+
+        // 一直无法写入：超过最长重试时间后整批转入死信Topic，不再阻塞分区
+        errorHandler.handleBatch(new RuntimeException("日志超长"), batch(records(1, 0, 2)), consumer, container, () -> {
+            throw new RuntimeException("日志超长");
+        });
+        ArgumentCaptor<ProducerRecord<String, String>> deadLetters = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(2)).send(deadLetters.capture());
+        deadLetters.getAllValues().forEach(record -> assertEquals(KafkaConfig.SYSTEM_LOG_DEAD_LETTER_TOPIC, record.topic()));
+        assertEquals(List.of("log-1-0", "log-1-1"), deadLetters.getAllValues().stream().map(ProducerRecord::value).toList());
+    }
+
+    @Test
+    void structuredEventsAreStoredInTypedColumns() {
+        LogEvent event = new LogEvent(SystemLog.EventType.MESSAGE_CREATED, 12L, 345L, SystemLog.LogLevel.WARN, 1_700_000_000_000L);
+        String json = event.toJson();
+        assertEquals("{\"t\":\"MESSAGE_CREATED\",\"u\":12,\"m\":345,\"l\":\"WARN\",\"ts\":1700000000000}", json);
+        assertEquals("12", event.getKey());
+
+        kafkaConsumerService.consumeSystemLogs(List.of(
+                new ConsumerRecord<>(TOPIC, 1, 0, event.getKey(), json),
+                new ConsumerRecord<>(TOPIC, 1, 1, null, "系统启动成功")), mock(Acknowledgment.class));
+
+        Map<String, Object> structured = jdbcTemplate.queryForMap(
+                "SELECT * FROM system_log WHERE event_type = 'MESSAGE_CREATED' AND user_id = 12");
+        assertEquals(345L, ((Number) structured.get("message_id")).longValue());
+        assertEquals("WARN", structured.get("level"));
+        assertEquals(new Timestamp(1_700_000_000_000L), structured.get("created_at"));
+        assertEquals("用户 [12] 发布了留言 [345]", structured.get("log_content"));
+
+        Map<String, Object> text = jdbcTemplate.queryForMap("SELECT * FROM system_log WHERE event_type IS NULL");
+        assertEquals("系统启动成功", text.get("log_content"));
+        assertEquals("INFO", text.get("level"));
+    }
+
+    private static ConsumerRecords<String, String> batch(List<ConsumerRecord<String, String>> records) {
+        return new ConsumerRecords<>(Map.of(new TopicPartition(TOPIC, records.get(0).partition()), records));
+    }
+
+    /**
+     * 带写入时间的记录：created_at 取自记录时间，是唯一键的一部分，重复投递时与第一次相同
+     */
+    private static List<ConsumerRecord<String, String>> records(int partition, long fromOffset, int count) {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        for (long offset = fromOffset; offset < fromOffset + count; offset++) {
+            records.add(new ConsumerRecord<>(TOPIC, partition, offset, 1_700_000_000_000L + offset,
+                    TimestampType.CREATE_TIME, -1, -1, null, "log-" + partition + "-" + offset,
+                    new RecordHeaders(), Optional.empty()));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.HotRankingProperties;
+import com.example.messageboardbackend.config.LikeProperties;
+import com.example.messageboardbackend.dto.ApiResponse;
+import com.example.messageboardbackend.dto.LikeResultDto;
+import com.example.messageboardbackend.dto.MessageDto;
+import com.example.messageboardbackend.model.Message;
+import com.example.messageboardbackend.model.User;
+import com.example.messageboardbackend.repository.MessageLikeRepository;
+import com.example.messageboardbackend.repository.MessageRepository;
+import com.example.messageboardbackend.repository.UserRepository;
+import com.example.messageboardbackend.service.impl.MessageLikeServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 点赞数延迟写入测试
+ *
+ * 并发点赞只插入点赞记录，点赞数累加在缓冲区：写入前读取合并未写入的增量，
+ * 批量写入后留言表的点赞数等于点赞记录数，热门标记按配置的门槛计算，且每批只清除一次热门缓存；
+ * 累加与写入交错执行时，每次累加只写入一次。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {"app.like.write-behind.enabled=true", "app.hot.min-likes=" + LikeCountBufferTest.MIN_LIKES})
+@Import({MessageLikeServiceImpl.class, LikeCountBuffer.class, LikeProperties.class, HotRankingProperties.class,
+        SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LikeCountBufferTest {
+
+    private static final int USERS = 500;
+    static final int MIN_LIKES = 300;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private MessageLikeService messageLikeService;
+
+    @Autowired
+    private LikeCountBuffer likeCountBuffer;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MessageLikeRepository messageLikeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private RedisCacheService redisCacheService;
+
+    @MockBean
+    private TimelineCacheService timelineCacheService;
+
+    @MockBean
+    private HotRankingService hotRankingService;
+
+    @MockBean
+    private TrendingService trendingService;
+
+    /**
+     * 位图未就绪，点赞状态判断查库
+     */
+    @MockBean
+    private LikeBitmapIndex likeBitmapIndex;
+
+    /**
+     * 未开启点赞事件化，点赞直接写库
+     */
+    @MockBean
+    private KafkaProducerService kafkaProducerService;
+
+    @MockBean
+    private MessageSearchIndex messageSearchIndex;
+
+    private Long messageId;
+    private List<String> usernames;
+
+    @BeforeEach
+    void setUp() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new User("buffered" + i, "password"));
+        }
+        users = userRepository.saveAll(users);
+        usernames = users.stream().map(User::getUsername).toList();
+
+        Message message = new Message();
+        message.setUser(users.get(0));
+        message.setContent("热门留言");
+        messageId = messageRepository.save(message).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        likeCountBuffer.flush();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                JdbcTestUtils.deleteFromTables(jdbcTemplate, "message_like", "message", "user"));
+    }
+
+    @Test
+    void likesAreBufferedMergedOnReadAndFlushedInOneBatch() throws Exception {
+        assertTrue(likeCountBuffer.isEnabled());
+        assertEquals(USERS, runConcurrently(usernames, username -> messageLikeService.likeMessage(messageId, username)));
+
+        // 写入前：留言表未变化，读取时合并缓冲区中的增量
+        assertEquals(0, storedLikeCount());
+        assertEquals(USERS, likeCountBuffer.pendingDelta(messageId));
+        assertEquals(USERS, mergedLikeCount());
+        verify(redisCacheService, never()).clearHotMessageCache();
+
+        likeCountBuffer.flush();
+        assertEquals(USERS, storedLikeCount());
+        assertEquals(messageLikeRepository.countByMessageId(messageId), storedLikeCount());
+        assertEquals(0, likeCountBuffer.pendingDelta(messageId));
+        assertEquals(USERS, mergedLikeCount());
+        assertEquals(Boolean.TRUE, storedIsHot());
+        verify(redisCacheService, times(1)).clearHotMessageCache();
+
+        // 一半用户取消点赞
+        assertEquals(USERS / 2, runConcurrently(usernames.subList(0, USERS / 2),
+                username -> messageLikeService.unlikeMessage(messageId, username)));
+        assertEquals(USERS - USERS / 2, mergedLikeCount());
+
+        likeCountBuffer.flush();
+        assertEquals(USERS - USERS / 2, storedLikeCount());
+        assertEquals(messageLikeRepository.countByMessageId(messageId), storedLikeCount());
+        // 热门门槛按 app.hot.min-likes 计算
+        assertEquals(Boolean.FALSE, storedIsHot());
+        verify(redisCacheService, times(2)).clearHotMessageCache();
+    }
+
+    @Test
+    void addsInterleavedWithFlushesAreCountedOnce() throws Exception {
+        int adds = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> adders = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                adders.add(pool.submit(() -> {
+                    for (int n = 0; n < adds; n++) {
+                        likeCountBuffer.add(messageId, 1);
+                    }
+                }));
+            }
+            // 累加期间不停写入：条目反复被取空、清理后重新创建
+            while (adders.stream().anyMatch(adder -> !adder.isDone())) {
+                likeCountBuffer.flush();
+            }
+            for (Future<?> adder : adders) {
+                adder.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        likeCountBuffer.flush();
+
+        assertEquals((long) THREADS * adds, storedLikeCount());
+        assertEquals(0, likeCountBuffer.pendingDelta(messageId));
+    }
+
+    private long storedLikeCount() {
+        return jdbcTemplate.queryForObject("SELECT like_count FROM message WHERE id = ?", Long.class, messageId);
+    }
+
+    private Boolean storedIsHot() {
+        return jdbcTemplate.queryForObject("SELECT is_hot FROM message WHERE id = ?", Boolean.class, messageId);
+    }
+
+    private int mergedLikeCount() {
+        MessageDto message = messageRepository.findDtoById(messageId).orElseThrow();
+        likeCountBuffer.mergePending(List.of(message));
+        return message.getLikeCount();
+    }
+
+    /**
+     * 所有线程同时开始执行，返回成功的次数
+     */
+    private int runConcurrently(List<String> users, Function<String, ApiResponse<LikeResultDto>> action) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<ApiResponse<LikeResultDto>>> results = new ArrayList<>();
+            for (String username : users) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return action.apply(username);
+                }));
+            }
+            start.countDown();
+            int succeeded = 0;
+            for (Future<ApiResponse<LikeResultDto>> result : results) {
+                if (Boolean.TRUE.equals(result.get(60, TimeUnit.SECONDS).getSuccess())) {
+                    succeeded++;
+                }
+            }
+            return succeeded;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.HotRankingProperties;
+import com.example.messageboardbackend.config.LikeProperties;
+import com.example.messageboardbackend.model.Message;
+import com.example.messageboardbackend.model.MessageLike;
+import com.example.messageboardbackend.model.User;
+import com.example.messageboardbackend.repository.MessageLikeRepository;
+import com.example.messageboardbackend.repository.MessageRepository;
+import com.example.messageboardbackend.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 点赞数对账测试
+ *
+ * 按ID分批核对，从上一批的断点继续，修正后点赞数等于点赞记录数；
+ * 开启延迟写入时差异要在下一批复核一次才修正，有多个节点开启延迟写入时不修正。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({LikeCountReconciler.class, LikeProperties.class, HotRankingProperties.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LikeCountReconcilerTest {
+
+    @Autowired
+    private LikeCountReconciler likeCountReconciler;
+
+    @Autowired
+    private LikeProperties likeProperties;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MessageLikeRepository messageLikeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private StringRedisTemplate stringRedisTemplate;
+
+    @MockBean
+    private LikeCountBuffer likeCountBuffer;
+
+    @MockBean
+    private RedisCacheService redisCacheService;
+
+    @MockBean
+    private TimelineCacheService timelineCacheService;
+
+    @MockBean
+    private HotRankingService hotRankingService;
+
+    @MockBean
+    private MessageSearchIndex messageSearchIndex;
+
+    private List<Long> messageIds;
+
+    @BeforeEach
+    void setUp() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            users.add(new User("reconciled" + i, "password"));
+        }
+        users = userRepository.saveAll(users);
+
+        // 三条留言分别有 6、0、3 个点赞
+        messageIds = new ArrayList<>();
+        int[] likes = {6, 0, 3};
+        for (int likeCount : likes) {
+            Message message = new Message();
+            message.setUser(users.get(0));
+            message.setContent("对账留言");
+            message.setLikeCount(likeCount);
+            message.setIsHot(likeCount >= Message.HOT_LIKE_THRESHOLD);
+            message = messageRepository.save(message);
+            messageIds.add(message.getId());
+            for (int i = 0; i < likeCount; i++) {
+                MessageLike like = new MessageLike();
+                like.setMessage(message);
+                like.setUser(users.get(i));
+                messageLikeRepository.save(like);
+            }
+        }
+        likeProperties.getReconcile().setBatchSize(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                JdbcTestUtils.deleteFromTables(jdbcTemplate, "message_like", "message", "user"));
+    }
+
+    @Test
+    void batchesResumeFromCheckpointAndFixDrift() {
+        drift(0, 2);
+        drift(1, 4);
+        drift(2, 1);
+
+        LikeCountReconciler.Batch first = likeCountReconciler.reconcileBatch(0);
+        assertEquals(2, first.checked());
+        assertEquals(2, first.corrected());
+        assertEquals(messageIds.get(1), first.lastId());
+        assertFalse(first.done());
+        // 第三条还未核对
+        assertEquals(1, likeCount(2));
+
+        LikeCountReconciler.Batch second = likeCountReconciler.reconcileBatch(first.lastId());
+        assertEquals(1, second.checked());
+        assertEquals(1, second.corrected());
+        assertTrue(second.done());
+
+        assertConsistent();
+        assertEquals(true, jdbcTemplate.queryForObject(
+                "SELECT is_hot FROM message WHERE id = ?", Boolean.class, messageIds.get(0)));
+        // 已一致时不再修正
+        assertEquals(0, likeCountReconciler.reconcileBatch(0).corrected());
+    }
+
+    @Test
+    void writeBehindDriftIsConfirmedBeforeFixing() {
+        when(likeCountBuffer.isEnabled()).thenReturn(true);
+        drift(0, 2);
+
+        LikeCountReconciler.Batch first = likeCountReconciler.reconcileBatch(0);
+        assertEquals(0, first.corrected());
+        assertEquals(2, likeCount(0));
+
+        // 下一批复核时差值不变，才修正
+        LikeCountReconciler.Batch second = likeCountReconciler.reconcileBatch(first.lastId());
+        assertEquals(1, second.corrected());
+        assertConsistent();
+    }
+
+    @Test
+    void writeBehindOnSeveralNodesPausesReconciliation() {
+        when(likeCountBuffer.isEnabled()).thenReturn(true);
+        ZSetOperations<String, String> nodes = mock(ZSetOperations.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(stringRedisTemplate.opsForZSet()).thenReturn(nodes);
+        when(stringRedisTemplate.opsForValue()).thenReturn(values);
+        when(stringRedisTemplate.opsForHash()).thenReturn(mock(HashOperations.class));
+        when(values.setIfAbsent(anyString(), anyString(), anyLong(), any())).thenReturn(true);
+        drift(0, 2);
+
+        // 另一个节点也在缓冲点赞数：它未写入的增量无法核对，不修正
+        when(nodes.zCard(anyString())).thenReturn(2L);
+        likeCountReconciler.run();
+        likeCountReconciler.run();
+        assertEquals(2, likeCount(0));
+        verify(nodes, times(2)).add(eq("like:reconcile:buffering-nodes"), anyString(), anyDouble());
+        verify(values, never()).setIfAbsent(anyString(), anyString(), anyLong(), any());
+
+        // 另一个节点下线后恢复，差异复核一次后修正
+        when(nodes.zCard(anyString())).thenReturn(1L);
+        likeCountReconciler.run();
+        likeCountReconciler.run();
+        assertConsistent();
+    }
+
+    private void drift(int index, int likeCount) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> jdbcTemplate.update(
+                "UPDATE message SET like_count = ? WHERE id = ?", likeCount, messageIds.get(index)));
+    }
+
+    private long likeCount(int index) {
+        return jdbcTemplate.queryForObject("SELECT like_count FROM message WHERE id = ?", Long.class, messageIds.get(index));
+    }
+
+    private void assertConsistent() {
+        for (int i = 0; i < messageIds.size(); i++) {
+            assertEquals(messageLikeRepository.countByMessageId(messageIds.get(i)), likeCount(i));
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.HotRankingProperties;
+import com.example.messageboardbackend.config.KafkaConfig;
+import com.example.messageboardbackend.config.LikeProperties;
+import com.example.messageboardbackend.model.Message;
+import com.example.messageboardbackend.model.User;
+import com.example.messageboardbackend.repository.MessageLikeRepository;
+import com.example.messageboardbackend.repository.MessageRepository;
+import com.example.messageboardbackend.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 点赞事件投影测试
+ *
+ * 折叠后的投影只按实际状态变化写入：重复投递、逐条重放和清空后从头重放，
+ * 最终的点赞记录和点赞数都相同；投影失败的整批由容器的错误处理器一直重试，不会被跳过。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({LikeEventProjection.class, HotRankingProperties.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LikeEventProjectionTest {
+
+    private static final String TOPIC = "message-likes";
+
+    @Autowired
+    private LikeEventProjection likeEventProjection;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MessageLikeRepository messageLikeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private RedisCacheService redisCacheService;
+
+    @MockBean
+    private TimelineCacheService timelineCacheService;
+
+    @MockBean
+    private HotRankingService hotRankingService;
+
+    @MockBean
+    private LikeBitmapIndex likeBitmapIndex;
+
+    @MockBean
+    private MessageSearchIndex messageSearchIndex;
+
+    private Long messageId;
+    private List<Long> userIds;
+    private List<ConsumerRecord<String, String>> topic;
+
+    @BeforeEach
+    void setUp() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(new User("projected" + i, "password"));
+        }
+        userIds = userRepository.saveAll(users).stream().map(User::getId).toList();
+
+        Message message = new Message();
+        message.setUser(users.get(0));
+        message.setContent("事件化点赞");
+        messageId = messageRepository.save(message).getId();
+
+        topic = new ArrayList<>();
+        like(0, true);
+        like(1, true);
+        like(1, false);
+        like(2, true);
+        like(2, true);
+        like(3, false);
+        like(4, true);
+        like(4, false);
+        like(4, true);
+        // 引用不存在的留言和格式错误的事件都被跳过
+        topic.add(new ConsumerRecord<>(TOPIC, 0, topic.size(), (messageId + 1000) + ":" + userIds.get(0), "1"));
+        topic.add(new ConsumerRecord<>(TOPIC, 0, topic.size(), "bad-key", "1"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                JdbcTestUtils.deleteFromTables(jdbcTemplate, "message_like", "message", "user"));
+    }
+
+    @Test
+    void projectionIsIdempotentAndReplayRebuildsCountsExactly() {
+        likeEventProjection.consumeLikeEvents(topic);
+        assertState(3);
+
+        // 整批重复投递
+        likeEventProjection.consumeLikeEvents(topic);
+        assertState(3);
+
+        // 逐条重放，中间状态都会真正写入
+        for (ConsumerRecord<String, String> record : topic) {
+            likeEventProjection.consumeLikeEvents(List.of(record));
+        }
+        assertState(3);
+
+        // 清空点赞记录和点赞数后从头重放
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            JdbcTestUtils.deleteFromTables(jdbcTemplate, "message_like");
+            jdbcTemplate.update("UPDATE message SET like_count = 0, is_hot = FALSE WHERE id = ?", messageId);
+        });
+        likeEventProjection.consumeLikeEvents(topic);
+        assertState(3);
+    }
+
+    @Test
+    void failedBatchIsRetriedUntilProjected() {
+        LikeProperties likeProperties = new LikeProperties();
+        likeProperties.getEventSourcing().setRetryBackoff(Duration.ofMillis(1));
+        likeProperties.getEventSourcing().setRetryMaxBackoff(Duration.ofMillis(5));
+        CommonErrorHandler errorHandler = new KafkaConfig()
+                .likeEventListenerContainerFactory(mock(ConsumerFactory.class), likeProperties)
+                .createContainer(TOPIC)
+                .getCommonErrorHandler();
+        Consumer<?, ?> consumer = mock(Consumer.class);
+        doReturn(ConsumerRecords.empty()).when(consumer).poll(any(Duration.class));
+        MessageListenerContainer container = mock(MessageListenerContainer.class);
+        when(container.isRunning()).thenReturn(true);
+
+        // 首次投影失败后，数据库又连续不可用多次（超过容器默认的重试次数），之后恢复
+        AtomicInteger attempts = new AtomicInteger();
+        errorHandler.handleBatch(new RuntimeException("数据库不可用"),
+                new ConsumerRecords<>(Map.of(new TopicPartition(TOPIC, 0), topic)), consumer, container, () -> {
+                    if (attempts.incrementAndGet() <= 12) {
+                        throw new RuntimeException("数据库不可用");
+                    }
+                    likeEventProjection.consumeLikeEvents(topic);
+                });
+
+        assertEquals(13, attempts.get());
+        assertState(3);
+    }
+
+    private void like(int user, boolean liked) {
+        topic.add(new ConsumerRecord<>(TOPIC, 0, topic.size(), messageId + ":" + userIds.get(user), liked ? "1" : "0"));
+    }
+
+    private void assertState(long expected) {
+        assertEquals(expected, messageLikeRepository.countByMessageId(messageId));
+        assertEquals(expected, jdbcTemplate.queryForObject(
+                "SELECT like_count FROM message WHERE id = ?", Long.class, messageId));
+        assertEquals(List.of(userIds.get(0), userIds.get(2), userIds.get(4)), jdbcTemplate.queryForList(
+                "SELECT user_id FROM message_like WHERE message_id = ? AND deleted = FALSE ORDER BY user_id",
+                Long.class, messageId));
+    }
+}
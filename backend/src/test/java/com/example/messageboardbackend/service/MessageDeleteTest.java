@@ -0,0 +1,73 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.model.Message;
+import com.example.messageboardbackend.model.User;
+import com.example.messageboardbackend.repository.MessageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 留言删除测试
+ *
+ * 重复删除同一条留言（客户端重试）时留言已不可见，返回"留言不存在"，不再次更新时间线等缓存，
+ * 时间线总数只减一次；并发删除由条件更新保证只有一个请求更新缓存。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MessageDeleteTest extends MessageServiceTestSupport {
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                JdbcTestUtils.deleteFromTables(jdbcTemplate, "message", "user"));
+    }
+
+    @Test
+    void repeatedDeleteUpdatesCachesOnce() {
+        Long id = new TransactionTemplate(transactionManager).execute(status -> {
+            User user = new User("deleter", "password");
+            entityManager.persist(user);
+            Message message = new Message();
+            message.setUser(user);
+            message.setContent("要删除的留言");
+            entityManager.persist(message);
+            return message.getId();
+        });
+
+        messageService.deleteMessage(id);
+        RuntimeException retry = assertThrows(RuntimeException.class, () -> messageService.deleteMessage(id));
+        assertEquals("留言不存在", retry.getMessage());
+        // 已经加载到留言的并发请求：条件更新不修改任何行
+        Integer updated = new TransactionTemplate(transactionManager).execute(status -> messageRepository.softDeleteById(id));
+        assertEquals(0, updated);
+
+        verify(timelineCacheService, times(1)).onDeleted(id);
+        verify(hotRankingService, times(1)).onDeleted(id);
+        verify(messageSearchIndex, times(1)).onDeleted(id);
+        assertEquals(1, JdbcTestUtils.countRowsInTableWhere(jdbcTemplate, "message",
+                "id = " + id + " AND deleted = TRUE"));
+    }
+}
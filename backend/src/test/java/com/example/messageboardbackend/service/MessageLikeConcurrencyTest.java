@@ -0,0 +1,250 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.HotRankingProperties;
+import com.example.messageboardbackend.dto.ApiResponse;
+import com.example.messageboardbackend.dto.LikeResultDto;
+import com.example.messageboardbackend.model.Message;
+import com.example.messageboardbackend.model.User;
+import com.example.messageboardbackend.repository.MessageLikeRepository;
+import com.example.messageboardbackend.repository.MessageRepository;
+import com.example.messageboardbackend.repository.UserRepository;
+import com.example.messageboardbackend.service.impl.MessageLikeServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 并发点赞测试
+ *
+ * 数千个用户同时点赞同一条留言，最终 like_count 必须等于未删除的 message_like 行数，
+ * 且点赞不能修改留言的更新时间。重复请求不改变点赞数，取消后再次点赞恢复原有记录。
+ * 点赞事件化时，点赞只在写入事件的事务提交后才计入趋势。
+ * 每次点赞在独立事务中提交，因此关闭测试事务并在结束后清理数据。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({MessageLikeServiceImpl.class, HotRankingProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MessageLikeConcurrencyTest {
+
+    private static final int USERS = 2000;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private MessageLikeService messageLikeService;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MessageLikeRepository messageLikeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private RedisCacheService redisCacheService;
+
+    @MockBean
+    private TimelineCacheService timelineCacheService;
+
+    @MockBean
+    private HotRankingService hotRankingService;
+
+    @MockBean
+    private TrendingService trendingService;
+
+    /**
+     * 未开启延迟写入，点赞直接原子更新留言表
+     */
+    @MockBean
+    private LikeCountBuffer likeCountBuffer;
+
+    /**
+     * 位图未就绪，点赞状态判断查库
+     */
+    @MockBean
+    private LikeBitmapIndex likeBitmapIndex;
+
+    /**
+     * 未开启点赞事件化，点赞直接写库
+     */
+    @MockBean
+    private KafkaProducerService kafkaProducerService;
+
+    @MockBean
+    private MessageSearchIndex messageSearchIndex;
+
+    private Long messageId;
+    private LocalDateTime updatedAt;
+    private List<String> usernames;
+
+    @BeforeEach
+    void setUp() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new User("liker" + i, "password"));
+        }
+        users = userRepository.saveAll(users);
+        usernames = users.stream().map(User::getUsername).toList();
+
+        Message message = new Message();
+        message.setUser(users.get(0));
+        message.setContent("热门留言");
+        message = messageRepository.save(message);
+        messageId = message.getId();
+        updatedAt = currentUpdatedAt();
+    }
+
+    @AfterEach
+    void tearDown() {
+        // 直接删表：实体上的 @Where 会跳过软删除的行；连接池关闭了自动提交，需要显式事务
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                JdbcTestUtils.deleteFromTables(jdbcTemplate, "message_like", "message", "user"));
+    }
+
+    @Test
+    void parallelLikesAndUnlikesKeepCountConsistent() throws Exception {
+        int liked = runConcurrently(usernames, username -> messageLikeService.likeMessage(messageId, username));
+        assertEquals(USERS, liked);
+        assertConsistent(USERS);
+
+        // 一半用户同时取消点赞
+        int unliked = runConcurrently(usernames.subList(0, USERS / 2),
+                username -> messageLikeService.unlikeMessage(messageId, username));
+        assertEquals(USERS / 2, unliked);
+        assertConsistent(USERS - USERS / 2);
+
+        // 点赞不修改留言的更新时间
+        assertEquals(updatedAt, currentUpdatedAt());
+    }
+
+    @Test
+    void retriedLikesAndUnlikesAreIdempotentAndRelikeRestoresRow() throws Exception {
+        // 每个用户的请求都重试一次，两次并发执行
+        List<String> retried = new ArrayList<>(usernames);
+        retried.addAll(usernames);
+        assertEquals(retried.size(), runConcurrently(retried, username -> messageLikeService.likeMessage(messageId, username)));
+        assertConsistent(USERS);
+
+        String username = usernames.get(0);
+        ApiResponse<LikeResultDto> again = messageLikeService.likeMessage(messageId, username);
+        assertEquals(false, again.getData().getChanged());
+        assertEquals(true, again.getData().getLiked());
+        assertEquals(USERS, again.getData().getLikeCount());
+
+        ApiResponse<LikeResultDto> unliked = messageLikeService.unlikeMessage(messageId, username);
+        assertEquals(true, unliked.getData().getChanged());
+        assertEquals(USERS - 1, unliked.getData().getLikeCount());
+        assertEquals(false, messageLikeService.unlikeMessage(messageId, username).getData().getChanged());
+        assertConsistent(USERS - 1);
+
+        // 取消后再次点赞：恢复原来的记录，不会违反唯一索引
+        ApiResponse<LikeResultDto> reliked = messageLikeService.likeMessage(messageId, username);
+        assertEquals(true, reliked.getSuccess());
+        assertEquals(true, reliked.getData().getChanged());
+        assertEquals(USERS, reliked.getData().getLikeCount());
+        assertConsistent(USERS);
+        assertEquals(USERS, JdbcTestUtils.countRowsInTableWhere(jdbcTemplate, "message_like", "message_id = " + messageId));
+    }
+
+    @Test
+    void likeEventCountsTowardsTrendingOnlyAfterCommit() {
+        when(kafkaProducerService.isLikeEventsEnabled()).thenReturn(true);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        // 写入点赞事件的事务回滚：趋势计数不变
+        transactionTemplate.executeWithoutResult(status -> {
+            assertEquals(true, messageLikeService.likeMessage(messageId, usernames.get(0)).getData().getChanged());
+            status.setRollbackOnly();
+        });
+        verify(trendingService, never()).record(anyLong(), anyInt());
+
+        assertEquals(true, messageLikeService.likeMessage(messageId, usernames.get(0)).getData().getChanged());
+        verify(kafkaProducerService, times(2)).sendLikeEvent(messageId, userRepository.findByUsername(usernames.get(0))
+                .orElseThrow().getId(), true);
+        verify(trendingService, times(1)).record(messageId, 1);
+    }
+
+    private void assertConsistent(int expected) {
+        Integer likeCount = jdbcTemplate.queryForObject(
+                "SELECT like_count FROM message WHERE id = ?", Integer.class, messageId);
+        Boolean isHot = jdbcTemplate.queryForObject(
+                "SELECT is_hot FROM message WHERE id = ?", Boolean.class, messageId);
+        assertEquals(expected, likeCount);
+        assertEquals(messageLikeRepository.countByMessageId(messageId), (long) likeCount);
+        assertEquals(expected >= Message.HOT_LIKE_THRESHOLD, isHot);
+    }
+
+    private LocalDateTime currentUpdatedAt() {
+        return jdbcTemplate.queryForObject(
+                "SELECT updated_at FROM message WHERE id = ?", LocalDateTime.class, messageId);
+    }
+
+    /**
+     * 所有线程同时开始执行，返回成功的次数
+     */
+    private int runConcurrently(List<String> users, Function<String, ApiResponse<LikeResultDto>> action) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<ApiResponse<LikeResultDto>>> results = new ArrayList<>();
+            for (String username : users) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return action.apply(username);
+                }));
+            }
+            start.countDown();
+            int succeeded = 0;
+            for (Future<ApiResponse<LikeResultDto>> result : results) {
+                if (Boolean.TRUE.equals(result.get(60, TimeUnit.SECONDS).getSuccess())) {
+                    succeeded++;
+                }
+            }
+            return succeeded;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
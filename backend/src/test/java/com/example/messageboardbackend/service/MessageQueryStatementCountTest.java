@@ -0,0 +1,186 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.dto.MessageDto;
+import com.example.messageboardbackend.model.Message;
+import com.example.messageboardbackend.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * 留言查询语句数测试
+ *
+ * 列表类接口必须通过DTO投影一次取出用户信息，不能因为懒加载的用户关联产生N+1查询：
+ * 分页接口固定为数据+计数两条语句，游标分页、全量列表和详情固定为一条。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+class MessageQueryStatementCountTest extends MessageServiceTestSupport {
+
+    private static final int USER_COUNT = 10;
+    private static final int MESSAGE_COUNT = 30;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long firstUserId;
+    private Long firstMessageId;
+    private List<Long> hotMessageIds;
+
+    @BeforeEach
+    void setUp() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USER_COUNT; i++) {
+            User user = new User("user" + i, "password");
+            entityManager.persist(user);
+            users.add(user);
+        }
+        hotMessageIds = new ArrayList<>();
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            Message message = new Message();
+            message.setUser(users.get(i % USER_COUNT));
+            message.setContent("测试留言 " + i);
+            message.setDeleted(false);
+            // 每三条中有一条热门留言
+            message.setLikeCount(i % 3 == 0 ? Message.HOT_LIKE_THRESHOLD + i : 0);
+            message.setIsHot(i % 3 == 0);
+            entityManager.persist(message);
+            if (i == 0) {
+                firstMessageId = message.getId();
+            }
+            if (message.getIsHot()) {
+                hotMessageIds.add(message.getId());
+            }
+        }
+        firstUserId = users.get(0).getId();
+        entityManager.flush();
+        // 清空持久化上下文，保证用户关联不会从一级缓存命中
+        entityManager.clear();
+
+        // 缓存全部未命中，所有查询都落到数据库
+        when(redisCacheService.getOrLoadHotMessageList(any()))
+                .thenAnswer(invocation -> invocation.<Supplier<List<MessageDto>>>getArgument(0).get());
+        when(timelineCacheService.getLatest(anyInt())).thenReturn(null);
+        when(searchResultCache.get(any(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Function<String, Page<MessageDto>>>getArgument(3)
+                        .apply(invocation.getArgument(0)));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void messagePageUsesTwoStatements() {
+        Page<MessageDto> page = countStatements(2, () ->
+                messageService.getMessages(PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "createdAt"))));
+        assertEquals(20, page.getContent().size());
+        assertEquals(MESSAGE_COUNT, page.getTotalElements());
+        assertFalse(page.getContent().get(0).getUsername().isEmpty());
+    }
+
+    @Test
+    void userMessagePageUsesTwoStatements() {
+        Page<MessageDto> page = countStatements(2, () ->
+                messageService.getMessagesByUserId(firstUserId, PageRequest.of(0, 2)));
+        assertEquals(2, page.getContent().size());
+        assertEquals(MESSAGE_COUNT / USER_COUNT, page.getTotalElements());
+    }
+
+    @Test
+    void searchPageUsesTwoStatements() {
+        Page<MessageDto> page = countStatements(2, () ->
+                messageService.searchMessagesByContent("测试", PageRequest.of(0, 20)));
+        assertEquals(20, page.getContent().size());
+    }
+
+    @Test
+    void hotMessagePageUsesTwoStatements() {
+        Page<MessageDto> page = countStatements(2, () ->
+                messageService.getHotMessages(PageRequest.of(0, 5)));
+        assertEquals(5, page.getContent().size());
+        assertEquals(MESSAGE_COUNT / 3, page.getTotalElements());
+    }
+
+    @Test
+    void allHotMessagesUsesOneStatement() {
+        List<MessageDto> hot = countStatements(1, () -> messageService.getAllHotMessages());
+        assertEquals(MESSAGE_COUNT / 3, hot.size());
+    }
+
+    @Test
+    void rankedHotMessagesUseOneStatementAndKeepRankingOrder() {
+        // 排行顺序与点赞数顺序无关，由Redis有序集合决定
+        List<Long> ranked = new ArrayList<>(hotMessageIds.subList(0, 5));
+        Collections.reverse(ranked);
+        when(hotRankingService.ensureReady()).thenReturn(true);
+        when(hotRankingService.range(0, 5)).thenReturn(ranked);
+        when(hotRankingService.range(0, -1)).thenReturn(ranked);
+        when(hotRankingService.size()).thenReturn((long) hotMessageIds.size());
+
+        Page<MessageDto> page = countStatements(1, () -> messageService.getHotMessages(PageRequest.of(0, 5)));
+        assertEquals(ranked, page.getContent().stream().map(MessageDto::getId).toList());
+        assertEquals(hotMessageIds.size(), page.getTotalElements());
+
+        List<MessageDto> all = countStatements(1, () -> messageService.getAllHotMessages());
+        assertEquals(ranked, all.stream().map(MessageDto::getId).toList());
+    }
+
+    @Test
+    void fulltextSearchUsesOneStatementAndKeepsRelevanceOrder() {
+        // 全文索引返回按相关度排好序的ID（H2不支持MATCH，由mock代替）
+        List<Long> ranked = new ArrayList<>(hotMessageIds.subList(0, 3));
+        Collections.reverse(ranked);
+        when(messageSearchService.searchIds(eq("测试"), eq(MessageSearchService.SearchMode.NATURAL), any()))
+                .thenReturn(new PageImpl<>(ranked, PageRequest.of(0, 3), MESSAGE_COUNT));
+
+        Page<MessageDto> page = countStatements(1, () -> messageService.searchMessagesByContent("测试", PageRequest.of(0, 3)));
+        assertEquals(ranked, page.getContent().stream().map(MessageDto::getId).toList());
+        assertEquals(MESSAGE_COUNT, page.getTotalElements());
+    }
+
+    @Test
+    void feedsUseOneStatement() {
+        assertEquals(20, countStatements(1, () -> messageService.getMessageFeed(null, 20)).getContent().size());
+        assertEquals(MESSAGE_COUNT / USER_COUNT,
+                countStatements(1, () -> messageService.getMessageFeedByUserId(firstUserId, null, 20)).getContent().size());
+        assertEquals(5, countStatements(1, () -> messageService.getHotMessageFeed(null, 5)).getContent().size());
+    }
+
+    @Test
+    void messageByIdUsesOneStatement() {
+        MessageDto message = countStatements(1, () -> messageService.getMessageById(firstMessageId));
+        assertEquals("user0", message.getUsername());
+    }
+
+    /**
+     * 执行查询并断言期间准备的SQL语句数
+     */
+    private <T> T countStatements(long expected, Supplier<T> query) {
+        statistics.clear();
+        T result = query.get();
+        assertEquals(expected, statistics.getPrepareStatementCount(), "SQL语句数");
+        return result;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.HotRankingProperties;
+import com.example.messageboardbackend.config.SearchProperties;
+import com.example.messageboardbackend.dto.MessageDto;
+import com.example.messageboardbackend.model.Message;
+import com.example.messageboardbackend.model.User;
+import com.example.messageboardbackend.repository.MessageRepository;
+import com.example.messageboardbackend.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 进程内搜索索引测试
+ *
+ * 从数据库分批重建后按相关度搜索、短语和排除运算符、返回高亮位置；
+ * 增量写入近实时可见，重启后从上次提交的时间点追赶数据库中的修改。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({MessageSearchIndex.class, SearchProperties.class, HotRankingProperties.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MessageSearchIndexTest {
+
+    private static final PageRequest FIRST_PAGE = PageRequest.of(0, 10);
+
+    @Autowired
+    private MessageSearchIndex messageSearchIndex;
+
+    @Autowired
+    private SearchProperties searchProperties;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private StringRedisTemplate stringRedisTemplate;
+
+    @MockBean
+    private LikeCountBuffer likeCountBuffer;
+
+    @TempDir
+    Path indexDir;
+
+    private User user;
+    private List<Long> messageIds;
+
+    @BeforeEach
+    void setUp() {
+        searchProperties.setEngine(SearchProperties.Engine.LUCENE);
+        searchProperties.getLucene().setIndexDir(indexDir.toString());
+        searchProperties.getLucene().setBatchSize(2);
+
+        user = userRepository.save(new User("searcher", "password"));
+        messageIds = new ArrayList<>();
+        save("留言板的搜索功能很好用", false, 6);
+        save("今天天气不错，适合出去玩", false, 0);
+        save("Hello World，欢迎来到留言区", false, 1);
+        save("这条留言板内容已经删除", true, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        messageSearchIndex.close();
+        searchProperties.setEngine(SearchProperties.Engine.FULLTEXT);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                JdbcTestUtils.deleteFromTables(jdbcTemplate, "message", "user"));
+    }
+
+    @Test
+    void rebuildStreamsRowsAndSearchesByRelevance() {
+        assertNull(messageSearchIndex.search("留言板", MessageSearchService.SearchMode.NATURAL, FIRST_PAGE));
+        messageSearchIndex.load();
+        assertTrue(messageSearchIndex.isReady());
+
+        // 两个词元都命中的排在前面，已删除的留言不在索引中
+        Page<MessageDto> natural = messageSearchIndex.search("留言板", MessageSearchService.SearchMode.NATURAL, FIRST_PAGE);
+        assertEquals(List.of(messageIds.get(0), messageIds.get(2)), ids(natural));
+        MessageDto first = natural.getContent().get(0);
+        assertEquals("searcher", first.getUsername());
+        assertEquals(6, first.getLikeCount());
+        assertTrue(first.getIsHot());
+        assertArrayEquals(new int[]{0, 3}, first.getHighlights().get(0));
+
+        Page<MessageDto> phrase = messageSearchIndex.search("\"天气不错\"", MessageSearchService.SearchMode.BOOLEAN, FIRST_PAGE);
+        assertEquals(List.of(messageIds.get(1)), ids(phrase));
+        assertArrayEquals(new int[]{2, 6}, phrase.getContent().get(0).getHighlights().get(0));
+
+        assertEquals(List.of(messageIds.get(2)),
+                ids(messageSearchIndex.search("留言 -搜索", MessageSearchService.SearchMode.BOOLEAN, FIRST_PAGE)));
+        assertEquals(List.of(messageIds.get(2)),
+                ids(messageSearchIndex.search("hello", MessageSearchService.SearchMode.NATURAL, FIRST_PAGE)));
+
+        // 分页和总数
+        Page<MessageDto> second = messageSearchIndex.search("留言板", MessageSearchService.SearchMode.NATURAL, PageRequest.of(1, 1));
+        assertEquals(2, second.getTotalElements());
+        assertEquals(List.of(messageIds.get(2)), ids(second));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> messageSearchIndex.search("\"留言", MessageSearchService.SearchMode.BOOLEAN, FIRST_PAGE));
+    }
+
+    @Test
+    void incrementalChangesAndCatchUpAfterRestart() {
+        messageSearchIndex.load();
+
+        Message edited = messageRepository.findById(messageIds.get(1)).orElseThrow();
+        messageSearchIndex.onSaved(new MessageDto(edited.getId(), user.getId(), "明天下雨，留言板见",
+                user.getUsername(), edited.getCreatedAt(), LocalDateTime.now(), false, 0, false));
+        messageSearchIndex.onDeleted(messageIds.get(2));
+        messageSearchIndex.onLikeCountChanged(messageIds.get(0), 2);
+        messageSearchIndex.refresh();
+
+        Page<MessageDto> result = messageSearchIndex.search("留言板", MessageSearchService.SearchMode.NATURAL, FIRST_PAGE);
+        assertEquals(Set.of(messageIds.get(0), messageIds.get(1)), Set.copyOf(ids(result)));
+        assertEquals(2, result.getContent().stream()
+                .filter(dto -> dto.getId().equals(messageIds.get(0))).findFirst().orElseThrow().getLikeCount());
+
+        // 关闭期间数据库中的修改和点赞数在重启后追赶；追赶会重读提交前不久修改过的留言，只在索引中删除的留言按数据库恢复
+        messageSearchIndex.close();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE message SET content = ?, updated_at = ? WHERE id = ?",
+                    "今天天气不错", LocalDateTime.now(), messageIds.get(1));
+            jdbcTemplate.update("UPDATE message SET like_count = 7 WHERE id = ?", messageIds.get(0));
+        });
+        messageSearchIndex.load();
+
+        assertEquals(List.of(messageIds.get(0), messageIds.get(2)),
+                ids(messageSearchIndex.search("留言板", MessageSearchService.SearchMode.NATURAL, FIRST_PAGE)));
+        assertEquals(7, messageSearchIndex.search("留言板", MessageSearchService.SearchMode.NATURAL, FIRST_PAGE)
+                .getContent().get(0).getLikeCount());
+        assertEquals(List.of(messageIds.get(1)),
+                ids(messageSearchIndex.search("天气", MessageSearchService.SearchMode.NATURAL, FIRST_PAGE)));
+    }
+
+    private void save(String content, boolean deleted, int likeCount) {
+        Message message = new Message();
+        message.setUser(user);
+        message.setContent(content);
+        message.setDeleted(deleted);
+        message.setLikeCount(likeCount);
+        message.setIsHot(likeCount >= Message.HOT_LIKE_THRESHOLD);
+        messageIds.add(messageRepository.save(message).getId());
+    }
+
+    private static List<Long> ids(Page<MessageDto> page) {
+        return page.getContent().stream().map(MessageDto::getId).toList();
+    }
+}
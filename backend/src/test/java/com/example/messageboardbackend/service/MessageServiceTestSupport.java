@@ -0,0 +1,63 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.HotRankingProperties;
+import com.example.messageboardbackend.service.impl.MessageServiceImpl;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * 留言服务数据库测试基类
+ *
+ * 只加载JPA和 MessageServiceImpl，缓存、索引、消息队列等协作者全部替换为mock。
+ * 子类共用同一组mock，因此共用同一个Spring上下文。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({MessageServiceImpl.class, HotRankingProperties.class})
+abstract class MessageServiceTestSupport {
+
+    @Autowired
+    protected MessageService messageService;
+
+    @Autowired
+    protected EntityManager entityManager;
+
+    @MockBean
+    protected RedisCacheService redisCacheService;
+
+    @MockBean
+    protected KafkaProducerService kafkaProducerService;
+
+    @MockBean
+    protected TimelineCacheService timelineCacheService;
+
+    @MockBean
+    protected LikeCountBuffer likeCountBuffer;
+
+    @MockBean
+    protected HotRankingService hotRankingService;
+
+    @MockBean
+    protected TrendingService trendingService;
+
+    /**
+     * 没有全文索引，搜索走LIKE
+     */
+    @MockBean
+    protected MessageSearchService messageSearchService;
+
+    @MockBean
+    protected MessageSearchIndex messageSearchIndex;
+
+    @MockBean
+    protected SearchResultCache searchResultCache;
+}
@@ -0,0 +1,252 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.LikeProperties;
+import com.example.messageboardbackend.config.OutboxProperties;
+import com.example.messageboardbackend.config.SystemLogProperties;
+import com.example.messageboardbackend.dto.LogEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 发件箱测试
+ *
+ * 事件随业务事务提交或回滚；转发任务按写入顺序发送，确认后批量删除；系统日志交给发送队列后删除，Kafka不可用时写入本地缓冲；
+ * 其他节点持有转发锁时不发送；发送失败时整批保留下次重发；send阻塞超过期限时不再发送本批剩余的事件。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({KafkaProducerService.class, OutboxProperties.class, LikeProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxRelayTest {
+
+    @Autowired
+    private KafkaProducerService kafkaProducerService;
+
+    @Autowired
+    private OutboxProperties outboxProperties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, String> kafkaTemplate = mock(KafkaTemplate.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<String> sent = new ArrayList<>();
+
+    @TempDir
+    Path spoolDir;
+
+    private SystemLogPublisher systemLogPublisher;
+
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        outboxProperties.setBatchSize(2);
+        outboxProperties.setSendTimeout(Duration.ofSeconds(10));
+        SystemLogProperties systemLogProperties = new SystemLogProperties();
+        systemLogProperties.getProducer().setRetryInterval(Duration.ZERO);
+        systemLogProperties.getSpool().setDir(spoolDir.toString());
+        // 发送线程不启动，由测试调用 drainOnce
+        systemLogPublisher = new SystemLogPublisher(systemLogProperties, kafkaTemplate, meterRegistry);
+        outboxRelay = new OutboxRelay(outboxProperties, jdbcTemplate, transactionManager, kafkaTemplate,
+                systemLogPublisher, meterRegistry);
+        succeed();
+    }
+
+    @AfterEach
+    void tearDown() {
+        systemLogPublisher.close();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                JdbcTestUtils.deleteFromTables(jdbcTemplate, "outbox_event"));
+    }
+
+    @Test
+    void eventsFollowTransactionAndAreRelayedInOrder() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            kafkaProducerService.sendUserMessageLog(1L, 10L);
+            kafkaProducerService.sendLikeEvent(10L, 2L, true);
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            kafkaProducerService.sendLikeLog(3L, 10L, false);
+            status.setRollbackOnly();
+        });
+        transactionTemplate.executeWithoutResult(status -> kafkaProducerService.sendLikeLog(2L, 10L, true));
+        assertEquals(3, JdbcTestUtils.countRowsInTable(jdbcTemplate, "outbox_event"));
+
+        // 事务外调用直接失败，不会产生游离的事件
+        assertThrows(IllegalTransactionStateException.class, () -> kafkaProducerService.sendUserMessageLog(1L, 11L));
+
+        // 点赞事件等到确认，系统日志按顺序进入发送队列，两者都从发件箱删除
+        outboxRelay.run();
+        assertEquals(List.of("message-likes|10:2|1"), sent);
+        assertEquals(2, systemLogPublisher.pendingPayloads().size());
+        assertEquals(0, JdbcTestUtils.countRowsInTable(jdbcTemplate, "outbox_event"));
+        assertEquals(3, meterRegistry.get("outbox.relay.published").counter().count());
+        assertEquals(2, meterRegistry.get("outbox.relay.batch").timer().count());
+
+        systemLogPublisher.drainOnce();
+        assertEquals(List.of("message-likes|10:2|1", "system-logs|1|MESSAGE_CREATED", "system-logs|2|MESSAGE_LIKED"), sent);
+    }
+
+    @Test
+    void systemLogsAreSpooledWhileKafkaIsDown() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            kafkaProducerService.sendUserMessageLog(1L, 10L);
+            kafkaProducerService.sendLikeLog(2L, 10L, true);
+            kafkaProducerService.sendLikeLog(2L, 10L, false);
+        });
+        doReturn(CompletableFuture.failedFuture(new TimeoutException("broker不可用")))
+                .when(kafkaTemplate).send(anyString(), any(), anyString());
+
+        // 不等待系统日志的确认，Broker不可用也不在发件箱中积压
+        outboxRelay.run();
+        assertEquals(0, JdbcTestUtils.countRowsInTable(jdbcTemplate, "outbox_event"));
+        assertEquals(0, meterRegistry.get("outbox.relay.errors").counter().count());
+
+        systemLogPublisher.drainOnce();
+        assertEquals(3, meterRegistry.get("system.log.spooled").tag("reason", "unavailable").counter().count());
+
+        // 恢复后从本地缓冲按写入顺序补发
+        succeed();
+        while (systemLogPublisher.drainOnce() > 0) {
+            // 直到本地缓冲为空
+        }
+        assertEquals(List.of("system-logs|1|MESSAGE_CREATED", "system-logs|2|MESSAGE_LIKED",
+                "system-logs|2|MESSAGE_UNLIKED"), sent);
+        assertEquals(0, meterRegistry.get("system.log.spool.pending").gauge().value());
+    }
+
+    @Test
+    void failedBatchStaysInOutbox() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            kafkaProducerService.sendLikeEvent(10L, 2L, true);
+            kafkaProducerService.sendUserMessageLog(1L, 10L);
+        });
+        doReturn(CompletableFuture.failedFuture(new TimeoutException("broker不可用")))
+                .when(kafkaTemplate).send(anyString(), any(), anyString());
+
+        // 点赞事件未确认时整批回滚，同一批的系统日志也不入队
+        outboxRelay.run();
+        assertEquals(2, JdbcTestUtils.countRowsInTable(jdbcTemplate, "outbox_event"));
+        assertEquals(1, meterRegistry.get("outbox.relay.errors").counter().count());
+        assertTrue(systemLogPublisher.pendingPayloads().isEmpty());
+
+        succeed();
+        outboxRelay.run();
+        assertEquals(1, sent.size());
+        assertEquals(1, systemLogPublisher.pendingPayloads().size());
+        assertEquals(0, JdbcTestUtils.countRowsInTable(jdbcTemplate, "outbox_event"));
+        assertEquals(0, meterRegistry.get("outbox.relay.lag").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void onlyLockHolderRelays() throws Exception {
+        assertEquals(0, outboxRelay.relayBatch());
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            kafkaProducerService.sendLikeEvent(10L, 2L, true);
+            kafkaProducerService.sendLikeEvent(10L, 2L, false);
+        });
+
+        // 另一个节点正在转发：持有转发锁的事务未结束时，本节点不取任何事件
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread otherNode = new Thread(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.queryForList("SELECT id FROM outbox_relay_lock WHERE id = 1 FOR UPDATE", Integer.class);
+            locked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        otherNode.start();
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+        try {
+            assertEquals(0, outboxRelay.relayBatch());
+            assertTrue(sent.isEmpty());
+            assertEquals(2, JdbcTestUtils.countRowsInTable(jdbcTemplate, "outbox_event"));
+        } finally {
+            release.countDown();
+            otherNode.join();
+        }
+
+        assertEquals(2, outboxRelay.relayBatch());
+        assertEquals(List.of("message-likes|10:2|1", "message-likes|10:2|0"), sent);
+    }
+
+    @Test
+    void blockingSendStopsBatchAtDeadline() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            kafkaProducerService.sendLikeEvent(10L, 2L, true);
+            kafkaProducerService.sendLikeEvent(11L, 2L, true);
+        });
+        // 元数据不可用：第一次send阻塞到 max.block.ms 才返回，超过期限后不再发送第二条
+        outboxProperties.setSendTimeout(Duration.ofMillis(100));
+        doAnswer(inv -> {
+            sent.add(inv.getArgument(2));
+            Thread.sleep(150);
+            return CompletableFuture.failedFuture(new TimeoutException("元数据获取超时"));
+        }).when(kafkaTemplate).send(anyString(), any(), anyString());
+
+        assertThrows(RuntimeException.class, () -> outboxRelay.relayBatch());
+        assertEquals(1, sent.size());
+        assertEquals(2, JdbcTestUtils.countRowsInTable(jdbcTemplate, "outbox_event"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void succeed() {
+        doAnswer(inv -> {
+            String topic = inv.getArgument(0);
+            String payload = inv.getArgument(2);
+            LogEvent event = LogEvent.fromJson(payload);
+            sent.add(topic + "|" + inv.getArgument(1) + "|" + (event != null ? event.getType() : payload));
+            return CompletableFuture.completedFuture(mock(SendResult.class));
+        }).when(kafkaTemplate).send(anyString(), any(), anyString());
+    }
+}
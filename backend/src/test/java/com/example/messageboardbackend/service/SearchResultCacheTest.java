@@ -0,0 +1,128 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.SearchProperties;
+import com.example.messageboardbackend.dto.MessageDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 搜索结果缓存测试
+ *
+ * 写法不同的关键词共用缓存；留言变化只清除内容中含有其词元的关键词；热门关键词使用更长的有效期；
+ * 加载期间发生变化的结果不写入缓存。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+class SearchResultCacheTest {
+
+    private static final PageRequest FIRST_PAGE = PageRequest.of(0, 10);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final List<String> searched = new ArrayList<>();
+
+    private SearchProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private SearchResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SearchProperties();
+        properties.getResultCache().setTtl(Duration.ofMinutes(1));
+        properties.getResultCache().setHotTtl(Duration.ofMinutes(10));
+        properties.getResultCache().setHotThreshold(3);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new SearchResultCache(properties, mock(StringRedisTemplate.class), meterRegistry, nanos::get);
+    }
+
+    @Test
+    void normalizedQueriesShareOneEntry() {
+        search("  Hello   World ");
+        search("hello world");
+        search("ＨＥＬＬＯ world");
+        assertEquals(List.of("hello world"), searched);
+        assertEquals(2.0 / 3, meterRegistry.get("message.search.cache.hit.ratio").gauge().value(), 1e-9);
+        assertTrue(meterRegistry.get("message.search.cache.memory").gauge().value() > 0);
+
+        // 页码和模式不同是不同的结果
+        cache.get("hello world", MessageSearchService.SearchMode.BOOLEAN, FIRST_PAGE, this::load);
+        cache.get("hello world", MessageSearchService.SearchMode.NATURAL, PageRequest.of(1, 10), this::load);
+        assertEquals(3, searched.size());
+    }
+
+    @Test
+    void onlyTermsContainedInChangedMessageAreInvalidated() {
+        List<String> terms = List.of("留言板", "天气", "好", "spring boot", "数据库");
+        terms.forEach(this::search);
+
+        // “好”只有一个字，内容中出现这个字就要清除
+        assertEquals(2, cache.invalidateMatching("今天天气很好"));
+        assertEquals(0, cache.invalidateMatching("他说"));
+        // 自然语言模式下任一词元命中即返回，含“留言”的留言会出现在“留言板”的结果中
+        assertEquals(1, cache.invalidateMatching("新的留言"));
+        assertEquals(1, cache.invalidateMatching("Learning SPRING today"));
+
+        searched.clear();
+        terms.forEach(this::search);
+        assertEquals(List.of("留言板", "天气", "好", "spring boot"), searched);
+        assertEquals(4, meterRegistry.get("message.search.cache.invalidated").counter().count());
+        assertEquals(5, meterRegistry.get("message.search.cache.terms").gauge().value());
+    }
+
+    @Test
+    void hotTermsAreCachedLonger() {
+        search("冷门");
+        for (int i = 0; i < 3; i++) {
+            cache.invalidateMatching("热门");
+            search("热门");
+        }
+        searched.clear();
+
+        advance(Duration.ofMinutes(2));
+        search("冷门");
+        search("热门");
+        assertEquals(List.of("冷门"), searched);
+    }
+
+    @Test
+    void resultLoadedDuringChangeIsNotCached() {
+        cache.get("留言", MessageSearchService.SearchMode.NATURAL, FIRST_PAGE, keyword -> {
+            cache.invalidateMatching("新留言");
+            return load(keyword);
+        });
+        search("留言");
+        assertEquals(List.of("留言", "留言"), searched);
+        search("留言");
+        assertEquals(2, searched.size());
+    }
+
+    private void search(String query) {
+        cache.get(query, MessageSearchService.SearchMode.NATURAL, FIRST_PAGE, this::load);
+    }
+
+    private Page<MessageDto> load(String keyword) {
+        searched.add(keyword);
+        MessageDto dto = new MessageDto();
+        dto.setId((long) searched.size());
+        dto.setContent("包含" + keyword + "的留言");
+        return new PageImpl<>(List.of(dto), FIRST_PAGE, 1);
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.SystemLogProperties;
+import com.example.messageboardbackend.service.SystemLogPartitionMaintainer.DayPartition;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 系统日志分区维护测试
+ *
+ * 从 p_max 中拆出保留期到 today + premake 的每天分区；已是最新时不执行DDL；
+ * 第二天补一个分区并删除过期分区；维护中断后从保留期起点补齐。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+class SystemLogPartitionMaintainerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 10);
+
+    private SystemLogPartitionMaintainer maintainer;
+
+    @BeforeEach
+    void setUp() {
+        SystemLogProperties properties = new SystemLogProperties();
+        properties.getPartition().setRetention(Duration.ofDays(3));
+        properties.getPartition().setPremake(Duration.ofDays(2));
+        maintainer = new SystemLogPartitionMaintainer(properties, null, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void splitsDailyPartitionsOutOfMaxValue() {
+        List<String> ddl = maintainer.plan(List.of(DayPartition.of("p_max", "MAXVALUE")), TODAY);
+
+        assertEquals(List.of("ALTER TABLE system_log REORGANIZE PARTITION p_max INTO ("
+                + "PARTITION p20240607 VALUES LESS THAN ('2024-06-08'), "
+                + "PARTITION p20240608 VALUES LESS THAN ('2024-06-09'), "
+                + "PARTITION p20240609 VALUES LESS THAN ('2024-06-10'), "
+                + "PARTITION p20240610 VALUES LESS THAN ('2024-06-11'), "
+                + "PARTITION p20240611 VALUES LESS THAN ('2024-06-12'), "
+                + "PARTITION p20240612 VALUES LESS THAN ('2024-06-13'), "
+                + "PARTITION p_max VALUES LESS THAN (MAXVALUE))"), ddl);
+    }
+
+    @Test
+    void addsNextDayAndDropsExpiredPartitions() {
+        List<DayPartition> partitions = days(LocalDate.of(2024, 6, 7), LocalDate.of(2024, 6, 12));
+        partitions.add(DayPartition.of("p_max", "MAXVALUE"));
+        assertTrue(maintainer.plan(partitions, TODAY).isEmpty());
+
+        assertEquals(List.of(
+                "ALTER TABLE system_log REORGANIZE PARTITION p_max INTO ("
+                        + "PARTITION p20240613 VALUES LESS THAN ('2024-06-14'), "
+                        + "PARTITION p_max VALUES LESS THAN (MAXVALUE))",
+                "ALTER TABLE system_log DROP PARTITION p20240607"),
+                maintainer.plan(partitions, TODAY.plusDays(1)));
+    }
+
+    @Test
+    void catchesUpFromRetentionStartAfterGap() {
+        // 没有 p_max，维护任务停了一周：第一个新分区接上原来的上界，存放到保留期起点为止的日志
+        List<DayPartition> partitions = days(LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 2));
+
+        assertEquals(List.of(
+                "ALTER TABLE system_log ADD PARTITION ("
+                        + "PARTITION p20240607 VALUES LESS THAN ('2024-06-08'), "
+                        + "PARTITION p20240608 VALUES LESS THAN ('2024-06-09'), "
+                        + "PARTITION p20240609 VALUES LESS THAN ('2024-06-10'), "
+                        + "PARTITION p20240610 VALUES LESS THAN ('2024-06-11'), "
+                        + "PARTITION p20240611 VALUES LESS THAN ('2024-06-12'), "
+                        + "PARTITION p20240612 VALUES LESS THAN ('2024-06-13'))",
+                "ALTER TABLE system_log DROP PARTITION p20240601, p20240602"),
+                maintainer.plan(partitions, TODAY));
+    }
+
+    /**
+     * 按 information_schema 的格式构造 [from, to] 每天一个分区
+     */
+    private static List<DayPartition> days(LocalDate from, LocalDate to) {
+        List<DayPartition> partitions = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            partitions.add(DayPartition.of("p" + day.toString().replace("-", ""),
+                    "'" + day.plusDays(1) + " 00:00:00'"));
+        }
+        return partitions;
+    }
+}
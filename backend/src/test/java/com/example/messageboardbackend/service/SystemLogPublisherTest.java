@@ -0,0 +1,163 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.SystemLogProperties;
+import com.example.messageboardbackend.dto.LogEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 系统日志发送队列测试
+ *
+ * 发布只入队不访问Kafka；队列已满时分别丢弃最早的、丢弃最新的，或写入本地缓冲后按顺序补发；
+ * Kafka不可用时事件写入本地缓冲，恢复后按顺序补发。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+class SystemLogPublisherTest {
+
+    @TempDir
+    Path spoolDir;
+
+    private SystemLogProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private KafkaTemplate<String, String> kafkaTemplate;
+    private final List<String> sent = new ArrayList<>();
+    private final List<SystemLogPublisher> publishers = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        properties = new SystemLogProperties();
+        properties.getProducer().setQueueCapacity(3);
+        properties.getProducer().setDrainBatchSize(2);
+        properties.getSpool().setDir(spoolDir.toString());
+        meterRegistry = new SimpleMeterRegistry();
+        kafkaTemplate = mock(KafkaTemplate.class);
+        when(kafkaTemplate.send(eq(SystemLogPublisher.TOPIC), any(), anyString())).thenAnswer(inv -> {
+            sent.add(inv.getArgument(1) + ":" + LogEvent.fromJson(inv.getArgument(2)).getMessageId());
+            return CompletableFuture.completedFuture(mock(SendResult.class));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        publishers.forEach(SystemLogPublisher::close);
+    }
+
+    @Test
+    void dropOldestKeepsLatestEvents() {
+        SystemLogPublisher publisher = publisher(SystemLogProperties.OverflowPolicy.DROP_OLDEST);
+        publish(publisher, 1, 5);
+        assertTrue(sent.isEmpty());
+        assertEquals(3, publisher.pendingPayloads().size());
+        assertEquals(3, meterRegistry.get("system.log.queue.depth").gauge().value());
+        assertEquals(2, meterRegistry.get("system.log.dropped").tag("policy", "oldest").counter().count());
+
+        drainAll(publisher);
+        assertEquals(List.of("1:3", "1:4", "1:5"), sent);
+        assertEquals(0, meterRegistry.get("system.log.queue.depth").gauge().value());
+        assertEquals(3, meterRegistry.get("system.log.send.latency").timer().count());
+    }
+
+    @Test
+    void dropNewestKeepsEarliestEvents() {
+        SystemLogPublisher publisher = publisher(SystemLogProperties.OverflowPolicy.DROP_NEWEST);
+        publish(publisher, 1, 5);
+        drainAll(publisher);
+        assertEquals(List.of("1:1", "1:2", "1:3"), sent);
+        assertEquals(2, meterRegistry.get("system.log.dropped").tag("policy", "newest").counter().count());
+    }
+
+    @Test
+    void spilledEventsAreSentInOrderAfterQueue() {
+        SystemLogPublisher publisher = publisher(SystemLogProperties.OverflowPolicy.SPILL);
+        publish(publisher, 1, 5);
+        // 第4条溢出写入本地缓冲，第5条因缓冲不为空排在其后
+        assertEquals(1, meterRegistry.get("system.log.spooled").tag("reason", "overflow").counter().count());
+        assertEquals(1, meterRegistry.get("system.log.spooled").tag("reason", "backlog").counter().count());
+
+        // 本地缓冲不为空时，即使队列已有空间，新事件也排在缓冲之后
+        publisher.drainOnce();
+        publish(publisher, 6, 6);
+        drainAll(publisher);
+        assertEquals(List.of("1:1", "1:2", "1:3", "1:4", "1:5", "1:6"), sent);
+        assertEquals(0, meterRegistry.get("system.log.spool.pending").gauge().value());
+
+        // 关闭时队列中剩余的事件写入本地缓冲，重启后补发
+        publish(publisher, 7, 8);
+        publisher.close();
+        sent.clear();
+        SystemLogPublisher restarted = publisher(SystemLogProperties.OverflowPolicy.SPILL);
+        drainAll(restarted);
+        assertEquals(List.of("1:7", "1:8"), sent);
+    }
+
+    @Test
+    void failedEventsAreSpooledAndReplayedInOrder() {
+        properties.getProducer().setRetryInterval(Duration.ZERO);
+        SystemLogPublisher publisher = publisher(SystemLogProperties.OverflowPolicy.DROP_NEWEST);
+        List<String> failed = new ArrayList<>();
+        when(kafkaTemplate.send(eq(SystemLogPublisher.TOPIC), any(), anyString())).thenAnswer(inv -> {
+            failed.add(inv.getArgument(2));
+            return CompletableFuture.failedFuture(new TimeoutException("broker不可用"));
+        });
+        publish(publisher, 1, 2);
+        publisher.drainOnce();
+        assertEquals(2, failed.size());
+        assertEquals(2, meterRegistry.get("system.log.spooled").tag("reason", "unavailable").counter().count());
+
+        // 本地缓冲不为空，后续事件排在后面
+        publish(publisher, 3, 3);
+        assertEquals(1, meterRegistry.get("system.log.spooled").tag("reason", "backlog").counter().count());
+
+        when(kafkaTemplate.send(eq(SystemLogPublisher.TOPIC), any(), anyString())).thenAnswer(inv -> {
+            sent.add(inv.getArgument(1) + ":" + LogEvent.fromJson(inv.getArgument(2)).getMessageId());
+            return CompletableFuture.completedFuture(mock(SendResult.class));
+        });
+        drainAll(publisher);
+        assertEquals(List.of("1:1", "1:2", "1:3"), sent);
+        assertEquals(2, meterRegistry.get("system.log.send.errors").counter().count());
+    }
+
+    private SystemLogPublisher publisher(SystemLogProperties.OverflowPolicy policy) {
+        properties.getProducer().setOverflowPolicy(policy);
+        meterRegistry = new SimpleMeterRegistry();
+        SystemLogPublisher publisher = new SystemLogPublisher(properties, kafkaTemplate, meterRegistry);
+        publishers.add(publisher);
+        return publisher;
+    }
+
+    private static void publish(SystemLogPublisher publisher, long fromMessageId, long toMessageId) {
+        for (long id = fromMessageId; id <= toMessageId; id++) {
+            LogEvent event = LogEvent.messageCreated(1L, id);
+            publisher.publish(event.getKey(), event.toJson());
+        }
+    }
+
+    private static void drainAll(SystemLogPublisher publisher) {
+        while (publisher.drainOnce() > 0) {
+            // 直到队列和本地缓冲都为空
+        }
+    }
+}
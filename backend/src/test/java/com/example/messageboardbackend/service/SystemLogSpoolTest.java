@@ -0,0 +1,124 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.SystemLogProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 系统日志本地缓冲测试
+ *
+ * 写满分段后切换、按顺序读回并删除读完的分段；重启后从检查点继续；
+ * CRC校验失败的部分跳过；超过总大小时丢弃最早的分段。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+class SystemLogSpoolTest {
+
+    @TempDir
+    Path dir;
+
+    private SystemLogProperties.Spool config;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        config = new SystemLogProperties.Spool();
+        config.setDir(dir.toString());
+        // 每个分段放下4条 8字节头 + 24字节内容 的记录
+        config.setSegmentSize(DataSize.ofBytes(128));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void rotatesAndReplaysInOrderAcrossRestart() {
+        SystemLogSpool spool = open();
+        append(spool, 0, 10);
+        assertEquals(3, segmentFiles().size());
+        assertEquals(10 * 32, spool.pendingBytes());
+
+        assertEquals(lines(0, 5), spool.poll(5));
+        // 第一个分段已读完删除
+        assertEquals(2, segmentFiles().size());
+        spool.close();
+
+        // 重启后从检查点继续，并接着写入最后一个分段
+        spool = open();
+        assertEquals(5 * 32, spool.pendingBytes());
+        append(spool, 10, 12);
+        assertEquals(lines(5, 12), spool.poll(100));
+        assertTrue(spool.isEmpty());
+        assertEquals(List.of(), spool.poll(100));
+        spool.close();
+    }
+
+    @Test
+    void corruptedRecordsAreSkipped() throws Exception {
+        SystemLogSpool spool = open();
+        append(spool, 0, 8);
+        spool.close();
+
+        // 第一个分段的第二条记录内容被破坏：启动时该分段截断在第一条之后
+        try (RandomAccessFile file = new RandomAccessFile(segmentFiles().get(0).toFile(), "rw")) {
+            file.seek(32 + 8);
+            file.write('X');
+        }
+        spool = open();
+        assertEquals(List.of(line(0), line(4), line(5), line(6), line(7)), spool.poll(100));
+        assertEquals(96, meterRegistry.get("system.log.spool.corrupted").counter().count());
+        spool.close();
+    }
+
+    @Test
+    void oldestSegmentsAreDroppedOverMaxSize() {
+        config.setMaxSize(DataSize.ofBytes(256));
+        SystemLogSpool spool = open();
+        append(spool, 0, 12);
+        assertEquals(2, segmentFiles().size());
+        assertEquals(4 * 32, meterRegistry.get("system.log.spool.expired").counter().count());
+        assertEquals(lines(4, 12), spool.poll(100));
+        spool.close();
+    }
+
+    private SystemLogSpool open() {
+        meterRegistry = new SimpleMeterRegistry();
+        return new SystemLogSpool(config, meterRegistry);
+    }
+
+    private static void append(SystemLogSpool spool, int from, int to) {
+        lines(from, to).forEach(spool::append);
+    }
+
+    private static List<String> lines(int from, int to) {
+        List<String> lines = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            lines.add(line(i));
+        }
+        return lines;
+    }
+
+    private static String line(int i) {
+        return String.format("12\t{\"t\":\"E\",\"m\":%07d}", i);
+    }
+
+    private List<Path> segmentFiles() {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".seg")).sorted().toList();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.messageboardbackend.service;
+
+import com.example.messageboardbackend.config.TrendingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 近期趋势统计测试
+ *
+ * 按净点赞数取前K条，取消点赞抵消计数，达到统计上限后不再接收新留言。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+class TrendingServiceTest {
+
+    private static final Duration WINDOW = Duration.ofMinutes(15);
+
+    private TrendingProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private TrendingService trendingService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TrendingProperties();
+        properties.setTopK(3);
+        properties.setMaxMessages(5);
+        meterRegistry = new SimpleMeterRegistry();
+        trendingService = new TrendingService(properties, meterRegistry);
+    }
+
+    @Test
+    void topKByNetLikesInWindow() {
+        like(1L, 2);
+        like(2L, 5);
+        like(3L, 1);
+        like(4L, 4);
+        like(5L, 3);
+        // 取消点赞抵消计数
+        trendingService.record(4L, -3);
+
+        // 刷新前没有结果
+        assertTrue(trendingService.getTrending(WINDOW, 10).isEmpty());
+
+        trendingService.refresh();
+        assertEquals(List.of(2L, 5L, 1L), trendingService.getTrending(WINDOW, 10));
+        assertEquals(List.of(2L, 5L), trendingService.getTrending(WINDOW, 2));
+        assertEquals(List.of(2L, 5L, 1L), trendingService.getTrending(Duration.ofHours(1), 10));
+    }
+
+    @Test
+    void trackedMessagesAreBounded() {
+        for (long id = 1; id <= 8; id++) {
+            like(id, 1);
+        }
+        assertEquals(5, meterRegistry.get("message.trending.tracked").gauge().value());
+        assertEquals(3, meterRegistry.get("message.trending.dropped").counter().count());
+        assertTrue(meterRegistry.get("message.trending.memory").gauge().value() > 0);
+    }
+
+    @Test
+    void unsupportedWindowIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> trendingService.getTrending(Duration.ofMinutes(5), 10));
+    }
+
+    private void like(Long messageId, int times) {
+        for (int i = 0; i < times; i++) {
+            trendingService.record(messageId, 1);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.messageboardbackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 请求合并压测
+ *
+ * 模拟缓存过期瞬间的并发请求：每一轮数百个线程同时未命中同一个key，
+ * 数据库查询（loader）应当每轮只执行一次。
+ *
+ * @author Message Board Team
+ * @version 1.0.0
+ */
+class SingleFlightTest {
+
+    private static final int THREADS = 200;
+    private static final int EXPIRY_ROUNDS = 5;
+
+    @Test
+    void concurrentMissesRunOneQueryPerExpiry() throws Exception {
+        SingleFlight<String, List<Long>> singleFlight = new SingleFlight<>();
+        AtomicInteger queries = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < EXPIRY_ROUNDS; round++) {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<List<Long>>> results = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    results.add(pool.submit(() -> {
+                        start.await();
+                        return singleFlight.execute("message:list:p0:s10:createdAt-DESC", () -> {
+                            queries.incrementAndGet();
+                            sleep(200);
+                            return List.of(1L, 2L, 3L);
+                        });
+                    }));
+                }
+                start.countDown();
+                for (Future<List<Long>> result : results) {
+                    assertEquals(List.of(1L, 2L, 3L), result.get(5, TimeUnit.SECONDS));
+                }
+                assertEquals(round + 1, queries.get(), "每次过期只应查询一次数据库");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void differentKeysLoadIndependently() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        assertEquals("a", singleFlight.execute("a", () -> "a"));
+        assertEquals("b", singleFlight.execute("b", () -> "b"));
+    }
+
+    @Test
+    void failureIsSharedWithWaitersAndNotCached() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch loading = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> leader = pool.submit(() -> singleFlight.execute("key", () -> {
+                loading.countDown();
+                sleep(200);
+                throw new IllegalStateException("数据库不可用");
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<?> waiter = pool.submit(() -> singleFlight.execute("key", () -> "不应执行"));
+
+            Exception leaderError = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            Exception waiterError = assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            assertTrue(leaderError.getCause() instanceof IllegalStateException);
+            assertTrue(waiterError.getCause() instanceof IllegalStateException);
+        } finally {
+            pool.shutdownNow();
+        }
+        // 失败结果不保留，下一次调用重新加载
+        assertEquals("ok", singleFlight.execute("key", () -> "ok"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}